@@ -2,13 +2,17 @@ package com.github.smartbuf;
 
 import com.github.smartbuf.exception.SmartBufClosedException;
 import com.github.smartbuf.reflect.TypeRef;
+import com.github.smartbuf.reflect.XType;
 import com.github.smartbuf.transport.Input;
 import com.github.smartbuf.transport.Output;
+import com.github.smartbuf.transport.Projection;
 import com.github.smartbuf.utils.CodecUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 
 /**
  * SmartBuf wraps the "smartbuf" protocol, includes packet-mode and stream-mode.
@@ -45,8 +49,7 @@ public final class SmartBuf {
      * @throws IOException if an I/O error occurs.
      */
     public <T> T read(byte[] data, Class<T> tCls) throws IOException {
-        Object obj = readObject(data);
-        return CodecUtils.convert(obj, tCls);
+        return read(data, CodecUtils.toXType(tCls));
     }
 
     /**
@@ -59,8 +62,52 @@ public final class SmartBuf {
      * @throws IOException if an I/O error occurs.
      */
     public <T> T read(byte[] data, TypeRef<T> tRef) throws IOException {
-        Object obj = readObject(data);
-        return CodecUtils.convert(obj, tRef);
+        return read(data, CodecUtils.toXType(tRef.getType()));
+    }
+
+    /**
+     * Read the next object and decode only the specified field paths into the specified class,
+     * other values will be skipped, like {@code read(data, Order.class, "id", "buyer.name")}.
+     *
+     * @param data       The data to deserialize
+     * @param tCls       The specified class
+     * @param fieldPaths The field paths to decode, separated by '.'
+     * @param <T>        Generic Type
+     * @return Read result
+     * @throws IOException if an I/O error occurs.
+     */
+    public <T> T read(byte[] data, Class<T> tCls, String... fieldPaths) throws IOException {
+        return read(data, tCls, Projection.of(fieldPaths));
+    }
+
+    /**
+     * Read the next object and decode only the fields of the specified projection into the specified class,
+     * the projection should be reused for better performance.
+     *
+     * @param data       The data to deserialize
+     * @param tCls       The specified class
+     * @param projection The fields to decode
+     * @param <T>        Generic Type
+     * @return Read result
+     * @throws IOException if an I/O error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(byte[] data, Class<T> tCls, Projection projection) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return (T) input.read(data, CodecUtils.toXType(tCls), projection);
+    }
+
+    /**
+     * Read the next object and decode it into the specified type directly, without intermediate generic objects.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T read(byte[] data, XType<?> type) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return (T) input.read(data, type);
     }
 
     /**
@@ -87,8 +134,7 @@ public final class SmartBuf {
      * @throws IOException if an I/O error occurs.
      */
     public <T> T read(InputStream inputStream, Class<T> tCls) throws IOException {
-        Object obj = readObject(inputStream);
-        return CodecUtils.convert(obj, tCls);
+        return read(inputStream, CodecUtils.toXType(tCls));
     }
 
     /**
@@ -101,8 +147,18 @@ public final class SmartBuf {
      * @throws IOException if an I/O error occurs.
      */
     public <T> T read(InputStream inputStream, TypeRef<T> tRef) throws IOException {
-        Object obj = readObject(inputStream);
-        return CodecUtils.convert(obj, tRef);
+        return read(inputStream, CodecUtils.toXType(tRef.getType()));
+    }
+
+    /**
+     * Read an object from the specified {@link InputStream} and decode it into the specified type directly.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T read(InputStream inputStream, XType<?> type) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return (T) input.read(inputStream, type);
     }
 
     /**
@@ -119,6 +175,55 @@ public final class SmartBuf {
         return input.read(inputStream);
     }
 
+    /**
+     * Read an object from the specified {@link ByteBuffer} and convert it into tCls's instance,
+     * the buffer could be heap, direct or memory-mapped.
+     *
+     * @param buf  The buffer to read bytecodes
+     * @param tCls The specified result type
+     * @param <T>  Result's generic type
+     * @return The read T instance
+     * @throws IOException if an I/O error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(ByteBuffer buf, Class<T> tCls) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return (T) input.read(buf, CodecUtils.toXType(tCls));
+    }
+
+    /**
+     * Read an object from the specified {@link ByteBuffer} and convert it into T instance.
+     *
+     * @param buf  The buffer to read bytecodes
+     * @param tRef The specified result type, support generic type
+     * @param <T>  Result's generic type
+     * @return The read T instance
+     * @throws IOException if an I/O error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(ByteBuffer buf, TypeRef<T> tRef) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return (T) input.read(buf, CodecUtils.toXType(tRef.getType()));
+    }
+
+    /**
+     * Read an object from the specified {@link ByteBuffer}
+     *
+     * @param buf The buffer to read bytecodes
+     * @return The read object
+     * @throws IOException if an I/O error occurs.
+     */
+    public Object readObject(ByteBuffer buf) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return input.read(buf);
+    }
+
     /**
      * Encode/Serialize the specified object into byte array.
      *
@@ -147,6 +252,52 @@ public final class SmartBuf {
         output.write(obj, os);
     }
 
+    /**
+     * Encode the specified object, and write it into the specified {@link OutputStream} as continuation frames,
+     * so big array won't be buffered as one message.
+     *
+     * @param obj       The object to encode
+     * @param os        The {@link OutputStream} to write bytecodes
+     * @param frameSize The expected body size of every frame
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(Object obj, OutputStream os, int frameSize) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        output.write(obj, os, frameSize);
+    }
+
+    /**
+     * Encode the specified object, and write it into the specified {@link ByteBuffer}, it could be direct buffer.
+     *
+     * @param obj The object to encode
+     * @param dst The buffer to write bytecodes
+     * @return The number of bytes written
+     * @throws IOException if an I/O error occurs, or dst hasn't enough space.
+     */
+    public int write(Object obj, ByteBuffer dst) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return output.write(obj, dst);
+    }
+
+    /**
+     * Encode the specified object, and write it into the specified {@link GatheringByteChannel}
+     *
+     * @param obj     The object to encode
+     * @param channel The channel to write bytecodes
+     * @return The number of bytes written
+     * @throws IOException if an I/O error occurs.
+     */
+    public long write(Object obj, GatheringByteChannel channel) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartBuf is closed");
+        }
+        return output.write(obj, channel);
+    }
+
     /**
      * Close this instance, and release all resources
      */
@@ -0,0 +1,268 @@
+package com.github.smartbuf;
+
+import com.github.smartbuf.exception.InvalidDataException;
+import com.github.smartbuf.exception.SmartBufClosedException;
+import com.github.smartbuf.reflect.TypeRef;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * SmartChannel binds a stream-mode {@link SmartBuf} to a pair of NIO channels, like pipe or socket.
+ * <p>
+ * Every message is framed by its varint length, so the reader could split messages without parsing them.
+ * Read and write buffers are reused, and written messages are buffered until {@link #flush()} if
+ * auto-flush was disabled, which could be used for batching.
+ * <p>
+ * Channels should be in blocking mode. Like {@link SmartStream}, SmartChannel is not thread-safe,
+ * but reading and writing could happen in two different threads.
+ *
+ * @author sulin
+ * @since 2019-11-28 20:16:35
+ */
+public final class SmartChannel implements Closeable {
+
+    public static int BUFFER_SIZE = 64 * 1024;
+
+    public final SmartBuf buf;
+
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+
+    private ByteBuffer readBuf;
+    private ByteBuffer writeBuf;
+    private boolean    autoFlush = true;
+
+    private volatile boolean closed;
+
+    /**
+     * Initialize SmartChannel by the specified channels
+     *
+     * @param in  The channel to read messages from, could be null if only writing
+     * @param out The channel to write messages into, could be null if only reading
+     */
+    public SmartChannel(ReadableByteChannel in, WritableByteChannel out) {
+        this.buf = new SmartBuf(true);
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Enable or disable auto-flush, if disabled, written messages are buffered until {@link #flush()}
+     * or the write buffer is full.
+     *
+     * @param autoFlush Flush after every message or not
+     */
+    public void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Encode the specified object, and write it as a length-framed message.
+     *
+     * @param obj The object to write
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(Object obj) throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartChannel is closed");
+        }
+        if (writeBuf == null) {
+            writeBuf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        ByteBuffer[] parts = buf.output.encode(obj);
+        int len = 0;
+        for (ByteBuffer part : parts) {
+            len += part.remaining();
+        }
+        if (writeBuf.remaining() < len + 5) {
+            this.flushBuffer();
+        }
+        // write the length prefix as varint
+        int n = len;
+        while ((n & 0xFFFFFF80) != 0) {
+            writeBuf.put((byte) (n | 0x80));
+            n >>>= 7;
+        }
+        writeBuf.put((byte) n);
+        if (writeBuf.remaining() >= len) {
+            for (ByteBuffer part : parts) {
+                writeBuf.put(part);
+            }
+        } else {
+            // the message is bigger than buffer, write its segments into channel directly
+            this.flushBuffer();
+            for (ByteBuffer part : parts) {
+                this.writeFully(part);
+            }
+        }
+        if (autoFlush) {
+            this.flushBuffer();
+        }
+    }
+
+    /**
+     * Flush all buffered messages into the underlying channel
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartChannel is closed");
+        }
+        if (writeBuf != null) {
+            this.flushBuffer();
+        }
+    }
+
+    /**
+     * Read the next message, and convert it into the specified class
+     *
+     * @param tCls The specified class
+     * @param <T>  Generic Type
+     * @return Read result
+     * @throws IOException if an I/O error occurs, or reach the end of channel.
+     */
+    public <T> T read(Class<T> tCls) throws IOException {
+        int end = this.nextFrame();
+        int limit = readBuf.limit();
+        readBuf.limit(end);
+        try {
+            return buf.read(readBuf, tCls);
+        } finally {
+            readBuf.limit(limit);
+            readBuf.position(end);
+        }
+    }
+
+    /**
+     * Read the next message, and convert it into the specified type
+     *
+     * @param tRef The specified type, support generic type
+     * @param <T>  Generic Type
+     * @return Read result
+     * @throws IOException if an I/O error occurs, or reach the end of channel.
+     */
+    public <T> T read(TypeRef<T> tRef) throws IOException {
+        int end = this.nextFrame();
+        int limit = readBuf.limit();
+        readBuf.limit(end);
+        try {
+            return buf.read(readBuf, tRef);
+        } finally {
+            readBuf.limit(limit);
+            readBuf.position(end);
+        }
+    }
+
+    /**
+     * Read the next message as generic object
+     *
+     * @return Read result
+     * @throws IOException if an I/O error occurs, or reach the end of channel.
+     */
+    public Object readObject() throws IOException {
+        int end = this.nextFrame();
+        int limit = readBuf.limit();
+        readBuf.limit(end);
+        try {
+            return buf.readObject(readBuf);
+        } finally {
+            readBuf.limit(limit);
+            readBuf.position(end);
+        }
+    }
+
+    /**
+     * Close this instance and the underlying channels
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        this.closed = true;
+        this.buf.close();
+        if (in != null) {
+            in.close();
+        }
+        if (out != null && out != in) {
+            out.close();
+        }
+    }
+
+    /**
+     * Read the next frame's length, and make sure the whole frame is buffered.
+     *
+     * @return The end position of the next frame in readBuf
+     */
+    private int nextFrame() throws IOException {
+        if (closed) {
+            throw new SmartBufClosedException("SmartChannel is closed");
+        }
+        if (readBuf == null) {
+            readBuf = ByteBuffer.allocate(BUFFER_SIZE);
+            readBuf.flip();
+        }
+        int len = 0;
+        for (int i = 0; ; i++) {
+            if (i == 5) {
+                throw new InvalidDataException("invalid frame length");
+            }
+            this.ensureReadable(i + 1);
+            byte b = readBuf.get(readBuf.position() + i);
+            len |= (b & 0x7F) << (i * 7);
+            if ((b & 0x80) == 0) {
+                readBuf.position(readBuf.position() + i + 1);
+                break;
+            }
+        }
+        if (len < 0) {
+            throw new InvalidDataException("invalid frame length: " + len);
+        }
+        this.ensureReadable(len);
+        return readBuf.position() + len;
+    }
+
+    /**
+     * Make sure readBuf has at least the specified number of bytes, it will block until they arrive.
+     */
+    private void ensureReadable(int size) throws IOException {
+        if (readBuf.remaining() >= size) {
+            return;
+        }
+        if (readBuf.capacity() < size) {
+            ByteBuffer newBuf = ByteBuffer.allocate(Math.max(size, readBuf.capacity() * 2));
+            newBuf.put(readBuf);
+            this.readBuf = newBuf;
+        } else {
+            readBuf.compact();
+        }
+        while (readBuf.position() < size) {
+            if (in.read(readBuf) < 0) {
+                readBuf.flip();
+                throw new EOFException();
+            }
+        }
+        readBuf.flip();
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuf.flip();
+        this.writeFully(writeBuf);
+        writeBuf.clear();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            out.write(src);
+        }
+    }
+
+}
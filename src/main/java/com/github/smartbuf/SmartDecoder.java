@@ -0,0 +1,159 @@
+package com.github.smartbuf;
+
+import com.github.smartbuf.exception.InvalidDataException;
+import com.github.smartbuf.reflect.TypeRef;
+import com.github.smartbuf.transport.Input;
+import com.github.smartbuf.utils.CodecUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * SmartDecoder decodes length-framed stream-mode messages written by {@link SmartChannel} incrementally,
+ * it's designed for event-loop, and never blocks.
+ * <p>
+ * Feed it with whatever bytes arrived by {@link #next(ByteBuffer)}, it returns true only if a whole message
+ * is available, then read it by {@link #readObject()} or {@link #read(Class)}. The stream's context is only
+ * updated while reading a whole message, so partial data never breaks it.
+ * <p>
+ * If the whole message is inside the fed buffer, it will be decoded in place without copying.
+ * Otherwise the partial message is accumulated into a buffer of exactly its size, which is released
+ * after decoding, so idle decoders hold nothing but the context.
+ *
+ * @author sulin
+ * @since 2019-11-29 15:40:21
+ */
+public final class SmartDecoder {
+
+    public static int FRAME_LIMIT = 128 * 1024 * 1024;
+
+    private final Input input = new Input(true);
+
+    private int        frameLen;
+    private int        lenShift;
+    private boolean    lenDone;
+    private ByteBuffer partial;
+
+    private ByteBuffer frame;
+    private int        frameEnd;
+    private int        frameLimit;
+
+    /**
+     * Consume bytes from the specified buffer, until a whole message is available or the buffer is exhausted.
+     *
+     * @param src The received bytes, its position will be moved forward
+     * @return true if a whole message is available, false if need more bytes
+     * @throws IOException if the frame is invalid
+     */
+    public boolean next(ByteBuffer src) throws IOException {
+        if (frame != null) {
+            throw new IllegalStateException("the available message should be read first");
+        }
+        while (!lenDone) {
+            if (!src.hasRemaining()) {
+                return false;
+            }
+            byte b = src.get();
+            frameLen |= (b & 0x7F) << lenShift;
+            lenShift += 7;
+            if ((b & 0x80) == 0) {
+                lenDone = true;
+            } else if (lenShift >= 35) {
+                throw new InvalidDataException("invalid frame length");
+            }
+        }
+        if (frameLen < 0 || frameLen > FRAME_LIMIT) {
+            throw new InvalidDataException("invalid frame length: " + frameLen);
+        }
+        if (partial == null) {
+            if (src.remaining() >= frameLen) {
+                this.frame = src;
+                this.frameEnd = src.position() + frameLen;
+                return true;
+            }
+            this.partial = ByteBuffer.allocate(frameLen);
+        }
+        int limit = src.limit();
+        src.limit(src.position() + Math.min(partial.remaining(), src.remaining()));
+        partial.put(src);
+        src.limit(limit);
+        if (partial.hasRemaining()) {
+            return false;
+        }
+        partial.flip();
+        this.frame = partial;
+        this.frameEnd = partial.limit();
+        return true;
+    }
+
+    /**
+     * Read the available message as generic object
+     *
+     * @return The next object
+     * @throws IOException if an I/O error occurs.
+     */
+    public Object readObject() throws IOException {
+        ByteBuffer buf = this.beginRead();
+        try {
+            return input.read(buf);
+        } finally {
+            this.endRead();
+        }
+    }
+
+    /**
+     * Read the available message, and convert it into the specified class
+     *
+     * @param tCls The specified class
+     * @param <T>  Generic Type
+     * @return The next object
+     * @throws IOException if an I/O error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Class<T> tCls) throws IOException {
+        ByteBuffer buf = this.beginRead();
+        try {
+            return (T) input.read(buf, CodecUtils.toXType(tCls));
+        } finally {
+            this.endRead();
+        }
+    }
+
+    /**
+     * Read the available message, and convert it into the specified type
+     *
+     * @param tRef The specified type, support generic type
+     * @param <T>  Generic Type
+     * @return The next object
+     * @throws IOException if an I/O error occurs.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(TypeRef<T> tRef) throws IOException {
+        ByteBuffer buf = this.beginRead();
+        try {
+            return (T) input.read(buf, CodecUtils.toXType(tRef.getType()));
+        } finally {
+            this.endRead();
+        }
+    }
+
+    private ByteBuffer beginRead() {
+        if (frame == null) {
+            throw new IllegalStateException("no available message");
+        }
+        this.frameLimit = frame.limit();
+        frame.limit(frameEnd);
+        return frame;
+    }
+
+    private void endRead() {
+        frame.limit(frameLimit);
+        frame.position(frameEnd);
+        this.frame = null;
+        this.partial = null;
+        this.frameLen = 0;
+        this.lenShift = 0;
+        this.lenDone = false;
+    }
+
+}
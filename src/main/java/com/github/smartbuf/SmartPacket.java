@@ -69,6 +69,22 @@ public final class SmartPacket {
         return buf.read(data, clz);
     }
 
+    /**
+     * Use packet-mode to deserialize only the specified field paths of byte[] into an object of the specified class,
+     * other fields will be skipped without decoding.
+     *
+     * @param data       Binary data in packet-mode format
+     * @param clz        The specified class to convert
+     * @param fieldPaths The field paths to decode, separated by '.'
+     * @param <T>        Template of target class
+     * @return Deserialization result
+     * @throws IOException if an I/O error occurs.
+     */
+    public static <T> T deserialize(byte[] data, Class<T> clz, String... fieldPaths) throws IOException {
+        SmartBuf buf = getLocalBuf();
+        return buf.read(data, clz, fieldPaths);
+    }
+
     /**
      * Use packet-mode to deserialize byte[] into an object of the specified type,
      * could used for supporting generic type.
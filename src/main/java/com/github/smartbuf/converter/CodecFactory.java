@@ -10,6 +10,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * CodecFactory, meantains CodecMethod and Pipeline.
@@ -28,6 +29,7 @@ public final class CodecFactory {
     private final Set<Codec>                     codecs       = ConcurrentHashMap.newKeySet();
     private final ConverterMap                   converterMap = new ConverterMap();
     private final Map<Object, ConverterPipeline> pipelineMap  = new ConcurrentHashMap<>();
+    private final AtomicInteger                  generation   = new AtomicInteger();
 
     /**
      * Initialize CodecFactory with the specified Codec type.
@@ -107,6 +109,17 @@ public final class CodecFactory {
         }
         // reset all pipeline
         this.pipelineMap.clear();
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Get the generation of installed codecs, it increases whenever codecs are installed,
+     * so caches derived from pipelines could find they are stale.
+     *
+     * @return Current generation
+     */
+    public int getGeneration() {
+        return generation.get();
     }
 
     /**
@@ -133,6 +146,17 @@ public final class CodecFactory {
         return this.doConvert(src, toXType(type));
     }
 
+    /**
+     * Convert the specified object to the specified {@link XType}
+     *
+     * @param src  Source data
+     * @param type Target type, with generic info
+     * @return instance of the specified type
+     */
+    public final Object convert(Object src, XType<?> type) {
+        return this.doConvert(src, type);
+    }
+
     /**
      * Execute data convert, convert src to the specified type target
      *
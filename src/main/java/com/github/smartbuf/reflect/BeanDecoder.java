@@ -0,0 +1,117 @@
+package com.github.smartbuf.reflect;
+
+import com.github.smartbuf.Type;
+
+/**
+ * BeanDecoder provides instantiation and typed setters for normal pojos, it helps decoder assign field values
+ * directly by index, without boxing primitive values or allocating intermediate arrays.
+ *
+ * @author sulin
+ * @since 2019-11-22 19:36:12
+ */
+public final class BeanDecoder {
+
+    static String API_NAME = API.class.getName().replace('.', '/');
+
+    final API         api;
+    final BeanField[] fields;
+    final String[]    fieldNames;
+    final Type[]      fieldTypes;
+
+    BeanDecoder(API api, BeanField[] fields) {
+        this.api = api;
+        this.fields = fields;
+        this.fieldNames = new String[fields.length];
+        this.fieldTypes = new Type[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            this.fieldNames[i] = fields[i].getName();
+            this.fieldTypes[i] = fields[i].getType();
+        }
+    }
+
+    /**
+     * Get all writable field's names of this decoder, sorted by name
+     *
+     * @return All writable field's names
+     */
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Get all writable field's types of this decoder
+     *
+     * @return All writable field's types
+     */
+    public Type[] getFieldTypes() {
+        return fieldTypes;
+    }
+
+    /**
+     * Create a new instance of the bean by its public no-arguments constructor
+     *
+     * @return new bean instance
+     */
+    public Object newInstance() {
+        return api.newInstance();
+    }
+
+    /**
+     * Set boolean value into the specified field, which must be boolean or Boolean
+     *
+     * @param t     The bean to set value
+     * @param index Index of field
+     * @param b     The value
+     */
+    public void setBoolean(Object t, int index, boolean b) {
+        api.setBoolean(t, index, b);
+    }
+
+    /**
+     * Set long value into the specified field, which must be number, like int, Long, double etc.
+     *
+     * @param t     The bean to set value
+     * @param index Index of field
+     * @param l     The value
+     */
+    public void setLong(Object t, int index, long l) {
+        api.setLong(t, index, l);
+    }
+
+    /**
+     * Set double value into the specified field, which must be float, double, Float or Double
+     *
+     * @param t     The bean to set value
+     * @param index Index of field
+     * @param d     The value
+     */
+    public void setDouble(Object t, int index, double d) {
+        api.setDouble(t, index, d);
+    }
+
+    /**
+     * Set object value into the specified field, it should match the field's type
+     *
+     * @param t     The bean to set value
+     * @param index Index of field
+     * @param o     The value, primitive field need its wrapper
+     */
+    public void setObject(Object t, int index, Object o) {
+        api.setObject(t, index, o);
+    }
+
+    public interface API {
+
+        Object newInstance();
+
+        void setBoolean(Object o, int index, boolean b);
+
+        void setLong(Object o, int index, long l);
+
+        void setDouble(Object o, int index, double d);
+
+        void setObject(Object o, int index, Object value);
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.github.smartbuf.reflect;
+
+import com.github.smartbuf.utils.ASMUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BeanDecoderBuilder helps build {@link BeanDecoder} for normal pojos
+ *
+ * @author sulin
+ * @since 2019-11-22 19:52:40
+ */
+@SuppressWarnings("unchecked")
+public final class BeanDecoderBuilder {
+
+    static final Map<Class, BeanDecoder> DECODER_MAP = new ConcurrentHashMap<>();
+
+    private BeanDecoderBuilder() {
+    }
+
+    /**
+     * Get an reusable {@link BeanDecoder} instance of the specified class
+     *
+     * @param cls The specified class, must be public and have public no-arguments constructor
+     * @return cls's BeanDecoder
+     */
+    public static BeanDecoder build(Class<?> cls) {
+        BeanDecoder decoder = DECODER_MAP.get(cls);
+        if (decoder == null) {
+            decoder = buildDecoder(cls);
+            DECODER_MAP.put(cls, decoder);
+        }
+        return decoder;
+    }
+
+    /**
+     * Parse the specified class's writable fields, then generate {@link BeanDecoder} proxy for them.
+     */
+    static BeanDecoder buildDecoder(Class<?> cls) {
+        BeanField[] fields = BeanWriterBuilder.findWritableFields(cls);
+        try {
+            BeanDecoder.API api = buildDecoderClass(cls, fields).getConstructor().newInstance();
+            return new BeanDecoder(api, fields);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("build decoder for " + cls + " failed.", e);
+        }
+    }
+
+    /**
+     * Build decoder class for the specified class with fields
+     */
+    static Class<? extends BeanDecoder.API> buildDecoderClass(Class<?> cls, BeanField[] fields) {
+        String clsName = cls.getName().replace('.', '/');
+        String decoderClsName = cls.getName() + "$$$Decoder";
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, decoderClsName.replace('.', '/'), null, "java/lang/Object", new String[]{BeanDecoder.API_NAME});
+
+        // public T$$$Decoder()
+        ASMUtils.addConstructor(cw);
+
+        // public Object newInstance()
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "newInstance", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(Opcodes.NEW, clsName);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, clsName, "<init>", "()V", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // public void setXXX(Object o, int index, XXX value)
+        addSetMethod(cw, clsName, fields, "setBoolean", boolean.class);
+        addSetMethod(cw, clsName, fields, "setLong", long.class);
+        addSetMethod(cw, clsName, fields, "setDouble", double.class);
+        addSetMethod(cw, clsName, fields, "setObject", Object.class);
+
+        cw.visitEnd();
+
+        return (Class<? extends BeanDecoder.API>) ASMUtils.loadClass(cw, decoderClsName);
+    }
+
+    /**
+     * Add typed set method, which use tableswitch to locate field by index,
+     * unsupported field will cause {@link IllegalArgumentException}.
+     */
+    private static void addSetMethod(ClassWriter cw, String clsName, BeanField[] fields, String name, Class<?> valueType) {
+        String descriptor = "(Ljava/lang/Object;I" + Type.getDescriptor(valueType) + ")V";
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null);
+        mv.visitCode();
+        Label dflt = new Label();
+        if (fields.length > 0) {
+            Label[] labels = new Label[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                labels[i] = isAssignable(valueType, fields[i]) ? new Label() : dflt;
+            }
+            mv.visitVarInsn(Opcodes.ILOAD, 2);
+            mv.visitTableSwitchInsn(0, fields.length - 1, dflt, labels);
+            for (int i = 0; i < fields.length; i++) {
+                if (labels[i] == dflt) {
+                    continue;
+                }
+                BeanField prop = fields[i];
+                Class<?> fieldType = prop.field.getType();
+                mv.visitLabel(labels[i]);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, clsName);
+                mv.visitVarInsn(Type.getType(valueType).getOpcode(Opcodes.ILOAD), 3);
+                addConvertInstruction(mv, valueType, fieldType);
+                if (prop.setter == null) {
+                    mv.visitFieldInsn(Opcodes.PUTFIELD, clsName, prop.field.getName(), Type.getDescriptor(fieldType));
+                } else {
+                    String setterDescriptor = "(" + Type.getDescriptor(fieldType) + ")V";
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clsName, prop.setter.getName(), setterDescriptor, false);
+                }
+                mv.visitInsn(Opcodes.RETURN);
+            }
+        }
+        // throw new IllegalArgumentException()
+        mv.visitLabel(dflt);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "()V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Check whether the specified field could accept value of the specified type
+     */
+    static boolean isAssignable(Class<?> valueType, BeanField field) {
+        if (valueType == Object.class) {
+            return true;
+        }
+        switch (field.type) {
+            case Z:
+            case BOOLEAN:
+                return valueType == boolean.class;
+            case B:
+            case S:
+            case I:
+            case J:
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+            case LONG:
+                return valueType == long.class;
+            case F:
+            case D:
+            case FLOAT:
+            case DOUBLE:
+                return valueType == long.class || valueType == double.class;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Add instructions to convert the value on stack from valueType to fieldType
+     */
+    private static void addConvertInstruction(MethodVisitor mv, Class<?> valueType, Class<?> fieldType) {
+        if (valueType == Object.class) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, BeanWriterBuilder.toNonPrimitiveClass(fieldType).getName().replace('.', '/'));
+            if (fieldType.isPrimitive()) {
+                ASMUtils.addUnboxInstruction(mv, fieldType);
+            }
+            return;
+        }
+        Class<?> primitiveType = toPrimitiveClass(fieldType);
+        if (valueType == long.class) {
+            if (primitiveType == float.class) {
+                mv.visitInsn(Opcodes.L2F);
+            } else if (primitiveType == double.class) {
+                mv.visitInsn(Opcodes.L2D);
+            } else if (primitiveType != long.class) {
+                mv.visitInsn(Opcodes.L2I);
+                if (primitiveType == byte.class) {
+                    mv.visitInsn(Opcodes.I2B);
+                } else if (primitiveType == short.class) {
+                    mv.visitInsn(Opcodes.I2S);
+                }
+            }
+        } else if (valueType == double.class && primitiveType == float.class) {
+            mv.visitInsn(Opcodes.D2F);
+        }
+        if (!fieldType.isPrimitive()) {
+            ASMUtils.addBoxInstruction(mv, primitiveType);
+        }
+    }
+
+    /**
+     * Convert wrapper class to its primitive class
+     */
+    static Class<?> toPrimitiveClass(Class<?> cls) {
+        if (cls == Boolean.class) {
+            return boolean.class;
+        } else if (cls == Byte.class) {
+            return byte.class;
+        } else if (cls == Short.class) {
+            return short.class;
+        } else if (cls == Integer.class) {
+            return int.class;
+        } else if (cls == Long.class) {
+            return long.class;
+        } else if (cls == Float.class) {
+            return float.class;
+        } else if (cls == Double.class) {
+            return double.class;
+        } else if (cls == Character.class) {
+            return char.class;
+        }
+        return cls;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.github.smartbuf.reflect;
+
+import com.github.smartbuf.Type;
+
+import java.io.IOException;
+
+/**
+ * BeanEncoder provides {@link #encode} for normal pojos, it pushes all field values into {@link Sink} directly,
+ * without boxing primitive values or allocating intermediate arrays.
+ *
+ * @author sulin
+ * @since 2019-11-20 20:13:05
+ */
+public final class BeanEncoder {
+
+    static String API_NAME  = API.class.getName().replace('.', '/');
+    static String SINK_NAME = Sink.class.getName().replace('.', '/');
+
+    final API         api;
+    final BeanField[] fields;
+    final String[]    fieldNames;
+    final Type[]      fieldTypes;
+
+    BeanEncoder(API api, BeanField[] fields) {
+        this.api = api;
+        this.fields = fields;
+        this.fieldNames = new String[fields.length];
+        this.fieldTypes = new Type[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            this.fieldNames[i] = fields[i].getName();
+            this.fieldTypes[i] = fields[i].getType();
+        }
+    }
+
+    /**
+     * Get all encodable field's names of this encoder, sorted by name
+     *
+     * @return All encodable field's names
+     */
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Get all encodable field's types of this encoder
+     *
+     * @return All encodable field's types
+     */
+    public Type[] getFieldTypes() {
+        return fieldTypes;
+    }
+
+    /**
+     * Encode all field values of the specified object into the specified sink, in the order of {@link #getFieldNames()}
+     *
+     * @param t    The specified object to encode
+     * @param sink The sink to accept field values
+     * @throws IOException if sink failed
+     */
+    public void encode(Object t, Sink sink) throws IOException {
+        api.encodeAll(t, sink);
+    }
+
+    public interface API {
+        /**
+         * Fetch all properties of the specified object, and push them into sink in predefined order
+         *
+         * @param o    The Object to access, its getter will be called in predefined order
+         * @param sink The sink to accept getter's result
+         * @throws IOException if sink failed
+         */
+        void encodeAll(Object o, Sink sink) throws IOException;
+    }
+
+    /**
+     * Sink accepts the field values pushed by {@link BeanEncoder}, primitive values are passed without boxing.
+     */
+    public interface Sink {
+
+        void writeNull() throws IOException;
+
+        void writeBoolean(boolean b) throws IOException;
+
+        void writeVarint(long l) throws IOException;
+
+        void writeFloat(float f) throws IOException;
+
+        void writeDouble(double d) throws IOException;
+
+        /**
+         * Write string value, it could be null
+         */
+        void writeString(String s) throws IOException;
+
+        /**
+         * Write other value with its declared type, it could be null
+         */
+        void writeObject(Object o, Type type) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.github.smartbuf.reflect;
+
+import com.github.smartbuf.utils.ASMUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BeanEncoderBuilder helps build {@link BeanEncoder} for normal pojos
+ *
+ * @author sulin
+ * @since 2019-11-20 20:15:32
+ */
+@SuppressWarnings("unchecked")
+public final class BeanEncoderBuilder {
+
+    static final Map<Class, BeanEncoder> ENCODER_MAP = new ConcurrentHashMap<>();
+
+    private static final String TYPE_NAME = com.github.smartbuf.Type.class.getName().replace('.', '/');
+
+    private BeanEncoderBuilder() {
+    }
+
+    /**
+     * Get an reusable {@link BeanEncoder} instance of the specified class
+     *
+     * @param cls The specified class
+     * @return cls's BeanEncoder
+     */
+    public static BeanEncoder build(Class<?> cls) {
+        BeanEncoder encoder = ENCODER_MAP.get(cls);
+        if (encoder == null) {
+            encoder = buildEncoder(cls);
+            ENCODER_MAP.put(cls, encoder);
+        }
+        return encoder;
+    }
+
+    /**
+     * Parse the specified class's readable fields, then generate {@link BeanEncoder} proxy for them.
+     */
+    static BeanEncoder buildEncoder(Class<?> cls) {
+        BeanField[] fields = BeanReaderBuilder.findReadableFields(cls);
+        try {
+            BeanEncoder.API api = buildEncoderClass(cls, fields).getConstructor().newInstance();
+            return new BeanEncoder(api, fields);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("build encoder for " + cls + " failed.", e);
+        }
+    }
+
+    /**
+     * Build encoder class for the specified class with fields
+     */
+    static Class<? extends BeanEncoder.API> buildEncoderClass(Class<?> cls, BeanField[] fields) {
+        String clsName = cls.getName().replace('.', '/');
+        String encoderClsName = cls.getName() + "$$$Encoder";
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, encoderClsName.replace('.', '/'), null, "java/lang/Object", new String[]{BeanEncoder.API_NAME});
+
+        // public T$$$Encoder()
+        ASMUtils.addConstructor(cw);
+
+        // public void encodeAll(Object o, Sink sink)
+        String sinkDescriptor = "L" + BeanEncoder.SINK_NAME + ";";
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "encodeAll", "(Ljava/lang/Object;" + sinkDescriptor + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, clsName);
+        mv.visitVarInsn(Opcodes.ASTORE, 3);
+        for (BeanField prop : fields) {
+            mv.visitVarInsn(Opcodes.ALOAD, 2); // sink
+            mv.visitVarInsn(Opcodes.ALOAD, 3); // t.
+            Class<?> fieldType = prop.field.getType();
+            if (prop.getter == null) {
+                mv.visitFieldInsn(Opcodes.GETFIELD, clsName, prop.field.getName(), Type.getDescriptor(fieldType));
+            } else {
+                String methodName = prop.getter.getName();
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, clsName, methodName, "()" + Type.getDescriptor(fieldType), false);
+            }
+            addSinkInstruction(mv, prop);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+
+        return (Class<? extends BeanEncoder.API>) ASMUtils.loadClass(cw, encoderClsName);
+    }
+
+    /**
+     * Add instructions to push the field value into sink, the stack must be [sink, value].
+     */
+    private static void addSinkInstruction(MethodVisitor mv, BeanField prop) {
+        switch (prop.type) {
+            case Z:
+                invokeSink(mv, "writeBoolean", "(Z)V");
+                break;
+            case B:
+            case S:
+            case I:
+                mv.visitInsn(Opcodes.I2L);
+                invokeSink(mv, "writeVarint", "(J)V");
+                break;
+            case J:
+                invokeSink(mv, "writeVarint", "(J)V");
+                break;
+            case F:
+                invokeSink(mv, "writeFloat", "(F)V");
+                break;
+            case D:
+                invokeSink(mv, "writeDouble", "(D)V");
+                break;
+            case C:
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/String", "valueOf", "(C)Ljava/lang/String;", false);
+                invokeSink(mv, "writeString", "(Ljava/lang/String;)V");
+                break;
+            case BOOLEAN:
+                addUnboxSinkInstruction(mv, "java/lang/Boolean", "booleanValue", "()Z", "writeBoolean", "(Z)V");
+                break;
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+            case LONG:
+                addUnboxSinkInstruction(mv, "java/lang/Number", "longValue", "()J", "writeVarint", "(J)V");
+                break;
+            case FLOAT:
+                addUnboxSinkInstruction(mv, "java/lang/Float", "floatValue", "()F", "writeFloat", "(F)V");
+                break;
+            case DOUBLE:
+                addUnboxSinkInstruction(mv, "java/lang/Double", "doubleValue", "()D", "writeDouble", "(D)V");
+                break;
+            default:
+                if (prop.cls == String.class) {
+                    invokeSink(mv, "writeString", "(Ljava/lang/String;)V");
+                } else {
+                    mv.visitFieldInsn(Opcodes.GETSTATIC, TYPE_NAME, prop.type.name(), "L" + TYPE_NAME + ";");
+                    invokeSink(mv, "writeObject", "(Ljava/lang/Object;L" + TYPE_NAME + ";)V");
+                }
+        }
+    }
+
+    /**
+     * Add instructions to push the boxed field value into sink, null value will be pushed by writeNull.
+     */
+    private static void addUnboxSinkInstruction(MethodVisitor mv, String boxName, String unboxName, String unboxDesc,
+                                                String sinkMethod, String sinkDesc) {
+        Label nonNull = new Label();
+        Label end = new Label();
+        mv.visitVarInsn(Opcodes.ASTORE, 4);
+        mv.visitVarInsn(Opcodes.ALOAD, 4);
+        mv.visitJumpInsn(Opcodes.IFNONNULL, nonNull);
+        invokeSink(mv, "writeNull", "()V");
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(nonNull);
+        mv.visitVarInsn(Opcodes.ALOAD, 4);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxName, unboxName, unboxDesc, false);
+        invokeSink(mv, sinkMethod, sinkDesc);
+        mv.visitLabel(end);
+    }
+
+    private static void invokeSink(MethodVisitor mv, String name, String descriptor) {
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, BeanEncoder.SINK_NAME, name, descriptor, true);
+    }
+
+}
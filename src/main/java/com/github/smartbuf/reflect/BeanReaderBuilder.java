@@ -45,8 +45,21 @@ public final class BeanReaderBuilder {
      * Parse the specified class's readable fields, then generate {@link BeanReader} proxy for them.
      */
     static BeanReader buildReader(Class<?> cls) {
+        BeanField[] fields = findReadableFields(cls);
+        // build BeanReader
+        try {
+            BeanReader.API api = buildReaderClass(cls, fields).getConstructor().newInstance();
+            return new BeanReader(api, fields);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("build reader for " + cls + " failed.", e);
+        }
+    }
+
+    /**
+     * Collect the specified class's readable fields, which are public or have getter, sort by name.
+     */
+    static BeanField[] findReadableFields(Class<?> cls) {
         Map<String, BeanField> fieldMap = new TreeMap<>();
-        // collect all fields
         ReflectUtils.findAllValidFields(cls).forEach(field -> {
             BeanField bf = new BeanField(field.getName(), field.getType());
             bf.field = field;
@@ -55,14 +68,7 @@ public final class BeanReaderBuilder {
                 fieldMap.put(field.getName(), bf);
             }
         });
-        // build BeanReader
-        try {
-            BeanField[] fields = fieldMap.values().toArray(new BeanField[0]);
-            BeanReader.API api = buildReaderClass(cls, fields).getConstructor().newInstance();
-            return new BeanReader(api, fields);
-        } catch (Throwable e) {
-            throw new IllegalArgumentException("build reader for " + cls + " failed.", e);
-        }
+        return fieldMap.values().toArray(new BeanField[0]);
     }
 
     /**
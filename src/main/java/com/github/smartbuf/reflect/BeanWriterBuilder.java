@@ -42,8 +42,21 @@ public final class BeanWriterBuilder {
      * Parse the specified class's writeable fields, then generate {@link BeanWriter} proxy for them.
      */
     static BeanWriter buildWriter(Class<?> cls) {
+        BeanField[] fields = findWritableFields(cls);
+        // build BeanWriter
+        try {
+            BeanWriter.API api = buildWriterClass(cls, fields).getConstructor().newInstance();
+            return new BeanWriter(api, fields);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("build writer for " + cls + " failed.", e);
+        }
+    }
+
+    /**
+     * Collect the specified class's writable fields, which are public or have setter, sort by name.
+     */
+    static BeanField[] findWritableFields(Class<?> cls) {
         Map<String, BeanField> fieldMap = new TreeMap<>();
-        // collect all field
         ReflectUtils.findAllValidFields(cls).forEach(field -> {
             BeanField bf = new BeanField(field.getName(), field.getType());
             bf.field = field;
@@ -52,14 +65,7 @@ public final class BeanWriterBuilder {
                 fieldMap.put(field.getName(), bf);
             }
         });
-        // build BeanWriter
-        try {
-            BeanField[] fields = fieldMap.values().toArray(new BeanField[0]);
-            BeanWriter.API api = buildWriterClass(cls, fields).getConstructor().newInstance();
-            return new BeanWriter(api, fields);
-        } catch (Throwable e) {
-            throw new IllegalArgumentException("build writer for " + cls + " failed.", e);
-        }
+        return fieldMap.values().toArray(new BeanField[0]);
     }
 
     /**
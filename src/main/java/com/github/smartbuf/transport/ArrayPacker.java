@@ -0,0 +1,410 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.exception.UnexpectedReadException;
+import com.github.smartbuf.utils.NumberUtils;
+
+import java.io.IOException;
+
+/**
+ * ArrayPacker encodes numeric native arrays in compact layouts, it's used by {@link Const#TYPE_NARRAY_PACKED}.
+ * <p>
+ * The packed array's body begins with 1-byte of {@code kind << 4 | encoding}, kind is the sub-type of
+ * the original array, like {@link Const#TYPE_NARRAY_LONG}, encoding is one of the following:
+ * <ul>
+ * <li>{@link #ENC_DELTA}: the first value, and every item's zigzag-varint delta of its previous one.</li>
+ * <li>{@link #ENC_BITS}: frame-of-reference, the min value, bit-width, and bit-packed offsets to the min value.
+ * Bit-width 64 means fixed-width, which is smaller than varint for large magnitudes.</li>
+ * <li>{@link #ENC_DELTA_BITS}: the first value, min delta, bit-width, and bit-packed offsets of deltas to
+ * the min delta, it fits sorted IDs and timestamps with regular intervals.</li>
+ * <li>{@link #ENC_XOR}: for float[] and double[], the byte length of bits, the first value's bits,
+ * and every value's XOR with its previous one.
+ * Zero XOR costs 1 bit, others cost 2 bits of control and their meaningful bits, the leading/trailing zeros are reused
+ * from previous value if possible, or written as 5 bits of leading zeros and 5/6 bits of meaningful length.</li>
+ * </ul>
+ * The encoding is picked per array by one statistics pass, the array keeps its normal layout if it's the smallest.
+ * Bit-packed data always has known byte length, so reader could fetch it in bulk.
+ *
+ * @author sulin
+ * @since 2019-12-09 11:05:27
+ */
+final class ArrayPacker {
+
+    static final byte ENC_NONE       = 0;
+    static final byte ENC_DELTA      = 1;
+    static final byte ENC_BITS       = 2;
+    static final byte ENC_DELTA_BITS = 3;
+    static final byte ENC_XOR        = 4;
+
+    /**
+     * Small array won't be packed, the statistics isn't worth.
+     */
+    static final int MIN_PACK_SIZE = 8;
+
+    /**
+     * XOR encoding gives up if the leading values don't shrink, it keeps noisy series away from the full estimation.
+     */
+    static final int XOR_SAMPLE_SIZE = 32;
+
+    private static final int XOR_LEAD_BITS = 5;
+    private static final int XOR_MAX_LEAD  = (1 << XOR_LEAD_BITS) - 1;
+
+    private ArrayPacker() {
+    }
+
+    /**
+     * Choose the smallest encoding for the specified values by their statistics.
+     *
+     * @param kind   The original sub-type of native array
+     * @param values The values to pack, float and double should be their raw bits
+     * @param len    The number of values
+     * @return The smallest encoding, {@link #ENC_NONE} means the normal layout is better
+     */
+    static byte choose(byte kind, long[] values, int len) {
+        if (len < MIN_PACK_SIZE) {
+            return ENC_NONE;
+        }
+        if (kind == Const.TYPE_NARRAY_FLOAT || kind == Const.TYPE_NARRAY_DOUBLE) {
+            return chooseXor(values, len, xorWidth(kind));
+        }
+        long min = values[0], max = values[0];
+        long minDelta = Long.MAX_VALUE, maxDelta = Long.MIN_VALUE;
+        long plainCost = 0, deltaCost = varUintSize(NumberUtils.intToUint(values[0]));
+        for (int i = 0; i < len; i++) {
+            long v = values[i];
+            plainCost += varUintSize(NumberUtils.intToUint(v));
+            if (v < min) min = v;
+            if (v > max) max = v;
+            if (i > 0) {
+                long delta = v - values[i - 1];
+                deltaCost += varUintSize(NumberUtils.intToUint(delta));
+                if (delta < minDelta) minDelta = delta;
+                if (delta > maxDelta) maxDelta = delta;
+            }
+        }
+        if (kind == Const.TYPE_NARRAY_SHORT) {
+            plainCost = len * 2L;
+        }
+        long bitsCost = varUintSize(NumberUtils.intToUint(min)) + 1 + packedSize(len, bitWidth(max - min));
+        long deltaBitsCost = varUintSize(NumberUtils.intToUint(values[0])) + varUintSize(NumberUtils.intToUint(minDelta))
+            + 1 + packedSize(len - 1, bitWidth(maxDelta - minDelta));
+
+        byte enc = ENC_NONE;
+        long cost = plainCost - 1; // packed array need 1 more byte
+        if (deltaCost < cost) {
+            enc = ENC_DELTA;
+            cost = deltaCost;
+        }
+        if (bitsCost < cost) {
+            enc = ENC_BITS;
+            cost = bitsCost;
+        }
+        if (deltaBitsCost < cost) {
+            enc = ENC_DELTA_BITS;
+        }
+        return enc;
+    }
+
+    /**
+     * Write the specified values by the specified encoding, include the 1-byte flag.
+     *
+     * @param buf    The buffer to write into
+     * @param kind   The original sub-type of native array
+     * @param enc    The encoding returned by {@link #choose(byte, long[], int)}
+     * @param values The values to pack
+     * @param len    The number of values
+     * @throws IOException if any io exception happens
+     */
+    static void write(OutputBuffer buf, byte kind, byte enc, long[] values, int len) throws IOException {
+        buf.writeByte((byte) ((kind >>> 3) << 4 | enc));
+        switch (enc) {
+            case ENC_DELTA:
+                buf.writeVarInt(values[0]);
+                for (int i = 1; i < len; i++) {
+                    buf.writeVarInt(values[i] - values[i - 1]);
+                }
+                break;
+            case ENC_BITS:
+                long min = values[0], max = values[0];
+                for (int i = 1; i < len; i++) {
+                    if (values[i] < min) min = values[i];
+                    if (values[i] > max) max = values[i];
+                }
+                int width = bitWidth(max - min);
+                buf.writeVarInt(min);
+                buf.writeByte((byte) width);
+                BitWriter writer = new BitWriter(buf);
+                for (int i = 0; i < len; i++) {
+                    writer.writeBits(values[i] - min, width);
+                }
+                writer.flush();
+                break;
+            case ENC_DELTA_BITS:
+                long minDelta = Long.MAX_VALUE, maxDelta = Long.MIN_VALUE;
+                for (int i = 1; i < len; i++) {
+                    long delta = values[i] - values[i - 1];
+                    if (delta < minDelta) minDelta = delta;
+                    if (delta > maxDelta) maxDelta = delta;
+                }
+                width = bitWidth(maxDelta - minDelta);
+                buf.writeVarInt(values[0]);
+                buf.writeVarInt(minDelta);
+                buf.writeByte((byte) width);
+                writer = new BitWriter(buf);
+                for (int i = 1; i < len; i++) {
+                    writer.writeBits(values[i] - values[i - 1] - minDelta, width);
+                }
+                writer.flush();
+                break;
+            case ENC_XOR:
+                writeXor(buf, values, len, xorWidth(kind));
+                break;
+            default:
+                throw new IllegalArgumentException("invalid encoding: " + enc);
+        }
+    }
+
+    /**
+     * Read a packed array, include its 1-byte flag.
+     *
+     * @param buf The buffer to read
+     * @param len The length of array
+     * @return Native array of its original kind, like long[]
+     * @throws IOException if any io exception happens
+     */
+    static Object read(InputBuffer buf, int len) throws IOException {
+        byte flag = buf.readByte();
+        byte kind = (byte) ((flag >>> 4) << 3 | Const.TYPE_NARRAY);
+        if ((flag & 0x0F) == ENC_XOR) {
+            return readXor(buf, kind, len);
+        }
+        long[] values = new long[len];
+        switch (flag & 0x0F) {
+            case ENC_DELTA:
+                long prev = 0;
+                for (int i = 0; i < len; i++) {
+                    values[i] = prev = prev + buf.readVarInt();
+                }
+                break;
+            case ENC_BITS:
+                long min = buf.readVarInt();
+                unpack(buf, values, 0, len, readWidth(buf));
+                for (int i = 0; i < len; i++) {
+                    values[i] += min;
+                }
+                break;
+            case ENC_DELTA_BITS:
+                prev = buf.readVarInt();
+                long minDelta = buf.readVarInt();
+                values[0] = prev;
+                unpack(buf, values, 1, len - 1, readWidth(buf));
+                for (int i = 1; i < len; i++) {
+                    values[i] = prev = prev + minDelta + values[i];
+                }
+                break;
+            default:
+                throw new UnexpectedReadException("invalid packed encoding: " + flag);
+        }
+        switch (kind) {
+            case Const.TYPE_NARRAY_SHORT:
+                short[] shorts = new short[len];
+                for (int i = 0; i < len; i++) {
+                    shorts[i] = (short) values[i];
+                }
+                return shorts;
+            case Const.TYPE_NARRAY_INT:
+                int[] ints = new int[len];
+                for (int i = 0; i < len; i++) {
+                    ints[i] = (int) values[i];
+                }
+                return ints;
+            case Const.TYPE_NARRAY_LONG:
+                return values;
+            default:
+                throw new UnexpectedReadException("invalid packed kind: " + flag);
+        }
+    }
+
+    /**
+     * Skip a packed array without decoding it.
+     *
+     * @param buf The buffer to read
+     * @param len The length of array
+     * @throws IOException if any io exception happens
+     */
+    static void skip(InputBuffer buf, int len) throws IOException {
+        byte flag = buf.readByte();
+        switch (flag & 0x0F) {
+            case ENC_XOR:
+                buf.skip((int) buf.readVarUint());
+                break;
+            case ENC_DELTA:
+                for (int i = 0; i < len; i++) {
+                    buf.readVarUint();
+                }
+                break;
+            case ENC_BITS:
+                buf.readVarUint();
+                buf.skip((int) packedSize(len, readWidth(buf)));
+                break;
+            case ENC_DELTA_BITS:
+                buf.readVarUint();
+                buf.readVarUint();
+                buf.skip((int) packedSize(len - 1, readWidth(buf)));
+                break;
+            default:
+                throw new UnexpectedReadException("invalid packed encoding: " + flag);
+        }
+    }
+
+    /**
+     * Read n bit-packed unsigned values into dst from the specified offset
+     */
+    private static void unpack(InputBuffer buf, long[] dst, int off, int n, int width) throws IOException {
+        BitReader reader = new BitReader(InputBuffer.valueOf(buf.readByteArray((int) packedSize(n, width))));
+        for (int i = 0; i < n; i++) {
+            dst[off + i] = reader.readBits(width);
+        }
+    }
+
+    /**
+     * Estimate the XOR encoding, it's chosen if it's smaller than the normal layout
+     */
+    private static byte chooseXor(long[] values, int len, int width) {
+        long bits = xorBits(values, len, width, true);
+        if (bits < 0) {
+            return ENC_NONE;
+        }
+        long size = (bits + 7) >>> 3;
+        return 1 + varUintSize(size) + size < (long) len * width / 8 ? ENC_XOR : ENC_NONE;
+    }
+
+    /**
+     * Count bits of the XOR encoding by the same window logic as {@link #writeXor},
+     * or return -1 if sampling is enabled and the leading values don't shrink
+     */
+    private static long xorBits(long[] values, int len, int width, boolean sampling) {
+        long cost = width; // the first value
+        int lead = -1, trail = 0;
+        for (int i = 1; i < len; i++) {
+            long xor = values[i] ^ values[i - 1];
+            if (xor == 0) {
+                cost++;
+            } else {
+                int lz = Math.min(Long.numberOfLeadingZeros(xor) - (64 - width), XOR_MAX_LEAD);
+                int tz = Long.numberOfTrailingZeros(xor);
+                if (lead >= 0 && lz >= lead && tz >= trail) {
+                    cost += 2 + width - lead - trail;
+                } else {
+                    cost += 2 + XOR_LEAD_BITS + xorLenBits(width) + width - lz - tz;
+                    lead = lz;
+                    trail = tz;
+                }
+            }
+            if (sampling && i == XOR_SAMPLE_SIZE && cost + 8 >= (long) (i + 1) * width) {
+                return -1;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Write the raw bits of float or double values in XOR encoding
+     */
+    private static void writeXor(OutputBuffer buf, long[] values, int len, int width) throws IOException {
+        int lenBits = xorLenBits(width);
+        buf.writeVarUint((xorBits(values, len, width, false) + 7) >>> 3);
+        BitWriter writer = new BitWriter(buf);
+        writer.writeBits(values[0], width);
+        int lead = -1, trail = 0;
+        for (int i = 1; i < len; i++) {
+            long xor = values[i] ^ values[i - 1];
+            if (xor == 0) {
+                writer.writeBit(false);
+                continue;
+            }
+            int lz = Math.min(Long.numberOfLeadingZeros(xor) - (64 - width), XOR_MAX_LEAD);
+            int tz = Long.numberOfTrailingZeros(xor);
+            if (lead >= 0 && lz >= lead && tz >= trail) {
+                writer.writeBits(0b01, 2); // reuse the previous window
+                writer.writeBits(xor >>> trail, width - lead - trail);
+            } else {
+                int meaningful = width - lz - tz;
+                writer.writeBits(0b11, 2);
+                writer.writeBits(lz, XOR_LEAD_BITS);
+                writer.writeBits(meaningful, lenBits); // full width overflows to 0
+                writer.writeBits(xor >>> tz, meaningful);
+                lead = lz;
+                trail = tz;
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Read XOR encoded values as float[] or double[]
+     */
+    private static Object readXor(InputBuffer buf, byte kind, int len) throws IOException {
+        if (kind != Const.TYPE_NARRAY_FLOAT && kind != Const.TYPE_NARRAY_DOUBLE) {
+            throw new UnexpectedReadException("invalid xor kind: " + kind);
+        }
+        int width = xorWidth(kind);
+        int lenBits = xorLenBits(width);
+        float[] floats = width == 32 ? new float[len] : null;
+        double[] doubles = width == 64 ? new double[len] : null;
+        BitReader reader = new BitReader(InputBuffer.valueOf(buf.readByteArray((int) buf.readVarUint())));
+        long prev = 0;
+        int lead = 0, trail = 0;
+        for (int i = 0; i < len; i++) {
+            if (i == 0) {
+                prev = reader.readBits(width);
+            } else if (reader.readBit()) {
+                if (reader.readBit()) {
+                    lead = (int) reader.readBits(XOR_LEAD_BITS);
+                    int meaningful = (int) reader.readBits(lenBits);
+                    trail = width - lead - (meaningful == 0 ? width : meaningful);
+                    if (trail < 0) {
+                        throw new UnexpectedReadException("invalid xor window: " + lead + ", " + meaningful);
+                    }
+                }
+                prev ^= reader.readBits(width - lead - trail) << trail;
+            }
+            if (floats != null) {
+                floats[i] = NumberUtils.bitsToFloat((int) prev);
+            } else {
+                doubles[i] = NumberUtils.bitsToDouble(prev);
+            }
+        }
+        return floats != null ? floats : doubles;
+    }
+
+    private static int xorWidth(byte kind) {
+        return kind == Const.TYPE_NARRAY_FLOAT ? 32 : 64;
+    }
+
+    private static int xorLenBits(int width) {
+        return width == 64 ? 6 : 5;
+    }
+
+    private static int readWidth(InputBuffer buf) throws IOException {
+        int width = buf.readByte();
+        if (width < 0 || width > 64) {
+            throw new UnexpectedReadException("invalid bit width: " + width);
+        }
+        return width;
+    }
+
+    /**
+     * The number of bits to hold the specified unsigned value
+     */
+    private static int bitWidth(long unsigned) {
+        return 64 - Long.numberOfLeadingZeros(unsigned);
+    }
+
+    private static long packedSize(int n, int width) {
+        return ((long) n * width + 7) >>> 3;
+    }
+
+    private static int varUintSize(long n) {
+        return n == 0 ? 1 : (63 - Long.numberOfLeadingZeros(n)) / 7 + 1;
+    }
+}
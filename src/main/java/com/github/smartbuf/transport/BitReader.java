@@ -0,0 +1,61 @@
+package com.github.smartbuf.transport;
+
+import java.io.IOException;
+
+/**
+ * BitReader reads bits written by {@link BitWriter} from {@link InputBuffer}.
+ * It consumes bytes only when necessary, so the buffer stops right after the last padded byte.
+ *
+ * @author sulin
+ * @since 2019-12-10 10:31:08
+ */
+final class BitReader {
+
+    private final InputBuffer buf;
+
+    private long acc;
+    private int  avail;
+
+    BitReader(InputBuffer buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Read n bits as an unsigned value, n should be in [0, 64]
+     *
+     * @param n The number of bits
+     * @return The value
+     * @throws IOException if any io exception happens
+     */
+    long readBits(int n) throws IOException {
+        if (n == 0) {
+            return 0;
+        }
+        long u = acc;
+        if (avail >= n) {
+            acc = n == 64 ? 0 : acc >>> n;
+            avail -= n;
+        } else {
+            int got = avail;
+            long b = 0;
+            while (got < n) {
+                b = buf.readByte() & 0xFFL;
+                u |= b << got;
+                got += 8;
+            }
+            avail = got - n;
+            acc = avail == 0 ? 0 : b >>> (8 - avail);
+        }
+        return n == 64 ? u : u & ((1L << n) - 1);
+    }
+
+    /**
+     * Read one bit
+     *
+     * @return The bit
+     * @throws IOException if any io exception happens
+     */
+    boolean readBit() throws IOException {
+        return this.readBits(1) != 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.smartbuf.transport;
+
+import java.io.IOException;
+
+/**
+ * BitWriter writes bits into {@link OutputBuffer} in LSB-first order, bytes are flushed as soon as they're full.
+ *
+ * @author sulin
+ * @since 2019-12-10 10:12:36
+ */
+final class BitWriter {
+
+    private final OutputBuffer buf;
+
+    private long acc;
+    private int  bits;
+
+    BitWriter(OutputBuffer buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Write the low n bits of the specified value, n should be in [0, 64]
+     *
+     * @param value The value to write
+     * @param n     The number of bits
+     * @throws IOException if any io exception happens
+     */
+    void writeBits(long value, int n) throws IOException {
+        if (n == 0) {
+            return;
+        }
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        acc |= value << bits;
+        bits += n;
+        if (bits >= 64) {
+            for (int i = 0; i < 8; i++) {
+                buf.writeByte((byte) acc);
+                acc >>>= 8;
+            }
+            bits -= 64;
+            acc = bits == 0 ? 0 : value >>> (n - bits);
+        }
+    }
+
+    /**
+     * Write one bit
+     *
+     * @param bit The bit to write
+     * @throws IOException if any io exception happens
+     */
+    void writeBit(boolean bit) throws IOException {
+        this.writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Flush the remaining bits, the last byte is padded by zero.
+     *
+     * @throws IOException if any io exception happens
+     */
+    void flush() throws IOException {
+        for (; bits > 0; bits -= 8) {
+            buf.writeByte((byte) acc);
+            acc >>>= 8;
+        }
+        bits = 0;
+        acc = 0;
+    }
+}
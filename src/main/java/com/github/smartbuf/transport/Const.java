@@ -8,7 +8,12 @@ package com.github.smartbuf.transport;
  */
 interface Const {
 
-    byte VER          = 0b0001_0000;
+    /**
+     * Version 2 adds inline values and packed native arrays, which can't be read by version 1's reader.
+     * Version 1's message is still readable, because it never contains them.
+     */
+    byte VER          = 0b0010_0000;
+    byte VER_1        = 0b0001_0000;
     byte VER_STREAM   = 0b0000_1000;
     byte VER_HAS_DATA = 0b0000_0100;
     byte VER_HAS_META = 0b0000_0010;
@@ -33,6 +38,31 @@ interface Const {
     byte CONST_FALSE      = 0x01;
     byte CONST_TRUE       = 0x02;
     byte CONST_ZERO_ARRAY = 0x03;
+    /**
+     * Prefix of sized container, followed by the container's byte length in 4-byte padded varuint.
+     * The length is 0 if the container is too big for it, then readers should walk the container to skip it.
+     * It uses the head of symbol 0, which is never allocated.
+     */
+    byte CONST_SIZED      = 0x04;
+    /**
+     * Prefix of sparse object, followed by the object's head, and its presence bitmap of 1 bit per field.
+     * Only present fields' values are written. It uses the head of zero-length array, which is never written.
+     */
+    byte CONST_SPARSE     = 0x06;
+    /**
+     * Prefix of inline value, followed by a varuint whose low 2 bits are the value's kind, see {@link #INLINE_VARINT}.
+     * It uses the head of zero-length packed array, which is never written.
+     */
+    byte CONST_INLINE     = 0x07;
+
+    /**
+     * Kinds of inline value, varint is zigzag-encoded into the rest bits of the kind's varuint,
+     * float, double and string follow it in raw layout.
+     */
+    byte INLINE_VARINT = 0;
+    byte INLINE_FLOAT  = 1;
+    byte INLINE_DOUBLE = 2;
+    byte INLINE_STRING = 3;
 
     byte TYPE_CONST  = -1;
     byte TYPE_VARINT = 0;
@@ -44,6 +74,10 @@ interface Const {
     byte TYPE_ARRAY  = 6;
     byte TYPE_NARRAY = 7;
 
+    /**
+     * Numeric array in packed layout, its original sub-type and encoding are in the next byte, see {@link ArrayPacker}
+     */
+    byte TYPE_NARRAY_PACKED = 0 << 3 | TYPE_NARRAY;
     byte TYPE_NARRAY_BOOL   = 1 << 3 | TYPE_NARRAY;
     byte TYPE_NARRAY_BYTE   = 2 << 3 | TYPE_NARRAY;
     byte TYPE_NARRAY_SHORT  = 3 << 3 | TYPE_NARRAY;
@@ -65,4 +99,20 @@ interface Const {
     byte TYPE_SLICE_OBJECT  = 0x0A;
     byte TYPE_SLICE_UNKNOWN = 0x0B;
 
+    /**
+     * Objects of the same struct in column-major layout, every field's values are written as a column,
+     * which is a presence flag or bitmap, and an array of its non-null values.
+     */
+    byte TYPE_SLICE_COLUMN = 0x0C;
+
+    /**
+     * Objects of the same struct, every object is written as its presence bitmap and present values.
+     */
+    byte TYPE_SLICE_SPARSE = 0x0D;
+
+    /**
+     * A zero-length slice's head, means the array continues in the next frame.
+     */
+    short SLICE_FRAME_BREAK = 0x0000;
+
 }
@@ -1,7 +1,5 @@
 package com.github.smartbuf.transport;
 
-import com.github.smartbuf.utils.ArrayUtils;
-
 /**
  * allocate [0, max] id
  *
@@ -19,12 +17,12 @@ public final class IDAllocator {
      */
     private int   reuseCount;
     /**
-     * The id was released.
+     * The id was released, it's a binary min-heap, so the lowest id is always at the top.
      */
     private int[] reuseIds;
 
     /**
-     * Acquire an unique and incremental id, if have released id, use it first.
+     * Acquire an unique and incremental id, if have released id, use the lowest one first.
      *
      * @return Unique and incremental id
      */
@@ -32,7 +30,25 @@ public final class IDAllocator {
         if (reuseCount == 0) {
             return nextId++;
         }
-        return this.reuseIds[--reuseCount];
+        int[] heap = this.reuseIds;
+        int result = heap[0];
+        int last = heap[--reuseCount];
+        // sift down the last id from the top
+        int pos = 0;
+        int half = reuseCount >>> 1;
+        while (pos < half) {
+            int child = (pos << 1) + 1;
+            if (child + 1 < reuseCount && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = last;
+        return result;
     }
 
     /**
@@ -51,10 +67,18 @@ public final class IDAllocator {
             System.arraycopy(reuseIds, 0, tmp, 0, reuseIds.length);
             this.reuseIds = tmp;
         }
-        this.reuseIds[this.reuseCount] = id;
-        ArrayUtils.descFastSort(this.reuseIds, 0, this.reuseCount);
-
-        this.reuseCount++;
+        // sift up the new id from the bottom
+        int[] heap = this.reuseIds;
+        int pos = reuseCount++;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heap[parent] <= id) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = id;
     }
 
 }
@@ -4,14 +4,27 @@ import com.github.smartbuf.exception.InvalidVersionException;
 import com.github.smartbuf.exception.MismatchModeException;
 import com.github.smartbuf.exception.UnexpectedReadException;
 import com.github.smartbuf.exception.UnexpectedSequenceException;
+import com.github.smartbuf.Type;
+import com.github.smartbuf.converter.BeanInfo;
+import com.github.smartbuf.converter.ConverterMethod;
+import com.github.smartbuf.converter.ConverterPipeline;
+import com.github.smartbuf.converter.RealConverterMethod;
+import com.github.smartbuf.converter.codec.CollectionCodec;
 import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.reflect.BeanDecoder;
+import com.github.smartbuf.reflect.BeanDecoderBuilder;
+import com.github.smartbuf.reflect.XField;
+import com.github.smartbuf.reflect.XType;
+import com.github.smartbuf.utils.CodecUtils;
+import com.github.smartbuf.utils.NumberUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Input accepts and maintains context info that generated by {@link Output},
@@ -22,6 +35,11 @@ import java.util.Map;
  */
 public final class Input {
 
+    private static final Map<XType<?>, TypedBean> TYPED_BEANS = new ConcurrentHashMap<>();
+    private static final TypedBean                NOT_BEAN    = new TypedBean(null, null);
+
+    private static volatile int typedGeneration; // the codecs' generation which TYPED_BEANS was built with
+
     private long sequence;
 
     private final boolean enableStreamMode;
@@ -29,6 +47,11 @@ public final class Input {
     private final InputDataPool dataPool = new InputDataPool();
     private final InputMetaPool metaPool = new InputMetaPool();
 
+    private InputBuffer.InputPacketReader     packetReader;
+    private InputBuffer.InputByteBufferReader byteBufferReader;
+    private InputBuffer.InputStreamReader     streamReader;
+    private InputParser                       parser;
+
     /**
      * Initialize input
      *
@@ -46,8 +69,10 @@ public final class Input {
      * @throws IOException If any io-error happens
      */
     public Object read(InputStream inputStream) throws IOException {
-        InputBuffer buffer = InputBuffer.valueOf(inputStream);
-        return readBuffer(buffer);
+        InputBuffer buffer = this.toBuffer(inputStream);
+        Object result = readBuffer(buffer);
+        buffer.finish();
+        return result;
     }
 
     /**
@@ -58,14 +83,215 @@ public final class Input {
      * @throws IOException If any io-error happens
      */
     public Object read(byte[] data) throws IOException {
-        InputBuffer buffer = InputBuffer.valueOf(data);
-        return readBuffer(buffer);
+        return readBuffer(this.toBuffer(data));
+    }
+
+    /**
+     * Read the next Object from the specified {@link ByteBuffer}, it could be heap, direct or mapped buffer.
+     * The buffer's position will be moved to the end of this message.
+     *
+     * @param buf The buffer to read
+     * @return The next object
+     * @throws IOException If any io-error happens
+     */
+    public Object read(ByteBuffer buf) throws IOException {
+        return readBuffer(this.toBuffer(buf));
+    }
+
+    /**
+     * Read an object from the specified InputStream, and decode it into the specified type directly.
+     *
+     * @param inputStream The input stream to read bytes
+     * @param type        The target type
+     * @return The next object
+     * @throws IOException If any io-error happens
+     */
+    public Object read(InputStream inputStream, XType<?> type) throws IOException {
+        InputBuffer buffer = this.toBuffer(inputStream);
+        this.readHead(buffer);
+        Object result = this.readTypedData(buffer, type);
+        buffer.finish();
+        return result;
+    }
+
+    /**
+     * Read the next Object from the underlying buffer, and decode it into the specified type directly.
+     * POJOs, collections and arrays would be built during parsing, without generic intermediate objects.
+     *
+     * @param data The data to read
+     * @param type The target type
+     * @return The next object
+     * @throws IOException If any io-error happens
+     */
+    public Object read(byte[] data, XType<?> type) throws IOException {
+        InputBuffer buffer = this.toBuffer(data);
+        this.readHead(buffer);
+        return this.readTypedData(buffer, type);
+    }
+
+    /**
+     * Read the next Object from the underlying buffer, and decode only the selected fields into the specified type.
+     * Unselected values are skipped without building strings, arrays or nested objects.
+     *
+     * @param data       The data to read
+     * @param type       The target type
+     * @param projection The fields to decode
+     * @return The next object
+     * @throws IOException If any io-error happens
+     */
+    public Object read(byte[] data, XType<?> type, Projection projection) throws IOException {
+        InputBuffer buffer = this.toBuffer(data);
+        this.readHead(buffer);
+        return this.readTypedData(buffer, buffer.readVarUint(), type, projection);
+    }
+
+    /**
+     * Read the next Object from the specified {@link ByteBuffer}, and decode it into the specified type directly.
+     *
+     * @param buf  The buffer to read
+     * @param type The target type
+     * @return The next object
+     * @throws IOException If any io-error happens
+     */
+    public Object read(ByteBuffer buf, XType<?> type) throws IOException {
+        InputBuffer buffer = this.toBuffer(buf);
+        this.readHead(buffer);
+        return this.readTypedData(buffer, type);
+    }
+
+    /**
+     * Parse the next message of the specified data token by token, see {@link InputParser}.
+     *
+     * @param data The data to parse
+     * @return The reused parser, which was positioned before the first token
+     * @throws IOException If any io-error happens
+     */
+    public InputParser parse(byte[] data) throws IOException {
+        return this.toParser(this.toBuffer(data));
+    }
+
+    /**
+     * Parse the next message of the specified {@link ByteBuffer} token by token, see {@link InputParser}.
+     *
+     * @param buf The buffer to parse, its position will be moved while parsing
+     * @return The reused parser, which was positioned before the first token
+     * @throws IOException If any io-error happens
+     */
+    public InputParser parse(ByteBuffer buf) throws IOException {
+        return this.toParser(this.toBuffer(buf));
+    }
+
+    /**
+     * Parse the next message of the specified {@link InputStream} token by token, see {@link InputParser}.
+     * The stream will be positioned at the end of this message after the parser reached its end.
+     *
+     * @param inputStream The stream to parse
+     * @return The reused parser, which was positioned before the first token
+     * @throws IOException If any io-error happens
+     */
+    public InputParser parse(InputStream inputStream) throws IOException {
+        return this.toParser(this.toBuffer(inputStream));
+    }
+
+    /**
+     * Read the next message from the specified data lazily, if its root is an object, return a {@link LazyObject}
+     * view which decodes fields only when they are accessed, otherwise return the decoded value directly.
+     * <p>
+     * The view refers the data and this Input's pools, so it's only valid until the next reading of this Input.
+     *
+     * @param data The data to read
+     * @return LazyObject or the decoded value
+     * @throws IOException If any io-error happens
+     */
+    public Object readLazy(byte[] data) throws IOException {
+        InputBuffer.InputPacketReader buffer = new InputBuffer.InputPacketReader(data); // the view holds it
+        this.readHead(buffer);
+        long head = buffer.readVarUint();
+        if (head == Const.CONST_SIZED) {
+            buffer.readVarUint();
+            head = buffer.readVarUint();
+        }
+        if (head == Const.CONST_SPARSE) {
+            InputMetaPool.Struct struct = this.readSparseStruct(buffer);
+            byte[] bitmap = this.readBitmap(buffer, struct);
+            return new LazyObject(this, metaPool, buffer, struct, bitmap, buffer.position());
+        }
+        if (head > Const.CONST_ZERO_ARRAY && (head & 0b0000_0111) == Const.TYPE_OBJECT) {
+            InputMetaPool.Struct struct = metaPool.findStructByID((int) (head >>> 3));
+            return new LazyObject(this, metaPool, buffer, struct, null, buffer.position());
+        }
+        return this.readData(buffer, head);
+    }
+
+    /**
+     * Check whether this Input is in stream-mode or not
+     *
+     * @return true if it's stream-mode
+     */
+    public boolean isStreamMode() {
+        return enableStreamMode;
+    }
+
+    /**
+     * Read the message's head from the specified buffer, and reset the reused parser
+     */
+    private InputParser toParser(InputBuffer buffer) throws IOException {
+        this.readHead(buffer);
+        if (parser == null) {
+            parser = new InputParser(this, dataPool, metaPool);
+        }
+        parser.reset(buffer);
+        return parser;
+    }
+
+    /**
+     * Reuse the byte[] reader of this Input
+     */
+    private InputBuffer toBuffer(byte[] data) {
+        if (packetReader == null) {
+            packetReader = new InputBuffer.InputPacketReader(data);
+        } else {
+            packetReader.reset(data);
+        }
+        return packetReader;
+    }
+
+    /**
+     * Reuse the {@link InputStream} reader of this Input
+     */
+    private InputBuffer toBuffer(InputStream is) {
+        if (streamReader == null) {
+            streamReader = new InputBuffer.InputStreamReader(is);
+        } else {
+            streamReader.reset(is);
+        }
+        return streamReader;
+    }
+
+    /**
+     * Reuse the {@link ByteBuffer} reader of this Input
+     */
+    private InputBuffer toBuffer(ByteBuffer buf) {
+        if (byteBufferReader == null) {
+            byteBufferReader = new InputBuffer.InputByteBufferReader(buf);
+        } else {
+            byteBufferReader.reset(buf);
+        }
+        return byteBufferReader;
     }
 
     /**
      * Read an object from the specified InputBuffer
      */
     Object readBuffer(InputBuffer buffer) throws IOException {
+        this.readHead(buffer);
+        return this.readData(buffer);
+    }
+
+    /**
+     * Read the message's head and its meta, data pool.
+     */
+    void readHead(InputBuffer buffer) throws IOException {
         dataPool.reset();
         metaPool.reset();
 
@@ -75,8 +301,9 @@ public final class Input {
         boolean hasData = (head & Const.VER_HAS_DATA) != 0;
         boolean hasSeq = (head & Const.VER_HAS_SEQ) != 0;
         // valid schema
-        if ((head & 0b1111_0000) != Const.VER) {
-            throw new InvalidVersionException(Const.VER, head & 0b1111_0000);
+        int ver = head & 0b1111_0000;
+        if (ver != Const.VER && ver != Const.VER_1) {
+            throw new InvalidVersionException(Const.VER, ver);
         }
         if (stream != this.enableStreamMode) {
             throw new MismatchModeException(stream);
@@ -98,15 +325,19 @@ public final class Input {
         if (hasData) {
             dataPool.read(buffer);
         }
-        // load data
-        return readData(buffer);
     }
 
     /**
      * Read the next node, it could be normal data, array, or struct.
      */
     Object readData(InputBuffer buffer) throws IOException {
-        long head = buffer.readVarUint();
+        return this.readData(buffer, buffer.readVarUint());
+    }
+
+    /**
+     * Read the next node by the specified head
+     */
+    Object readData(InputBuffer buffer, long head) throws IOException {
         switch ((int) head) {
             case Const.CONST_NULL:
                 return null;
@@ -116,6 +347,14 @@ public final class Input {
                 return false;
             case Const.CONST_ZERO_ARRAY:
                 return new Object[0];
+            case Const.CONST_SIZED:
+                buffer.readVarUint(); // the byte length is useless for full reading
+                return this.readData(buffer);
+            case Const.CONST_SPARSE:
+                InputMetaPool.Struct struct = this.readSparseStruct(buffer);
+                return this.readObject(buffer, struct, this.readBitmap(buffer, struct), Projection.ALL);
+            case Const.CONST_INLINE:
+                return this.readInline(buffer);
         }
         byte flag = (byte) (head & 0b0000_0111);
         switch (flag) {
@@ -135,7 +374,68 @@ public final class Input {
                 return this.readArray(buffer, head >>> 3);
             default:
                 InputMetaPool.Struct struct = metaPool.findStructByID((int) (head >>> 3));
-                return this.readObject(buffer, struct);
+                return this.readObject(buffer, struct, null, Projection.ALL);
+        }
+    }
+
+    /**
+     * Read the next node by the specified head, only the selected fields of objects will be decoded.
+     */
+    Object readData(InputBuffer buffer, long head, Projection proj) throws IOException {
+        if (proj == Projection.ALL) {
+            return this.readData(buffer, head);
+        }
+        if (head == Const.CONST_SIZED) {
+            buffer.readVarUint();
+            head = buffer.readVarUint();
+        }
+        if (head == Const.CONST_SPARSE) {
+            InputMetaPool.Struct struct = this.readSparseStruct(buffer);
+            return this.readObject(buffer, struct, this.readBitmap(buffer, struct), proj);
+        }
+        if (head > Const.CONST_ZERO_ARRAY) {
+            switch ((byte) (head & 0b0000_0111)) {
+                case Const.TYPE_ARRAY:
+                    return this.readArray(buffer, head >>> 3, proj);
+                case Const.TYPE_OBJECT:
+                    return this.readObject(buffer, metaPool.findStructByID((int) (head >>> 3)), null, proj);
+            }
+        }
+        return this.readData(buffer, head);
+    }
+
+    /**
+     * Read an inline value after its prefix, it could be Long, Float, Double or String
+     */
+    Object readInline(InputBuffer buffer) throws IOException {
+        long tag = buffer.readVarUint();
+        switch ((byte) (tag & 0b0000_0011)) {
+            case Const.INLINE_VARINT:
+                return NumberUtils.uintToInt(tag >>> 2);
+            case Const.INLINE_FLOAT:
+                return buffer.readFloat();
+            case Const.INLINE_DOUBLE:
+                return buffer.readDouble();
+            default:
+                return buffer.readString();
+        }
+    }
+
+    /**
+     * Skip an inline value after its prefix
+     */
+    void skipInline(InputBuffer buffer) throws IOException {
+        long tag = buffer.readVarUint();
+        switch ((byte) (tag & 0b0000_0011)) {
+            case Const.INLINE_FLOAT:
+                buffer.skip(4);
+                break;
+            case Const.INLINE_DOUBLE:
+                buffer.skip(8);
+                break;
+            case Const.INLINE_STRING:
+                buffer.skip((int) buffer.readVarUint());
+                break;
         }
     }
 
@@ -146,6 +446,8 @@ public final class Input {
         byte type = (byte) (head & 0b0011_1111);
         int size = (int) (head >>> 6);
         switch (type) {
+            case Const.TYPE_NARRAY_PACKED:
+                return ArrayPacker.read(buffer, size);
             case Const.TYPE_NARRAY_BOOL:
                 return buffer.readBooleanArray(size);
             case Const.TYPE_NARRAY_BYTE:
@@ -169,127 +471,966 @@ public final class Input {
      * Read an array by the specified head info
      */
     Object readArray(InputBuffer buffer, long head) throws IOException {
+        return this.readArray(buffer, head, Projection.ALL);
+    }
+
+    /**
+     * Read an array by the specified head info, only the selected fields of its objects will be decoded.
+     */
+    Object readArray(InputBuffer buffer, long head, Projection proj) throws IOException {
         List<Object[]> slices = new ArrayList<>(1);
         int totalSize = 0;
         while (true) {
             byte type = (byte) ((head >>> 1) & 0x0F);
             int size = (int) (head >>> 5);
             totalSize += size;
-            Object[] slice = new Object[size];
+            Object[] slice = this.readSlice(buffer, type, size, proj);
+            slices.add(slice);
+            if ((head & 1) == 0) {
+                break;
+            }
+            head = this.readSliceHead(buffer);
+        }
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        Object[] result = new Object[totalSize];
+        int off = 0;
+        for (Object[] slice : slices) {
+            for (Object o : slice) {
+                result[off++] = o;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the next slice's head, the array may continue in the next frame.
+     */
+    long readSliceHead(InputBuffer buffer) throws IOException {
+        long head = buffer.readShort() & 0xFFFF;
+        if (head == Const.SLICE_FRAME_BREAK) {
+            this.readHead(buffer);
+            head = buffer.readShort() & 0xFFFF;
+        }
+        return head;
+    }
+
+    /**
+     * Read the specified slice of array
+     */
+    Object[] readSlice(InputBuffer buffer, byte type, int size, Projection proj) throws IOException {
+        Object[] slice = new Object[size];
+        switch (type) {
+            case Const.TYPE_SLICE_NULL:
+                break;
+            case Const.TYPE_SLICE_BOOL:
+                for (int i = 0; i < size; i++) {
+                    byte b = buffer.readByte();
+                    switch (b) {
+                        case Const.CONST_TRUE:
+                            slice[i] = true;
+                            break;
+                        case Const.CONST_FALSE:
+                            slice[i] = false;
+                            break;
+                        default:
+                            throw new UnexpectedReadException("invalid bool[" + b + "] at offset " + i);
+                    }
+                }
+                break;
+            case Const.TYPE_SLICE_BYTE:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = buffer.readByte();
+                }
+                break;
+            case Const.TYPE_SLICE_SHORT:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = (short) buffer.readVarInt();
+                }
+                break;
+            case Const.TYPE_SLICE_INT:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = (int) buffer.readVarInt();
+                }
+                break;
+            case Const.TYPE_SLICE_LONG:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = buffer.readVarInt();
+                }
+                break;
+            case Const.TYPE_SLICE_FLOAT:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = buffer.readFloat();
+                }
+                break;
+            case Const.TYPE_SLICE_DOUBLE:
+                for (int i = 0; i < size; i++) {
+                    slice[i] = buffer.readDouble();
+                }
+                break;
+            case Const.TYPE_SLICE_SYMBOL:
+                slice = new String[size];
+                for (int i = 0; i < size; i++) {
+                    int dataId = (int) buffer.readVarUint();
+                    slice[i] = enableStreamMode ? dataPool.getSymbol(dataId) : dataPool.getString(dataId);
+                }
+                break;
+            case Const.TYPE_SLICE_STRING:
+                slice = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    slice[i] = dataPool.getString((int) buffer.readVarUint());
+                }
+                break;
+            case Const.TYPE_SLICE_OBJECT:
+                slice = new Object[size];
+                int structId = (int) buffer.readVarUint();
+                InputMetaPool.Struct struct = metaPool.findStructByID(structId);
+                for (int i = 0; i < size; i++) {
+                    slice[i] = this.readObject(buffer, struct, null, proj);
+                }
+                break;
+            case Const.TYPE_SLICE_SPARSE:
+                slice = new Object[size];
+                struct = metaPool.findStructByID((int) buffer.readVarUint());
+                for (int i = 0; i < size; i++) {
+                    slice[i] = this.readObject(buffer, struct, this.readBitmap(buffer, struct), proj);
+                }
+                break;
+            case Const.TYPE_SLICE_UNKNOWN:
+                slice = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    slice[i] = this.readData(buffer, buffer.readVarUint(), proj);
+                }
+                break;
+            case Const.TYPE_SLICE_COLUMN:
+                structId = (int) buffer.readVarUint();
+                slice = this.readColumns(buffer, metaPool.findStructByID(structId), size, proj);
+                break;
+            default:
+                throw new UnexpectedReadException("run into invalid slice type: " + type);
+        }
+        return slice;
+    }
+
+    /**
+     * Skip the next data without decoding it, pooled values have no body, sized containers are skipped directly.
+     */
+    void skipData(InputBuffer buffer) throws IOException {
+        this.skipData(buffer, buffer.readVarUint());
+    }
+
+    /**
+     * Skip the next data by the specified head
+     */
+    void skipData(InputBuffer buffer, long head) throws IOException {
+        if (head <= Const.CONST_ZERO_ARRAY) {
+            return;
+        }
+        if (head == Const.CONST_SIZED) {
+            int len = (int) buffer.readVarUint();
+            if (len > 0) {
+                buffer.skip(len);
+            } else {
+                this.skipData(buffer, buffer.readVarUint()); // too big to be sized
+            }
+            return;
+        }
+        if (head == Const.CONST_SPARSE) {
+            InputMetaPool.Struct struct = this.readSparseStruct(buffer);
+            this.skipObject(buffer, struct, this.readBitmap(buffer, struct));
+            return;
+        }
+        if (head == Const.CONST_INLINE) {
+            this.skipInline(buffer);
+            return;
+        }
+        switch ((byte) (head & 0b0000_0111)) {
+            case Const.TYPE_NARRAY:
+                this.skipNativeArray(buffer, head);
+                break;
+            case Const.TYPE_ARRAY:
+                this.skipArray(buffer, head >>> 3);
+                break;
+            case Const.TYPE_OBJECT:
+                this.skipObject(buffer, metaPool.findStructByID((int) (head >>> 3)), null);
+                break;
+        }
+    }
+
+    /**
+     * Skip an native array by the specified head
+     */
+    void skipNativeArray(InputBuffer buffer, long head) throws IOException {
+        int size = (int) (head >>> 6);
+        switch ((byte) (head & 0b0011_1111)) {
+            case Const.TYPE_NARRAY_PACKED:
+                ArrayPacker.skip(buffer, size);
+                break;
+            case Const.TYPE_NARRAY_BOOL:
+                buffer.skip((size + 7) / 8);
+                break;
+            case Const.TYPE_NARRAY_BYTE:
+                buffer.skip(size);
+                break;
+            case Const.TYPE_NARRAY_SHORT:
+                buffer.skip(size * 2);
+                break;
+            case Const.TYPE_NARRAY_FLOAT:
+                buffer.skip(size * 4);
+                break;
+            case Const.TYPE_NARRAY_DOUBLE:
+                buffer.skip(size * 8);
+                break;
+            default:
+                for (int i = 0; i < size; i++) {
+                    buffer.readVarUint();
+                }
+        }
+    }
+
+    /**
+     * Skip an array by the specified head, slice by slice
+     */
+    void skipArray(InputBuffer buffer, long head) throws IOException {
+        while (true) {
+            byte type = (byte) ((head >>> 1) & 0x0F);
+            int size = (int) (head >>> 5);
             switch (type) {
                 case Const.TYPE_SLICE_NULL:
                     break;
                 case Const.TYPE_SLICE_BOOL:
-                    for (int i = 0; i < size; i++) {
-                        byte b = buffer.readByte();
-                        switch (b) {
-                            case Const.CONST_TRUE:
-                                slice[i] = true;
-                                break;
-                            case Const.CONST_FALSE:
-                                slice[i] = false;
-                                break;
-                            default:
-                                throw new UnexpectedReadException("invalid bool[" + b + "] at offset " + i);
-                        }
-                    }
-                    break;
                 case Const.TYPE_SLICE_BYTE:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = buffer.readByte();
-                    }
-                    break;
-                case Const.TYPE_SLICE_SHORT:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = (short) buffer.readVarInt();
-                    }
-                    break;
-                case Const.TYPE_SLICE_INT:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = (int) buffer.readVarInt();
-                    }
-                    break;
-                case Const.TYPE_SLICE_LONG:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = buffer.readVarInt();
-                    }
+                    buffer.skip(size);
                     break;
                 case Const.TYPE_SLICE_FLOAT:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = buffer.readFloat();
-                    }
+                    buffer.skip(size * 4);
                     break;
                 case Const.TYPE_SLICE_DOUBLE:
-                    for (int i = 0; i < size; i++) {
-                        slice[i] = buffer.readDouble();
-                    }
+                    buffer.skip(size * 8);
                     break;
+                case Const.TYPE_SLICE_SHORT:
+                case Const.TYPE_SLICE_INT:
+                case Const.TYPE_SLICE_LONG:
+                case Const.TYPE_SLICE_STRING:
                 case Const.TYPE_SLICE_SYMBOL:
-                    slice = new String[size];
                     for (int i = 0; i < size; i++) {
-                        int dataId = (int) buffer.readVarUint();
-                        slice[i] = enableStreamMode ? dataPool.getSymbol(dataId) : dataPool.getString(dataId);
+                        buffer.readVarUint();
                     }
                     break;
-                case Const.TYPE_SLICE_STRING:
-                    slice = new Object[size];
+                case Const.TYPE_SLICE_OBJECT:
+                    InputMetaPool.Struct struct = metaPool.findStructByID((int) buffer.readVarUint());
                     for (int i = 0; i < size; i++) {
-                        slice[i] = dataPool.getString((int) buffer.readVarUint());
+                        this.skipObject(buffer, struct, null);
                     }
                     break;
-                case Const.TYPE_SLICE_OBJECT:
-                    slice = new Object[size];
-                    int structId = (int) buffer.readVarUint();
-                    InputMetaPool.Struct struct = metaPool.findStructByID(structId);
+                case Const.TYPE_SLICE_SPARSE:
+                    struct = metaPool.findStructByID((int) buffer.readVarUint());
                     for (int i = 0; i < size; i++) {
-                        slice[i] = this.readObject(buffer, struct);
+                        this.skipObject(buffer, struct, this.readBitmap(buffer, struct));
                     }
                     break;
                 case Const.TYPE_SLICE_UNKNOWN:
-                    slice = new Object[size];
                     for (int i = 0; i < size; i++) {
-                        slice[i] = readData(buffer);
+                        this.skipData(buffer);
+                    }
+                    break;
+                case Const.TYPE_SLICE_COLUMN:
+                    struct = metaPool.findStructByID((int) buffer.readVarUint());
+                    for (int i = 0, len = struct.fieldNames.length; i < len; i++) {
+                        this.skipColumn(buffer);
                     }
                     break;
                 default:
                     throw new UnexpectedReadException("run into invalid slice type: " + type);
             }
-            slices.add(slice);
             if ((head & 1) == 0) {
                 break;
             }
-            head = buffer.readShort() & 0xFFFF;
+            head = this.readSliceHead(buffer);
         }
-        if (slices.size() == 1) {
-            return slices.get(0);
+    }
+
+    /**
+     * Read a columnar slice, and rebuild its rows as objects, only the selected columns will be decoded.
+     */
+    Object[] readColumns(InputBuffer buffer, InputMetaPool.Struct struct, int size, Projection proj) throws IOException {
+        String[] names = struct.fieldNames;
+        Projection[] projections = proj == Projection.ALL ? null : this.project(struct, proj);
+        String[] rowNames = projections == null ? names : struct.projectedNames;
+        Object[][] columns = new Object[rowNames.length][];
+        for (int i = 0, off = 0; i < names.length; i++) {
+            if (projections == null) {
+                columns[off++] = this.readColumn(buffer, size, Projection.ALL);
+            } else if (projections[i] == null) {
+                this.skipColumn(buffer);
+            } else {
+                columns[off++] = this.readColumn(buffer, size, projections[i]);
+            }
         }
-        Object[] result = new Object[totalSize];
-        int off = 0;
-        for (Object[] slice : slices) {
-            for (Object o : slice) {
-                result[off++] = o;
+        Object[] rows = new Object[size];
+        for (int row = 0; row < size; row++) {
+            if (struct.ordered) {
+                Object[] values = new Object[rowNames.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = columns[i][row];
+                }
+                rows[row] = new ObjectNode(true, rowNames, values);
+            } else {
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < rowNames.length; i++) {
+                    map.put(rowNames[i], columns[i][row]);
+                }
+                rows[row] = map;
             }
         }
-        return result;
+        return rows;
+    }
+
+    /**
+     * Read a column of columnar slice, absent values are null.
+     */
+    private Object[] readColumn(InputBuffer buffer, int size, Projection proj) throws IOException {
+        Object[] column = new Object[size];
+        long head = buffer.readVarUint();
+        if (head == Const.CONST_FALSE) {
+            return column;
+        }
+        boolean[] presence = head == Const.CONST_TRUE ? null : this.readPresence(buffer, head, size);
+        Object values = this.readData(buffer, buffer.readVarUint(), proj);
+        for (int i = 0, off = 0; i < size; i++) {
+            if (presence == null || presence[i]) {
+                column[i] = columnItem(values, off++);
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Skip a column of columnar slice
+     */
+    void skipColumn(InputBuffer buffer) throws IOException {
+        long head = buffer.readVarUint();
+        if (head == Const.CONST_FALSE) {
+            return;
+        }
+        if (head != Const.CONST_TRUE) {
+            this.skipNativeArray(buffer, head);
+        }
+        this.skipData(buffer);
+    }
+
+    /**
+     * Read the presence bitmap of column, it should be a bool[] of the slice's size
+     */
+    private boolean[] readPresence(InputBuffer buffer, long head, int size) throws IOException {
+        if ((head & 0b0011_1111) != Const.TYPE_NARRAY_BOOL || (head >>> 6) != size) {
+            throw new UnexpectedReadException("invalid column presence: " + head);
+        }
+        return buffer.readBooleanArray(size);
     }
 
     /**
-     * Read an object by the specified fields
+     * Read the struct of sparse object, its head should be an object
      */
-    Object readObject(InputBuffer buffer, InputMetaPool.Struct struct) throws IOException {
+    InputMetaPool.Struct readSparseStruct(InputBuffer buffer) throws IOException {
+        long head = buffer.readVarUint();
+        if (head <= Const.CONST_ZERO_ARRAY || (head & 0b0000_0111) != Const.TYPE_OBJECT) {
+            throw new UnexpectedReadException("invalid sparse object: " + head);
+        }
+        return metaPool.findStructByID((int) (head >>> 3));
+    }
+
+    /**
+     * Read the presence bitmap of sparse object, 1 bit per field
+     */
+    byte[] readBitmap(InputBuffer buffer, InputMetaPool.Struct struct) throws IOException {
+        return buffer.readByteArray((struct.fieldNames.length + 7) >>> 3);
+    }
+
+    /**
+     * Check whether the specified field is present in the specified bitmap, null bitmap means all present
+     */
+    static boolean isPresent(byte[] bitmap, int index) {
+        return bitmap == null || (bitmap[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * Skip all fields of an object by the specified struct, absent fields of sparse object have no data
+     */
+    void skipObject(InputBuffer buffer, InputMetaPool.Struct struct, byte[] bitmap) throws IOException {
+        for (int i = 0, len = struct.fieldNames.length; i < len; i++) {
+            if (isPresent(bitmap, i)) {
+                this.skipData(buffer);
+            }
+        }
+    }
+
+    /**
+     * Read an object by the specified fields, only the selected fields will be decoded.
+     * The bitmap is sparse object's presence of fields, absent fields are null.
+     */
+    Object readObject(InputBuffer buffer, InputMetaPool.Struct struct, byte[] bitmap, Projection proj) throws IOException {
+        if (proj != Projection.ALL) {
+            Projection[] projections = this.project(struct, proj);
+            String[] names = struct.fieldNames;
+            Object[] values = new Object[struct.projectedNames.length];
+            int off = 0;
+            for (int i = 0; i < names.length; i++) {
+                if (!isPresent(bitmap, i)) {
+                    if (projections[i] != null) {
+                        off++;
+                    }
+                } else if (projections[i] == null) {
+                    this.skipData(buffer);
+                } else {
+                    values[off++] = this.readData(buffer, buffer.readVarUint(), projections[i]);
+                }
+            }
+            if (struct.ordered) {
+                return new ObjectNode(true, struct.projectedNames, values);
+            }
+            Map<String, Object> map = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                map.put(struct.projectedNames[i], values[i]);
+            }
+            return map;
+        }
         if (struct.ordered) {
             int len = struct.fieldNames.length;
             Object[] values = new Object[len];
             for (int i = 0; i < len; i++) {
-                values[i] = readData(buffer);
+                values[i] = isPresent(bitmap, i) ? readData(buffer) : null;
             }
             return new ObjectNode(true, struct.fieldNames, values);
         } else {
             Map<String, Object> map = new HashMap<>();
-            for (String field : struct.fieldNames) {
-                map.put(field, readData(buffer));
+            String[] names = struct.fieldNames;
+            for (int i = 0; i < names.length; i++) {
+                map.put(names[i], isPresent(bitmap, i) ? readData(buffer) : null);
             }
             return map;
         }
     }
+
+    /**
+     * Read the next data, and decode it into the specified type directly.
+     */
+    Object readTypedData(InputBuffer buffer, XType<?> type) throws IOException {
+        return this.readTypedData(buffer, buffer.readVarUint(), type, Projection.ALL);
+    }
+
+    /**
+     * Read the next data by the specified head, and decode it into the specified type.
+     * Unsupported data or type would be read as generic object, and convert by {@link CodecUtils}.
+     */
+    Object readTypedData(InputBuffer buffer, long head, XType<?> type, Projection proj) throws IOException {
+        if (head == Const.CONST_SIZED) {
+            buffer.readVarUint();
+            head = buffer.readVarUint();
+        }
+        if (head == Const.CONST_SPARSE) {
+            InputMetaPool.Struct struct = this.readSparseStruct(buffer);
+            byte[] bitmap = this.readBitmap(buffer, struct);
+            TypedBean bean = TypedBean.valueOf(type);
+            if (bean != NOT_BEAN) {
+                return this.readTypedObject(buffer, struct, bitmap, bean, proj);
+            }
+            return toType(this.readObject(buffer, struct, bitmap, proj), type);
+        }
+        if (head > Const.CONST_ZERO_ARRAY) {
+            switch ((byte) (head & 0b0000_0111)) {
+                case Const.TYPE_OBJECT:
+                    TypedBean bean = TypedBean.valueOf(type);
+                    if (bean != NOT_BEAN) {
+                        InputMetaPool.Struct struct = metaPool.findStructByID((int) (head >>> 3));
+                        return this.readTypedObject(buffer, struct, null, bean, proj);
+                    }
+                    break;
+                case Const.TYPE_ARRAY:
+                    if (isTypedArray(type)) {
+                        return this.readTypedArray(buffer, head >>> 3, type, proj);
+                    }
+                    break;
+            }
+        }
+        return toType(this.readData(buffer, head, proj), type);
+    }
+
+    /**
+     * Read an array by the specified head info, and decode it into the specified collection or array type.
+     */
+    @SuppressWarnings("unchecked")
+    Object readTypedArray(InputBuffer buffer, long head, XType<?> type, Projection proj) throws IOException {
+        Class<?> rawCls = type.getRawType();
+        XType<?> itemType;
+        Collection<Object> result;
+        if (rawCls.isArray()) {
+            itemType = type.getComponentType();
+            if (itemType == null) {
+                itemType = CodecUtils.toXType(rawCls.getComponentType());
+            }
+            result = new ArrayList<>((int) (head >>> 5));
+        } else {
+            itemType = type.getParameterizedType();
+            result = CollectionCodec.create((Class<Collection<Object>>) rawCls, itemType.getRawType(), (int) (head >>> 5));
+        }
+        this.readTypedItems(buffer, head, itemType, result, proj);
+        if (rawCls.isArray()) {
+            return result.toArray((Object[]) Array.newInstance(itemType.getRawType(), result.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Read all items of an array by the specified head info, and decode them into the specified item type.
+     */
+    void readTypedItems(InputBuffer buffer, long head, XType<?> itemType, Collection<Object> result, Projection proj) throws IOException {
+        TypedBean itemBean = TypedBean.valueOf(itemType);
+        while (true) {
+            byte sliceType = (byte) ((head >>> 1) & 0x0F);
+            int size = (int) (head >>> 5);
+            if (sliceType == Const.TYPE_SLICE_OBJECT && itemBean != NOT_BEAN) {
+                InputMetaPool.Struct struct = metaPool.findStructByID((int) buffer.readVarUint());
+                for (int i = 0; i < size; i++) {
+                    result.add(this.readTypedObject(buffer, struct, null, itemBean, proj));
+                }
+            } else if (sliceType == Const.TYPE_SLICE_SPARSE && itemBean != NOT_BEAN) {
+                InputMetaPool.Struct struct = metaPool.findStructByID((int) buffer.readVarUint());
+                for (int i = 0; i < size; i++) {
+                    result.add(this.readTypedObject(buffer, struct, this.readBitmap(buffer, struct), itemBean, proj));
+                }
+            } else if (sliceType == Const.TYPE_SLICE_COLUMN && itemBean != NOT_BEAN) {
+                InputMetaPool.Struct struct = metaPool.findStructByID((int) buffer.readVarUint());
+                for (Object item : this.readTypedColumns(buffer, struct, itemBean, size, proj)) {
+                    result.add(item);
+                }
+            } else if (sliceType == Const.TYPE_SLICE_UNKNOWN) {
+                for (int i = 0; i < size; i++) {
+                    result.add(this.readTypedData(buffer, buffer.readVarUint(), itemType, proj));
+                }
+            } else {
+                for (Object item : this.readSlice(buffer, sliceType, size, proj)) {
+                    result.add(toType(item, itemType));
+                }
+            }
+            if ((head & 1) == 0) {
+                break;
+            }
+            head = this.readSliceHead(buffer);
+        }
+    }
+
+    /**
+     * Read an object by the specified struct, and decode it into the specified bean directly.
+     * Absent primitive fields of sparse object are filled by their default values.
+     */
+    Object readTypedObject(InputBuffer buffer, InputMetaPool.Struct struct, byte[] bitmap,
+                           TypedBean bean, Projection proj) throws IOException {
+        int[] indexes = mapIndexes(struct, bean);
+        Projection[] projections = proj == Projection.ALL ? null : this.project(struct, proj);
+        BeanDecoder decoder = bean.decoder;
+        Object result = decoder.newInstance();
+        for (int i = 0, len = indexes.length; i < len; i++) {
+            int index = indexes[i];
+            if (!isPresent(bitmap, i)) {
+                if (index >= 0 && (projections == null || projections[i] != null)) {
+                    setDefault(bean, result, index);
+                }
+                continue;
+            }
+            long head = buffer.readVarUint();
+            if (index < 0 || (projections != null && projections[i] == null)) {
+                this.skipData(buffer, head); // discard the unknown or unselected field
+                continue;
+            }
+            if (head == Const.CONST_NULL) {
+                continue;
+            }
+            if (head == Const.CONST_INLINE) {
+                readTypedInline(buffer, bean, result, index);
+                continue;
+            }
+            int flag = head > Const.CONST_ZERO_ARRAY ? (int) (head & 0b0000_0111) : -1;
+            switch (bean.fieldTypes[index]) {
+                case Z:
+                case BOOLEAN:
+                    if (head == Const.CONST_TRUE || head == Const.CONST_FALSE) {
+                        decoder.setBoolean(result, index, head == Const.CONST_TRUE);
+                        continue;
+                    }
+                    break;
+                case B:
+                case S:
+                case I:
+                case J:
+                case BYTE:
+                case SHORT:
+                case INTEGER:
+                case LONG:
+                    if (flag == Const.TYPE_VARINT) {
+                        decoder.setLong(result, index, dataPool.getVarint((int) (head >>> 3)));
+                        continue;
+                    }
+                    break;
+                case F:
+                case D:
+                case FLOAT:
+                case DOUBLE:
+                    if (flag == Const.TYPE_VARINT) {
+                        decoder.setLong(result, index, dataPool.getVarint((int) (head >>> 3)));
+                        continue;
+                    } else if (flag == Const.TYPE_FLOAT) {
+                        decoder.setDouble(result, index, dataPool.getFloat((int) (head >>> 3)));
+                        continue;
+                    } else if (flag == Const.TYPE_DOUBLE) {
+                        decoder.setDouble(result, index, dataPool.getDouble((int) (head >>> 3)));
+                        continue;
+                    }
+                    break;
+            }
+            Projection fieldProj = projections == null ? Projection.ALL : projections[i];
+            Object value = this.readTypedData(buffer, head, bean.fieldXTypes[index], fieldProj);
+            if (value != null) {
+                decoder.setObject(result, index, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read a columnar slice, and decode its rows into the specified beans column by column
+     */
+    Object[] readTypedColumns(InputBuffer buffer, InputMetaPool.Struct struct, TypedBean bean, int size, Projection proj) throws IOException {
+        int[] indexes = mapIndexes(struct, bean);
+        Projection[] projections = proj == Projection.ALL ? null : this.project(struct, proj);
+        Object[] beans = new Object[size];
+        for (int i = 0; i < size; i++) {
+            beans[i] = bean.decoder.newInstance();
+        }
+        for (int i = 0, len = indexes.length; i < len; i++) {
+            int index = indexes[i];
+            if (index < 0 || (projections != null && projections[i] == null)) {
+                this.skipColumn(buffer); // discard the unknown or unselected column
+                continue;
+            }
+            long head = buffer.readVarUint();
+            if (head == Const.CONST_FALSE) {
+                continue;
+            }
+            boolean[] presence = head == Const.CONST_TRUE ? null : this.readPresence(buffer, head, size);
+            Projection fieldProj = projections == null ? Projection.ALL : projections[i];
+            head = buffer.readVarUint();
+            if (head == Const.CONST_SIZED) {
+                buffer.readVarUint();
+                head = buffer.readVarUint();
+            }
+            Object values;
+            if (head > Const.CONST_ZERO_ARRAY && (head & 0b0000_0111) == Const.TYPE_ARRAY) {
+                List<Object> items = new ArrayList<>(size);
+                this.readTypedItems(buffer, head >>> 3, bean.fieldXTypes[index], items, fieldProj);
+                values = items.toArray(); // items are decoded into the field's type directly
+            } else {
+                values = this.readData(buffer, head, fieldProj);
+            }
+            for (int row = 0, off = 0; row < size; row++) {
+                if (presence == null || presence[row]) {
+                    setTypedValue(bean, beans[row], index, columnItem(values, off++));
+                }
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * Map the specified struct's fields to the specified bean's field indexes, the result is cached in struct
+     */
+    private static int[] mapIndexes(InputMetaPool.Struct struct, TypedBean bean) {
+        if (struct.mappedType != bean) {
+            struct.mappedIndexes = bean.mapIndexes(struct.fieldNames);
+            struct.mappedType = bean;
+        }
+        return struct.mappedIndexes;
+    }
+
+    /**
+     * Read an inline value into bean's field, numbers are set without boxing if the field accepts them
+     */
+    private static void readTypedInline(InputBuffer buffer, TypedBean bean, Object target, int index) throws IOException {
+        long tag = buffer.readVarUint();
+        BeanDecoder decoder = bean.decoder;
+        Type fieldType = bean.fieldTypes[index];
+        switch ((byte) (tag & 0b0000_0011)) {
+            case Const.INLINE_VARINT:
+                long l = NumberUtils.uintToInt(tag >>> 2);
+                switch (fieldType) {
+                    case B:
+                    case S:
+                    case I:
+                    case J:
+                    case F:
+                    case D:
+                    case BYTE:
+                    case SHORT:
+                    case INTEGER:
+                    case LONG:
+                    case FLOAT:
+                    case DOUBLE:
+                        decoder.setLong(target, index, l);
+                        return;
+                }
+                setTypedValue(bean, target, index, l);
+                return;
+            case Const.INLINE_FLOAT:
+            case Const.INLINE_DOUBLE:
+                double d = (tag & 0b0000_0011) == Const.INLINE_FLOAT ? buffer.readFloat() : buffer.readDouble();
+                switch (fieldType) {
+                    case F:
+                    case D:
+                    case FLOAT:
+                    case DOUBLE:
+                        decoder.setDouble(target, index, d);
+                        return;
+                }
+                setTypedValue(bean, target, index, (tag & 0b0000_0011) == Const.INLINE_FLOAT ? (Object) (float) d : d);
+                return;
+            default:
+                setTypedValue(bean, target, index, buffer.readString());
+        }
+    }
+
+    /**
+     * Set the default value of bean's primitive field, other fields are untouched like null values
+     */
+    private static void setDefault(TypedBean bean, Object target, int index) {
+        switch (bean.fieldTypes[index]) {
+            case Z:
+                bean.decoder.setBoolean(target, index, false);
+                break;
+            case B:
+            case S:
+            case I:
+            case J:
+                bean.decoder.setLong(target, index, 0);
+                break;
+            case F:
+            case D:
+                bean.decoder.setDouble(target, index, 0);
+                break;
+        }
+    }
+
+    /**
+     * Set the specified generic value into bean's field, primitive fields accept boxed numbers directly
+     */
+    private static void setTypedValue(TypedBean bean, Object target, int index, Object value) {
+        if (value == null) {
+            return;
+        }
+        BeanDecoder decoder = bean.decoder;
+        switch (bean.fieldTypes[index]) {
+            case Z:
+            case BOOLEAN:
+                if (value instanceof Boolean) {
+                    decoder.setBoolean(target, index, (Boolean) value);
+                    return;
+                }
+                break;
+            case B:
+            case S:
+            case I:
+            case J:
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+            case LONG:
+                if (value instanceof Long) {
+                    decoder.setLong(target, index, (Long) value);
+                    return;
+                }
+                break;
+            case F:
+            case D:
+            case FLOAT:
+            case DOUBLE:
+                if (value instanceof Long) {
+                    decoder.setLong(target, index, (Long) value);
+                    return;
+                } else if (value instanceof Float || value instanceof Double) {
+                    decoder.setDouble(target, index, ((Number) value).doubleValue());
+                    return;
+                }
+                break;
+        }
+        decoder.setObject(target, index, toType(value, bean.fieldXTypes[index]));
+    }
+
+    /**
+     * Get the specified item of column's values, integers are widened to Long as pooled varint
+     */
+    private static Object columnItem(Object values, int i) throws IOException {
+        if (values instanceof Object[]) {
+            return ((Object[]) values)[i];
+        } else if (values instanceof long[]) {
+            return ((long[]) values)[i];
+        } else if (values instanceof int[]) {
+            return (long) ((int[]) values)[i];
+        } else if (values instanceof short[]) {
+            return (long) ((short[]) values)[i];
+        } else if (values instanceof byte[]) {
+            return (long) ((byte[]) values)[i];
+        } else if (values instanceof float[]) {
+            return ((float[]) values)[i];
+        } else if (values instanceof double[]) {
+            return ((double[]) values)[i];
+        } else if (values instanceof boolean[]) {
+            return ((boolean[]) values)[i];
+        }
+        throw new UnexpectedReadException("invalid column values: " + values);
+    }
+
+    /**
+     * Map the specified struct's fields to their projections, null means the field isn't selected.
+     */
+    private Projection[] project(InputMetaPool.Struct struct, Projection proj) {
+        if (struct.projection == proj) {
+            return struct.projections;
+        }
+        String[] names = struct.fieldNames;
+        Projection[] projections = new Projection[names.length];
+        int count = 0;
+        for (int i = 0; i < names.length; i++) {
+            if ((projections[i] = proj.select(names[i])) != null) {
+                count++;
+            }
+        }
+        String[] projectedNames = new String[count];
+        for (int i = 0, off = 0; i < names.length; i++) {
+            if (projections[i] != null) {
+                projectedNames[off++] = names[i];
+            }
+        }
+        struct.projection = proj;
+        struct.projections = projections;
+        struct.projectedNames = projectedNames;
+        return projections;
+    }
+
+    /**
+     * Check whether the specified type is collection or object array, which could be built during parsing.
+     */
+    private static boolean isTypedArray(XType<?> type) {
+        Class<?> rawCls = type.getRawType();
+        if (rawCls.isArray()) {
+            return !rawCls.getComponentType().isPrimitive();
+        }
+        XType<?>[] paramTypes = type.getParameterizedTypes();
+        return Collection.class.isAssignableFrom(rawCls) && paramTypes != null && paramTypes.length == 1;
+    }
+
+    /**
+     * Convert the specified value into the specified type if need
+     */
+    private static Object toType(Object value, XType<?> type) {
+        if (value == null || (type.isPure() && type.getRawType().isInstance(value))) {
+            return value;
+        }
+        return CodecUtils.convert(value, type);
+    }
+
+    /**
+     * TypedBean wraps the decoding info of POJO's {@link XType}
+     */
+    static final class TypedBean {
+
+        final BeanDecoder          decoder;
+        final Type[]               fieldTypes;
+        final XType<?>[]           fieldXTypes;
+        final Map<String, Integer> fieldIndexes = new HashMap<>();
+
+        TypedBean(BeanDecoder decoder, XType<?>[] fieldXTypes) {
+            this.decoder = decoder;
+            this.fieldTypes = decoder == null ? null : decoder.getFieldTypes();
+            this.fieldXTypes = fieldXTypes;
+            if (decoder != null) {
+                String[] names = decoder.getFieldNames();
+                for (int i = 0; i < names.length; i++) {
+                    fieldIndexes.put(names[i], i);
+                }
+            }
+        }
+
+        /**
+         * Map the specified struct's fields to bean's field indexes, -1 means unknown field.
+         */
+        int[] mapIndexes(String[] fieldNames) {
+            int[] indexes = new int[fieldNames.length];
+            for (int i = 0; i < fieldNames.length; i++) {
+                Integer index = fieldIndexes.get(fieldNames[i]);
+                indexes[i] = index == null ? -1 : index;
+            }
+            return indexes;
+        }
+
+        /**
+         * Get TypedBean of the specified type, return {@link #NOT_BEAN} if it isn't a decodable POJO.
+         */
+        static TypedBean valueOf(XType<?> type) {
+            int generation = CodecUtils.getGeneration();
+            if (generation != typedGeneration) {
+                TYPED_BEANS.clear(); // new codecs may take over some beans
+                typedGeneration = generation;
+            }
+            TypedBean bean = TYPED_BEANS.get(type);
+            if (bean == null) {
+                bean = build(type);
+                TYPED_BEANS.put(type, bean);
+            }
+            return bean;
+        }
+
+        static TypedBean build(XType<?> type) {
+            Class<?> cls = type.getRawType();
+            int mod = cls.getModifiers();
+            if (type.getFields() == null || !Modifier.isPublic(mod) || Modifier.isAbstract(mod) || cls.isInterface()) {
+                return NOT_BEAN;
+            }
+            try {
+                cls.getConstructor();
+            } catch (NoSuchMethodException e) {
+                return NOT_BEAN;
+            }
+            if (!isBeanPipeline(CodecUtils.getPipeline(ObjectNode.class, cls))) {
+                return NOT_BEAN;
+            }
+            BeanDecoder decoder = BeanDecoderBuilder.build(cls);
+            String[] names = decoder.getFieldNames();
+            XType<?>[] fieldXTypes = new XType[names.length];
+            for (int i = 0; i < names.length; i++) {
+                XField<?> field = type.getField(names[i]);
+                if (field == null) {
+                    return NOT_BEAN;
+                }
+                fieldXTypes[i] = field.getType();
+            }
+            return new TypedBean(decoder, fieldXTypes);
+        }
+
+        /**
+         * Check whether the specified pipeline builds POJO from {@link BeanInfo}, other codecs should still be used.
+         */
+        static boolean isBeanPipeline(ConverterPipeline pipeline) {
+            if (pipeline == null) {
+                return false;
+            }
+            List<ConverterMethod> methods = pipeline.getMethods();
+            for (int i = methods.size() - 1; i >= 0; i--) {
+                ConverterMethod method = methods.get(i);
+                if (method instanceof RealConverterMethod) {
+                    return method.getSrcClass() == BeanInfo.class;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -6,6 +6,8 @@ import com.github.smartbuf.utils.NumberUtils;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -24,8 +26,31 @@ public abstract class InputBuffer {
         return new InputStreamReader(is);
     }
 
+    /**
+     * Wrap the specified {@link ByteBuffer} as InputBuffer, it could be heap, direct or mapped buffer.
+     * The buffer's position will be moved forward while reading.
+     */
+    public static InputBuffer valueOf(ByteBuffer buf) {
+        return new InputByteBufferReader(buf);
+    }
+
     public abstract byte readByte() throws IOException;
 
+    /**
+     * Finish reading the current message, the reader could release or rewind its read-ahead bytes.
+     */
+    void finish() throws IOException {
+    }
+
+    /**
+     * Skip the specified number of bytes
+     */
+    public void skip(int len) throws IOException {
+        for (int i = 0; i < len; i++) {
+            this.readByte();
+        }
+    }
+
     public short readShort() throws IOException {
         byte high = readByte();
         byte low = readByte();
@@ -141,13 +166,20 @@ public abstract class InputBuffer {
     }
 
     /**
-     * InputReader implementation for byte[]
+     * InputReader implementation for byte[], it could be reused by {@link #reset(byte[])}
      */
-    private static class InputPacketReader extends InputBuffer {
+    static final class InputPacketReader extends InputBuffer {
         private byte[] data;
         private int    offset;
 
         public InputPacketReader(byte[] data) {
+            this.reset(data);
+        }
+
+        /**
+         * Reset this reader to read the specified data from the beginning
+         */
+        void reset(byte[] data) {
             this.data = data;
             this.offset = 0;
         }
@@ -159,6 +191,50 @@ public abstract class InputBuffer {
             return data[offset++];
         }
 
+        public void skip(int len) throws IOException {
+            if (len > data.length - offset) {
+                throw new EOFException();
+            }
+            this.offset += len;
+        }
+
+        /**
+         * Get the offset of the next byte to read
+         */
+        int position() {
+            return offset;
+        }
+
+        /**
+         * Move to the specified offset for random reading
+         */
+        void seek(int offset) {
+            this.offset = offset;
+        }
+
+        public float readFloat() throws IOException {
+            if (data.length - offset < 4) {
+                throw new EOFException();
+            }
+            byte[] data = this.data;
+            int off = this.offset;
+            int bits = (data[off] & 0xFF) | (data[off + 1] & 0xFF) << 8 | (data[off + 2] & 0xFF) << 16 | (data[off + 3] & 0xFF) << 24;
+            this.offset = off + 4;
+            return NumberUtils.bitsToFloat(bits);
+        }
+
+        public double readDouble() throws IOException {
+            if (data.length - offset < 8) {
+                throw new EOFException();
+            }
+            long bits = 0;
+            for (int i = 0, off = offset; i < 8; i++) {
+                bits |= (data[off + i] & 0xFFL) << (8 * i);
+            }
+            this.offset += 8;
+            return NumberUtils.bitsToDouble(bits);
+        }
+
         public String readString() throws IOException {
             int len = (int) this.readVarUint();
             if (len > data.length - offset) {
@@ -183,23 +259,340 @@ public abstract class InputBuffer {
     }
 
     /**
-     * InputReader implementation for {@link InputStream}
+     * InputReader implementation for {@link ByteBuffer}, it could be reused by {@link #reset(ByteBuffer)}.
+     * <p>
+     * Bytes are read by relative operations, so the buffer's position is the next byte to read.
      */
-    private static class InputStreamReader extends InputBuffer {
+    static final class InputByteBufferReader extends InputBuffer {
+        private ByteBuffer buf;
+        private boolean    bigEndian;
+        private byte[]     tmp = new byte[64];
+
+        public InputByteBufferReader(ByteBuffer buf) {
+            this.reset(buf);
+        }
+
+        /**
+         * Reset this reader to read the specified buffer from its current position
+         */
+        void reset(ByteBuffer buf) {
+            this.buf = buf;
+            this.bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (!buf.hasRemaining()) {
+                throw new EOFException();
+            }
+            return buf.get();
+        }
+
+        @Override
+        public void skip(int len) throws IOException {
+            if (len > buf.remaining()) {
+                throw new EOFException();
+            }
+            buf.position(buf.position() + len);
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            if (buf.remaining() < 2) {
+                throw new EOFException();
+            }
+            short s = buf.getShort();
+            return bigEndian ? s : Short.reverseBytes(s);
+        }
+
+        @Override
+        public float readFloat() throws IOException {
+            if (buf.remaining() < 4) {
+                throw new EOFException();
+            }
+            int bits = buf.getInt();
+            return NumberUtils.bitsToFloat(bigEndian ? Integer.reverseBytes(bits) : bits);
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            if (buf.remaining() < 8) {
+                throw new EOFException();
+            }
+            long bits = buf.getLong();
+            return NumberUtils.bitsToDouble(bigEndian ? Long.reverseBytes(bits) : bits);
+        }
+
+        @Override
+        public String readString() throws IOException {
+            int len = (int) this.readVarUint();
+            if (len > buf.remaining()) {
+                throw new EOFException();
+            }
+            String result;
+            if (buf.hasArray()) {
+                result = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+                buf.position(buf.position() + len);
+            } else {
+                if (tmp.length < len) {
+                    tmp = new byte[Math.max(len, tmp.length * 2)];
+                }
+                buf.get(tmp, 0, len);
+                result = new String(tmp, 0, len, StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+
+        @Override
+        public byte[] readByteArray(int len) throws IOException {
+            if (len > buf.remaining()) {
+                throw new EOFException();
+            }
+            byte[] bytes = new byte[len];
+            buf.get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public float[] readFloatArray(int len) throws IOException {
+            if (len > buf.remaining() / 4) {
+                throw new EOFException();
+            }
+            float[] result = new float[len];
+            for (int i = 0; i < len; i++) {
+                int bits = buf.getInt();
+                result[i] = NumberUtils.bitsToFloat(bigEndian ? Integer.reverseBytes(bits) : bits);
+            }
+            return result;
+        }
+
+        @Override
+        public double[] readDoubleArray(int len) throws IOException {
+            if (len > buf.remaining() / 8) {
+                throw new EOFException();
+            }
+            double[] result = new double[len];
+            for (int i = 0; i < len; i++) {
+                long bits = buf.getLong();
+                result[i] = NumberUtils.bitsToDouble(bigEndian ? Long.reverseBytes(bits) : bits);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * InputReader implementation for {@link InputStream}, it could be reused by {@link #reset(InputStream)}.
+     * <p>
+     * If the stream supports mark, it reads ahead by chunk, and {@link #finish()} moves the stream
+     * to the end of current message exactly. Otherwise, only the known-length data like float, double,
+     * string and native array would be read in bulk, so it never consumes bytes of the next message.
+     */
+    static final class InputStreamReader extends InputBuffer {
+        static int CHUNK_SIZE = 4096;
+
+        private final byte[] scratch = new byte[8];
+
         private InputStream is;
+        private boolean     markable;
+        private byte[]      buf;
+        private int         pos;
+        private int         limit;
 
         public InputStreamReader(InputStream is) {
+            this.reset(is);
+        }
+
+        /**
+         * Reset this reader to read the specified stream from its current position
+         */
+        void reset(InputStream is) {
             this.is = is;
+            this.markable = is.markSupported();
+            this.pos = 0;
+            this.limit = 0;
+            if (buf == null || (markable && buf.length < CHUNK_SIZE)) {
+                this.buf = new byte[markable ? CHUNK_SIZE : 0];
+            }
+        }
+
+        /**
+         * Move the underlying stream to the end of current message, if it was read ahead.
+         */
+        @Override
+        void finish() throws IOException {
+            if (limit == 0) {
+                return;
+            }
+            is.reset();
+            for (int remain = pos; remain > 0; ) {
+                long n = is.skip(remain);
+                if (n <= 0) {
+                    throw new EOFException();
+                }
+                remain -= n;
+            }
+            this.pos = 0;
+            this.limit = 0;
         }
 
         @Override
         public byte readByte() throws IOException {
+            if (pos < limit) {
+                return buf[pos++];
+            }
+            if (markable) {
+                this.fill();
+                return buf[pos++];
+            }
             int i = is.read();
             if (i == -1) {
                 throw new EOFException();
             }
             return (byte) (i & 0xFF);
         }
+
+        @Override
+        public float readFloat() throws IOException {
+            if (limit - pos >= 4) {
+                this.pos += 4;
+                return NumberUtils.bitsToFloat(intAt(buf, pos - 4));
+            }
+            if (markable) {
+                return super.readFloat();
+            }
+            this.readFully(scratch, 4);
+            return NumberUtils.bitsToFloat(intAt(scratch, 0));
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            if (limit - pos >= 8) {
+                this.pos += 8;
+                return NumberUtils.bitsToDouble(longAt(buf, pos - 8));
+            }
+            if (markable) {
+                return super.readDouble();
+            }
+            this.readFully(scratch, 8);
+            return NumberUtils.bitsToDouble(longAt(scratch, 0));
+        }
+
+        @Override
+        public String readString() throws IOException {
+            int len = (int) this.readVarUint();
+            if (markable && len > limit - pos && len <= buf.length) {
+                this.compactAndFill(len);
+            }
+            if (len <= limit - pos) {
+                String result = new String(buf, pos, len, StandardCharsets.UTF_8);
+                this.pos += len;
+                return result;
+            }
+            return new String(this.readByteArray(len), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] readByteArray(int len) throws IOException {
+            byte[] bytes = new byte[len];
+            this.readFully(bytes, len);
+            return bytes;
+        }
+
+        @Override
+        public short[] readShortArray(int len) throws IOException {
+            byte[] bytes = this.readByteArray(len * 2);
+            short[] result = new short[len];
+            for (int i = 0; i < len; i++) {
+                result[i] = (short) ((bytes[i * 2] << 8) | (bytes[i * 2 + 1] & 0xFF));
+            }
+            return result;
+        }
+
+        @Override
+        public float[] readFloatArray(int len) throws IOException {
+            byte[] bytes = this.readByteArray(len * 4);
+            float[] result = new float[len];
+            for (int i = 0; i < len; i++) {
+                result[i] = NumberUtils.bitsToFloat(intAt(bytes, i * 4));
+            }
+            return result;
+        }
+
+        @Override
+        public double[] readDoubleArray(int len) throws IOException {
+            byte[] bytes = this.readByteArray(len * 8);
+            double[] result = new double[len];
+            for (int i = 0; i < len; i++) {
+                result[i] = NumberUtils.bitsToDouble(longAt(bytes, i * 8));
+            }
+            return result;
+        }
+
+        /**
+         * Read the specified number of bytes into dst, from the buffer first, then from the stream in bulk
+         */
+        private void readFully(byte[] dst, int len) throws IOException {
+            int off = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, dst, 0, off);
+            this.pos += off;
+            if (off == len) {
+                return;
+            }
+            // read the remained bytes directly, the buffer is exhausted and the stream's position is exact
+            if (limit > 0) {
+                this.pos = 0;
+                this.limit = 0;
+            }
+            while (off < len) {
+                int n = is.read(dst, off, len - off);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                off += n;
+            }
+        }
+
+        private static int intAt(byte[] bytes, int off) {
+            return (bytes[off] & 0xFF) | (bytes[off + 1] & 0xFF) << 8 | (bytes[off + 2] & 0xFF) << 16 | (bytes[off + 3] & 0xFF) << 24;
+        }
+
+        private static long longAt(byte[] bytes, int off) {
+            return (intAt(bytes, off) & 0xFFFFFFFFL) | ((long) intAt(bytes, off + 4) << 32);
+        }
+
+        /**
+         * Mark the stream and read the next chunk into buffer, the buffer must be exhausted
+         */
+        private void fill() throws IOException {
+            this.pos = 0;
+            this.limit = 0;
+            is.mark(buf.length);
+            int n = is.read(buf, 0, buf.length);
+            if (n <= 0) {
+                throw new EOFException();
+            }
+            this.limit = n;
+        }
+
+        /**
+         * Make sure the buffer holds at least len bytes, by reading the remained bytes of current chunk again
+         */
+        private void compactAndFill(int len) throws IOException {
+            this.finish();
+            is.mark(buf.length);
+            int off = 0;
+            while (off < len) {
+                int n = is.read(buf, off, buf.length - off);
+                if (n < 0) {
+                    break;
+                }
+                off += n;
+            }
+            this.limit = off;
+            if (off < len) {
+                throw new EOFException();
+            }
+        }
     }
 
 }
@@ -4,6 +4,7 @@ import com.github.smartbuf.exception.InvalidDataException;
 import com.github.smartbuf.exception.UnexpectedReadException;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * InputContext holds the state of input's context, it helps decompress data and metadata's reusing.
@@ -13,9 +14,13 @@ import java.io.IOException;
  */
 public final class InputDataPool {
 
-    private final Array<Float>  floats  = new Array<>();
-    private final Array<Double> doubles = new Array<>();
-    private final Array<Long>   varints = new Array<>();
+    private float[]  floats  = new float[4];
+    private double[] doubles = new double[4];
+    private long[]   varints = new long[4];
+    private int      floatCount;
+    private int      doubleCount;
+    private int      varintCount;
+
     private final Array<String> strings = new Array<>();
 
     private final IDAllocator   symbolID = new IDAllocator();
@@ -37,18 +42,27 @@ public final class InputDataPool {
             flag = (byte) (head & 0b0000_1110);
             switch (flag) {
                 case Const.FLAG_DATA_FLOAT:
+                    if (floatCount + size > floats.length) {
+                        floats = Arrays.copyOf(floats, Math.max(floatCount + size, floats.length * 2));
+                    }
                     for (int i = 0; i < size; i++) {
-                        floats.add(buf.readFloat());
+                        floats[floatCount++] = buf.readFloat();
                     }
                     break;
                 case Const.FLAG_DATA_DOUBLE:
+                    if (doubleCount + size > doubles.length) {
+                        doubles = Arrays.copyOf(doubles, Math.max(doubleCount + size, doubles.length * 2));
+                    }
                     for (int i = 0; i < size; i++) {
-                        doubles.add(buf.readDouble());
+                        doubles[doubleCount++] = buf.readDouble();
                     }
                     break;
                 case Const.FLAG_DATA_VARINT:
+                    if (varintCount + size > varints.length) {
+                        varints = Arrays.copyOf(varints, Math.max(varintCount + size, varints.length * 2));
+                    }
                     for (int i = 0; i < size; i++) {
-                        varints.add(buf.readVarInt());
+                        varints[varintCount++] = buf.readVarInt();
                     }
                     break;
                 case Const.FLAG_DATA_STRING:
@@ -87,11 +101,10 @@ public final class InputDataPool {
         if (index == 1) {
             return 0f;
         }
-        try {
-            return floats.get(index - 2);
-        } catch (Exception e) {
+        if (index < 2 || index - 2 >= floatCount) {
             throw new InvalidDataException("invalid float id: " + index);
         }
+        return floats[index - 2];
     }
 
     /**
@@ -105,11 +118,10 @@ public final class InputDataPool {
         if (index == 1) {
             return 0.0;
         }
-        try {
-            return doubles.get(index - 2);
-        } catch (Exception e) {
+        if (index < 2 || index - 2 >= doubleCount) {
             throw new InvalidDataException("invalid double id: " + index);
         }
+        return doubles[index - 2];
     }
 
     /**
@@ -123,11 +135,10 @@ public final class InputDataPool {
         if (index == 1) {
             return 0L;
         }
-        try {
-            return varints.get(index - 2);
-        } catch (Exception e) {
+        if (index < 2 || index - 2 >= varintCount) {
             throw new InvalidDataException("invalid varint id: " + index);
         }
+        return varints[index - 2];
     }
 
     /**
@@ -172,12 +183,12 @@ public final class InputDataPool {
     }
 
     /**
-     * reset this pool, but don't clean symbols
+     * reset this pool, but don't clean symbols. The underlying arrays will be reused by the next read.
      */
     public void reset() {
-        this.floats.clear();
-        this.doubles.clear();
-        this.varints.clear();
+        this.floatCount = 0;
+        this.doubleCount = 0;
+        this.varintCount = 0;
         this.strings.clear();
     }
 
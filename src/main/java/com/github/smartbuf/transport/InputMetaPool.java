@@ -138,6 +138,15 @@ public final class InputMetaPool {
         boolean  ordered;
         String[] fieldNames;
 
+        // cache the field mapping of the latest typed decoding
+        Object mappedType;
+        int[]  mappedIndexes;
+
+        // cache the field projection of the latest projected decoding
+        Projection   projection;
+        Projection[] projections;
+        String[]     projectedNames;
+
         public Struct(String[] fieldNames) {
             boolean ordered = true;
             String prev = null;
@@ -0,0 +1,605 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.exception.UnexpectedReadException;
+import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.utils.NumberUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * InputParser reads a message token by token, it's the pull-style alternative of {@link Input}'s reading.
+ * <p>
+ * Values are resolved only when the caller reads them, skipped values won't be decoded or allocated.
+ * It's reused by {@link Input}, and only valid until the next reading of the same Input.
+ * <p>
+ * The exception is columnar slice, its rows are rebuilt entirely before its first item's token,
+ * because items' fields are scattered across columns. Only {@link #skipValue()} of the whole array
+ * skips its columns without decoding them.
+ *
+ * @author sulin
+ * @since 2019-12-02 11:26:40
+ */
+public final class InputParser {
+
+    /**
+     * Token of message
+     */
+    public enum Token {
+        VALUE_NULL,
+        VALUE_BOOLEAN,
+        VALUE_LONG,
+        VALUE_FLOAT,
+        VALUE_DOUBLE,
+        VALUE_STRING,
+        VALUE_NATIVE_ARRAY,
+        START_ARRAY,
+        END_ARRAY,
+        START_OBJECT,
+        FIELD_NAME,
+        END_OBJECT
+    }
+
+    private static final byte SRC_NONE        = 0;
+    private static final byte SRC_CONST       = 1;
+    private static final byte SRC_POOL_VARINT = 2;
+    private static final byte SRC_POOL_FLOAT  = 3;
+    private static final byte SRC_POOL_DOUBLE = 4;
+    private static final byte SRC_POOL_STRING = 5;
+    private static final byte SRC_POOL_SYMBOL = 6;
+    private static final byte SRC_RAW_BYTE    = 7;
+    private static final byte SRC_RAW_VARINT  = 8;
+    private static final byte SRC_RAW_FLOAT   = 9;
+    private static final byte SRC_RAW_DOUBLE  = 10;
+    private static final byte SRC_RAW_NARRAY  = 11;
+    private static final byte SRC_RAW_STRING  = 12;
+    private static final byte SRC_LONG        = 13;
+    private static final byte SRC_DOUBLE      = 14;
+    private static final byte SRC_STRING      = 15;
+    private static final byte SRC_NARRAY      = 16;
+
+    private final Input         input;
+    private final InputDataPool dataPool;
+    private final InputMetaPool metaPool;
+
+    private InputBuffer buffer;
+    private boolean     started;
+    private boolean     skipping;
+
+    private Token   token;
+    private byte    source;
+    private long    head;
+    private long    longValue;
+    private double  doubleValue;
+    private boolean bool;
+    private String  fieldName;
+    private Object  value;
+
+    // the stack of opened arrays and objects
+    private int                    depth;
+    private boolean[]              isArray  = new boolean[16];
+    private InputMetaPool.Struct[] structs  = new InputMetaPool.Struct[16];
+    private int[]                  counters = new int[16];
+    private byte[]                 slices   = new byte[16];
+    private boolean[]              hasMores = new boolean[16];
+    private String[][]             names    = new String[16][];
+    private Object[][]             replays  = new Object[16][];
+    private byte[][]               bitmaps  = new byte[16][];
+
+    InputParser(Input input, InputDataPool dataPool, InputMetaPool metaPool) {
+        this.input = input;
+        this.dataPool = dataPool;
+        this.metaPool = metaPool;
+    }
+
+    /**
+     * Reset this parser to parse the specified buffer, its head should be read already.
+     */
+    void reset(InputBuffer buffer) {
+        this.buffer = buffer;
+        this.started = false;
+        this.skipping = false;
+        this.token = null;
+        this.source = SRC_NONE;
+        this.depth = 0;
+        for (int i = 0; i < structs.length; i++) {
+            structs[i] = null;
+            names[i] = null;
+            replays[i] = null;
+            bitmaps[i] = null;
+        }
+    }
+
+    /**
+     * Move to the next token, unread value of the current token will be skipped.
+     *
+     * @return The next token, or null if reach the end of message
+     * @throws IOException if any io exception happens
+     */
+    public Token nextToken() throws IOException {
+        if (source >= SRC_RAW_BYTE && source <= SRC_RAW_STRING) {
+            this.skipRaw();
+        }
+        this.source = SRC_NONE;
+        this.value = null;
+        if (depth == 0) {
+            if (started) {
+                if (token != null) {
+                    buffer.finish();
+                }
+                return token = null;
+            }
+            this.started = true;
+            return token = this.readValue(buffer.readVarUint());
+        }
+        int d = depth - 1;
+        if (!isArray[d]) {
+            String[] fields = names[d];
+            int counter = counters[d]++;
+            if (counter >= fields.length * 2) {
+                depth--;
+                return token = Token.END_OBJECT;
+            }
+            if ((counter & 1) == 0) {
+                this.fieldName = fields[counter >> 1];
+                return token = Token.FIELD_NAME;
+            }
+            if (replays[d] != null) {
+                return token = this.replayValue(replays[d][counter >> 1]);
+            }
+            if (!Input.isPresent(bitmaps[d], counter >> 1)) {
+                this.source = SRC_CONST; // absent field of sparse object
+                return token = Token.VALUE_NULL;
+            }
+            return token = this.readValue(buffer.readVarUint());
+        }
+        // the counter of array is the number of remained items in its current slice
+        while (counters[d] == 0) {
+            if (!hasMores[d]) {
+                depth--;
+                return token = Token.END_ARRAY;
+            }
+            this.openSlice(d, input.readSliceHead(buffer));
+        }
+        counters[d]--;
+        return token = this.readSliceItem(d);
+    }
+
+    /**
+     * Get the current token
+     *
+     * @return Current token, null if not started or reach the end
+     */
+    public Token currentToken() {
+        return token;
+    }
+
+    /**
+     * Get the current field's name, it's valid if the current token is {@link Token#FIELD_NAME}
+     *
+     * @return Field name
+     */
+    public String fieldName() {
+        return token == Token.FIELD_NAME ? fieldName : null;
+    }
+
+    /**
+     * Get all field names of the current object, it's valid if the current token is {@link Token#START_OBJECT}.
+     * Fields' values come in this order.
+     *
+     * @return Field names of current object
+     */
+    public String[] fieldNames() {
+        return token == Token.START_OBJECT ? names[depth - 1] : null;
+    }
+
+    /**
+     * Read the current token as boolean
+     *
+     * @return boolean value
+     * @throws IOException if current token isn't boolean
+     */
+    public boolean readBoolean() throws IOException {
+        if (token != Token.VALUE_BOOLEAN) {
+            throw new UnexpectedReadException("current token isn't boolean: " + token);
+        }
+        return bool;
+    }
+
+    /**
+     * Read the current token as long, float and double will be casted
+     *
+     * @return long value
+     * @throws IOException if current token isn't number
+     */
+    public long readLong() throws IOException {
+        switch (source) {
+            case SRC_POOL_VARINT:
+                return dataPool.getVarint((int) head);
+            case SRC_RAW_BYTE:
+                this.source = SRC_LONG;
+                return longValue = buffer.readByte();
+            case SRC_RAW_VARINT:
+                this.source = SRC_LONG;
+                return longValue = buffer.readVarInt();
+            case SRC_LONG:
+                return longValue;
+            case SRC_DOUBLE:
+            case SRC_POOL_FLOAT:
+            case SRC_POOL_DOUBLE:
+            case SRC_RAW_FLOAT:
+            case SRC_RAW_DOUBLE:
+                return (long) this.readDouble();
+            default:
+                throw new UnexpectedReadException("current token isn't number: " + token);
+        }
+    }
+
+    /**
+     * Read the current token as double, long will be casted
+     *
+     * @return double value
+     * @throws IOException if current token isn't number
+     */
+    public double readDouble() throws IOException {
+        switch (source) {
+            case SRC_POOL_FLOAT:
+                return dataPool.getFloat((int) head);
+            case SRC_POOL_DOUBLE:
+                return dataPool.getDouble((int) head);
+            case SRC_RAW_FLOAT:
+                this.source = SRC_DOUBLE;
+                return doubleValue = buffer.readFloat();
+            case SRC_RAW_DOUBLE:
+                this.source = SRC_DOUBLE;
+                return doubleValue = buffer.readDouble();
+            case SRC_DOUBLE:
+                return doubleValue;
+            case SRC_LONG:
+            case SRC_POOL_VARINT:
+            case SRC_RAW_BYTE:
+            case SRC_RAW_VARINT:
+                return this.readLong();
+            default:
+                throw new UnexpectedReadException("current token isn't number: " + token);
+        }
+    }
+
+    /**
+     * Read the current token as String, include string and symbol
+     *
+     * @return String value
+     * @throws IOException if current token isn't string
+     */
+    public String readString() throws IOException {
+        switch (source) {
+            case SRC_POOL_STRING:
+                return dataPool.getString((int) head);
+            case SRC_POOL_SYMBOL:
+                return dataPool.getSymbol((int) head);
+            case SRC_RAW_STRING:
+                this.source = SRC_STRING;
+                return (String) (value = buffer.readString());
+            case SRC_STRING:
+                return (String) value;
+            default:
+                throw new UnexpectedReadException("current token isn't string: " + token);
+        }
+    }
+
+    /**
+     * Read the current token as native array, like int[], byte[]
+     *
+     * @return Array value
+     * @throws IOException if current token isn't native array
+     */
+    public Object readNativeArray() throws IOException {
+        if (source == SRC_NARRAY) {
+            return value;
+        }
+        if (source != SRC_RAW_NARRAY) {
+            throw new UnexpectedReadException("current token isn't native array: " + token);
+        }
+        this.source = SRC_NONE;
+        return input.readNativeArray(buffer, head);
+    }
+
+    /**
+     * Skip the current value, if the current token is {@link Token#FIELD_NAME}, its value will be skipped,
+     * if it's {@link Token#START_ARRAY} or {@link Token#START_OBJECT}, all of its children will be skipped.
+     *
+     * @throws IOException if any io exception happens
+     */
+    public void skipValue() throws IOException {
+        if (token == Token.FIELD_NAME) {
+            this.nextToken();
+        }
+        if (token == Token.START_ARRAY || token == Token.START_OBJECT) {
+            int target = depth - 1;
+            this.skipping = true;
+            try {
+                while (depth > target) {
+                    this.nextToken();
+                }
+            } finally {
+                this.skipping = false;
+            }
+        }
+    }
+
+    /**
+     * Read value's token by the specified head
+     */
+    private Token readValue(long head) throws IOException {
+        switch ((int) head) {
+            case Const.CONST_NULL:
+                this.source = SRC_CONST;
+                return Token.VALUE_NULL;
+            case Const.CONST_TRUE:
+            case Const.CONST_FALSE:
+                this.source = SRC_CONST;
+                this.bool = head == Const.CONST_TRUE;
+                return Token.VALUE_BOOLEAN;
+            case Const.CONST_ZERO_ARRAY:
+                this.push(true, null);
+                return Token.START_ARRAY;
+            case Const.CONST_SIZED:
+                buffer.readVarUint(); // parser walks containers, their byte length isn't needed
+                return this.readValue(buffer.readVarUint());
+            case Const.CONST_INLINE:
+                return this.readInline(buffer.readVarUint());
+            case Const.CONST_SPARSE:
+                InputMetaPool.Struct struct = input.readSparseStruct(buffer);
+                this.push(false, struct);
+                bitmaps[depth - 1] = input.readBitmap(buffer, struct);
+                return Token.START_OBJECT;
+        }
+        this.head = head >>> 3;
+        switch ((byte) (head & 0b0000_0111)) {
+            case Const.TYPE_VARINT:
+                this.source = SRC_POOL_VARINT;
+                return Token.VALUE_LONG;
+            case Const.TYPE_FLOAT:
+                this.source = SRC_POOL_FLOAT;
+                return Token.VALUE_FLOAT;
+            case Const.TYPE_DOUBLE:
+                this.source = SRC_POOL_DOUBLE;
+                return Token.VALUE_DOUBLE;
+            case Const.TYPE_STRING:
+                this.source = SRC_POOL_STRING;
+                return Token.VALUE_STRING;
+            case Const.TYPE_SYMBOL:
+                this.source = SRC_POOL_SYMBOL;
+                return Token.VALUE_STRING;
+            case Const.TYPE_NARRAY:
+                this.head = head;
+                this.source = SRC_RAW_NARRAY;
+                return Token.VALUE_NATIVE_ARRAY;
+            case Const.TYPE_ARRAY:
+                this.push(true, null);
+                this.openSlice(depth - 1, head >>> 3);
+                return Token.START_ARRAY;
+            default:
+                this.push(false, metaPool.findStructByID((int) (head >>> 3)));
+                return Token.START_OBJECT;
+        }
+    }
+
+    /**
+     * Read inline value's token by the specified tag, its raw bytes are decoded only when the caller reads it
+     */
+    private Token readInline(long tag) {
+        switch ((byte) (tag & 0b0000_0011)) {
+            case Const.INLINE_VARINT:
+                this.source = SRC_LONG;
+                this.longValue = NumberUtils.uintToInt(tag >>> 2);
+                return Token.VALUE_LONG;
+            case Const.INLINE_FLOAT:
+                this.source = SRC_RAW_FLOAT;
+                return Token.VALUE_FLOAT;
+            case Const.INLINE_DOUBLE:
+                this.source = SRC_RAW_DOUBLE;
+                return Token.VALUE_DOUBLE;
+            default:
+                this.source = SRC_RAW_STRING;
+                return Token.VALUE_STRING;
+        }
+    }
+
+    /**
+     * Replay the token of a decoded value, it's used by columnar slice, whose rows are rebuilt before parsing.
+     */
+    @SuppressWarnings("unchecked")
+    private Token replayValue(Object value) throws IOException {
+        if (value == null) {
+            this.source = SRC_CONST;
+            return Token.VALUE_NULL;
+        } else if (value instanceof Boolean) {
+            this.source = SRC_CONST;
+            this.bool = (Boolean) value;
+            return Token.VALUE_BOOLEAN;
+        } else if (value instanceof Float || value instanceof Double) {
+            this.source = SRC_DOUBLE;
+            this.doubleValue = ((Number) value).doubleValue();
+            return value instanceof Float ? Token.VALUE_FLOAT : Token.VALUE_DOUBLE;
+        } else if (value instanceof Number) {
+            this.source = SRC_LONG;
+            this.longValue = ((Number) value).longValue();
+            return Token.VALUE_LONG;
+        } else if (value instanceof String) {
+            this.source = SRC_STRING;
+            this.value = value;
+            return Token.VALUE_STRING;
+        } else if (value instanceof ObjectNode) {
+            ObjectNode node = (ObjectNode) value;
+            this.push(false, null);
+            names[depth - 1] = node.keys();
+            replays[depth - 1] = node.values();
+            return Token.START_OBJECT;
+        } else if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            this.push(false, null);
+            names[depth - 1] = map.keySet().toArray(new String[0]);
+            replays[depth - 1] = map.values().toArray();
+            return Token.START_OBJECT;
+        } else if (value instanceof Object[]) {
+            Object[] items = (Object[]) value;
+            this.push(true, null);
+            slices[depth - 1] = Const.TYPE_SLICE_COLUMN;
+            counters[depth - 1] = items.length;
+            replays[depth - 1] = items;
+            return Token.START_ARRAY;
+        } else if (value.getClass().isArray()) {
+            this.source = SRC_NARRAY;
+            this.value = value;
+            return Token.VALUE_NATIVE_ARRAY;
+        }
+        throw new UnexpectedReadException("unexpected value: " + value.getClass());
+    }
+
+    /**
+     * Read the next item of the specified array's current slice
+     */
+    private Token readSliceItem(int d) throws IOException {
+        switch (slices[d]) {
+            case Const.TYPE_SLICE_NULL:
+                this.source = SRC_CONST;
+                return Token.VALUE_NULL;
+            case Const.TYPE_SLICE_BOOL:
+                byte b = buffer.readByte();
+                if (b != Const.CONST_TRUE && b != Const.CONST_FALSE) {
+                    throw new UnexpectedReadException("invalid bool: " + b);
+                }
+                this.source = SRC_CONST;
+                this.bool = b == Const.CONST_TRUE;
+                return Token.VALUE_BOOLEAN;
+            case Const.TYPE_SLICE_BYTE:
+                this.source = SRC_RAW_BYTE;
+                return Token.VALUE_LONG;
+            case Const.TYPE_SLICE_SHORT:
+            case Const.TYPE_SLICE_INT:
+            case Const.TYPE_SLICE_LONG:
+                this.source = SRC_RAW_VARINT;
+                return Token.VALUE_LONG;
+            case Const.TYPE_SLICE_FLOAT:
+                this.source = SRC_RAW_FLOAT;
+                return Token.VALUE_FLOAT;
+            case Const.TYPE_SLICE_DOUBLE:
+                this.source = SRC_RAW_DOUBLE;
+                return Token.VALUE_DOUBLE;
+            case Const.TYPE_SLICE_STRING:
+                this.head = buffer.readVarUint();
+                this.source = SRC_POOL_STRING;
+                return Token.VALUE_STRING;
+            case Const.TYPE_SLICE_SYMBOL:
+                this.head = buffer.readVarUint();
+                this.source = input.isStreamMode() ? SRC_POOL_SYMBOL : SRC_POOL_STRING;
+                return Token.VALUE_STRING;
+            case Const.TYPE_SLICE_OBJECT:
+                this.push(false, structs[d]);
+                return Token.START_OBJECT;
+            case Const.TYPE_SLICE_SPARSE:
+                this.push(false, structs[d]);
+                bitmaps[depth - 1] = input.readBitmap(buffer, structs[d]);
+                return Token.START_OBJECT;
+            case Const.TYPE_SLICE_UNKNOWN:
+                return this.readValue(buffer.readVarUint());
+            case Const.TYPE_SLICE_COLUMN:
+                Object[] items = replays[d];
+                return this.replayValue(items[items.length - counters[d] - 1]);
+            default:
+                throw new UnexpectedReadException("run into invalid slice type: " + slices[d]);
+        }
+    }
+
+    /**
+     * Open a new slice for the specified array by the specified slice's head
+     */
+    private void openSlice(int d, long head) throws IOException {
+        byte type = (byte) ((head >>> 1) & 0x0F);
+        slices[d] = type;
+        counters[d] = (int) (head >>> 5);
+        hasMores[d] = (head & 1) != 0;
+        if (type == Const.TYPE_SLICE_OBJECT || type == Const.TYPE_SLICE_SPARSE) {
+            structs[d] = metaPool.findStructByID((int) buffer.readVarUint());
+        } else if (type == Const.TYPE_SLICE_COLUMN) {
+            InputMetaPool.Struct struct = metaPool.findStructByID((int) buffer.readVarUint());
+            if (skipping) {
+                for (int i = 0; i < struct.fieldNames.length; i++) {
+                    input.skipColumn(buffer); // rows of skipped slice needn't be rebuilt
+                }
+                counters[d] = 0;
+            } else {
+                replays[d] = input.readColumns(buffer, struct, counters[d], Projection.ALL);
+            }
+        }
+    }
+
+    /**
+     * Push an array or object into stack
+     */
+    private void push(boolean array, InputMetaPool.Struct struct) {
+        if (depth == isArray.length) {
+            int newSize = depth * 2;
+            boolean[] newIsArray = new boolean[newSize];
+            InputMetaPool.Struct[] newStructs = new InputMetaPool.Struct[newSize];
+            int[] newCounters = new int[newSize];
+            byte[] newSlices = new byte[newSize];
+            boolean[] newHasMores = new boolean[newSize];
+            String[][] newNames = new String[newSize][];
+            Object[][] newReplays = new Object[newSize][];
+            byte[][] newBitmaps = new byte[newSize][];
+            System.arraycopy(isArray, 0, newIsArray, 0, depth);
+            System.arraycopy(structs, 0, newStructs, 0, depth);
+            System.arraycopy(counters, 0, newCounters, 0, depth);
+            System.arraycopy(slices, 0, newSlices, 0, depth);
+            System.arraycopy(hasMores, 0, newHasMores, 0, depth);
+            System.arraycopy(names, 0, newNames, 0, depth);
+            System.arraycopy(replays, 0, newReplays, 0, depth);
+            System.arraycopy(bitmaps, 0, newBitmaps, 0, depth);
+            this.isArray = newIsArray;
+            this.structs = newStructs;
+            this.counters = newCounters;
+            this.slices = newSlices;
+            this.hasMores = newHasMores;
+            this.names = newNames;
+            this.replays = newReplays;
+            this.bitmaps = newBitmaps;
+        }
+        isArray[depth] = array;
+        structs[depth] = struct;
+        counters[depth] = 0;
+        hasMores[depth] = false;
+        names[depth] = struct == null ? null : struct.fieldNames;
+        replays[depth] = null;
+        bitmaps[depth] = null;
+        depth++;
+    }
+
+    /**
+     * Skip the unread raw bytes of the current value
+     */
+    private void skipRaw() throws IOException {
+        switch (source) {
+            case SRC_RAW_BYTE:
+                buffer.skip(1);
+                break;
+            case SRC_RAW_VARINT:
+                buffer.readVarUint();
+                break;
+            case SRC_RAW_FLOAT:
+                buffer.skip(4);
+                break;
+            case SRC_RAW_DOUBLE:
+                buffer.skip(8);
+                break;
+            case SRC_RAW_NARRAY:
+                input.skipNativeArray(buffer, head);
+                break;
+            case SRC_RAW_STRING:
+                buffer.skip((int) buffer.readVarUint());
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.github.smartbuf.transport;
+
+import java.io.IOException;
+
+/**
+ * LazyObject is a random-access view of an encoded object, created by {@link Input#readLazy(byte[])}.
+ * <p>
+ * It records the byte offset of every field while locating, and decodes a field only when it's accessed,
+ * fields behind the accessed one are never touched. Nested object is returned as LazyObject too.
+ * Fields are located by skipping their previous values, containers written with
+ * {@link Output#setSizedDepth(int)} could be skipped directly by their byte length.
+ * Absent fields of sparse object are null and occupy no bytes.
+ * <p>
+ * It refers the pools of its {@link Input}, so it's only valid until the next reading of the same Input.
+ *
+ * @author sulin
+ * @since 2019-12-05 15:42:18
+ */
+public final class LazyObject {
+
+    private final Input                         input;
+    private final InputMetaPool                 metaPool;
+    private final InputBuffer.InputPacketReader buffer;
+    private final String[]                      fieldNames;
+    private final byte[]                        bitmap;
+
+    private final int[]     offsets;
+    private final Object[]  values;
+    private final boolean[] resolved;
+    private       int       located = 1;
+
+    LazyObject(Input input, InputMetaPool metaPool, InputBuffer.InputPacketReader buffer,
+               InputMetaPool.Struct struct, byte[] bitmap, int offset) {
+        this.input = input;
+        this.metaPool = metaPool;
+        this.buffer = buffer;
+        this.fieldNames = struct.fieldNames;
+        this.bitmap = bitmap;
+        this.offsets = new int[fieldNames.length + 1];
+        this.values = new Object[fieldNames.length];
+        this.resolved = new boolean[fieldNames.length];
+        this.offsets[0] = offset;
+    }
+
+    /**
+     * Get the number of fields
+     *
+     * @return Field number
+     */
+    public int size() {
+        return fieldNames.length;
+    }
+
+    /**
+     * Get all field names of this object in encoded order
+     *
+     * @return Field names
+     */
+    public String[] fieldNames() {
+        return fieldNames.clone();
+    }
+
+    /**
+     * Find the index of the specified field
+     *
+     * @param name Field name
+     * @return Index of the field, or -1 if not exists
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the specified field's value, decode it at the first time.
+     *
+     * @param name Field name
+     * @return Field value, or null if not exists
+     * @throws IOException if any io exception happens
+     */
+    public Object get(String name) throws IOException {
+        int index = this.indexOf(name);
+        return index < 0 ? null : this.get(index);
+    }
+
+    /**
+     * Get the value of the field at the specified index, decode it at the first time.
+     *
+     * @param index Field index
+     * @return Field value
+     * @throws IOException if any io exception happens
+     */
+    public Object get(int index) throws IOException {
+        if (index < 0 || index >= fieldNames.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + fieldNames.length);
+        }
+        if (resolved[index] || !Input.isPresent(bitmap, index)) {
+            return values[index];
+        }
+        this.locate(index);
+        buffer.seek(offsets[index]);
+        long head = buffer.readVarUint();
+        if (head == Const.CONST_SIZED) {
+            buffer.readVarUint();
+            head = buffer.readVarUint();
+        }
+        Object value;
+        if (head == Const.CONST_SPARSE) {
+            InputMetaPool.Struct struct = input.readSparseStruct(buffer);
+            byte[] fieldBitmap = input.readBitmap(buffer, struct);
+            value = new LazyObject(input, metaPool, buffer, struct, fieldBitmap, buffer.position());
+        } else if (head > Const.CONST_ZERO_ARRAY && (head & 0b0000_0111) == Const.TYPE_OBJECT) {
+            InputMetaPool.Struct struct = metaPool.findStructByID((int) (head >>> 3));
+            value = new LazyObject(input, metaPool, buffer, struct, null, buffer.position());
+        } else {
+            value = input.readData(buffer, head);
+        }
+        values[index] = value;
+        resolved[index] = true;
+        return value;
+    }
+
+    /**
+     * Locate the offsets of fields until the specified index
+     */
+    private void locate(int index) throws IOException {
+        while (located <= index) {
+            if (!Input.isPresent(bitmap, located - 1)) {
+                offsets[located] = offsets[located - 1];
+                located++;
+                continue;
+            }
+            buffer.seek(offsets[located - 1]);
+            input.skipData(buffer);
+            offsets[located++] = buffer.position();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.smartbuf.transport;
+
+import java.util.Arrays;
+
+/**
+ * LongIndex is an open-addressing hash index for primitive long values, it allocates incremental ID for every
+ * distinct value, and keeps values in insertion order like {@link Array}.
+ * <p>
+ * Every slot is stamped by an epoch, so {@link #clear()} is O(1) and never releases the underlying arrays.
+ * float and double could be stored by their raw bits.
+ *
+ * @author sulin
+ * @since 2019-11-25 20:31:08
+ */
+public final class LongIndex {
+
+    private static final int INIT_CAPACITY = 16;
+
+    private int    epoch = 1;
+    private int    mask  = INIT_CAPACITY - 1;
+    private long[] keys  = new long[INIT_CAPACITY];
+    private int[]  ids   = new int[INIT_CAPACITY];
+    private int[]  marks = new int[INIT_CAPACITY];
+
+    private int    size;
+    private long[] values = new long[INIT_CAPACITY / 2];
+
+    /**
+     * Find the ID of the specified value, register it if not exists
+     *
+     * @param value The value to index
+     * @return The value's ID, which is its offset in insertion order
+     */
+    public int register(long value) {
+        int pos = hash(value) & mask;
+        while (marks[pos] == epoch) {
+            if (keys[pos] == value) {
+                return ids[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        if (size == values.length) {
+            this.values = Arrays.copyOf(values, size * 2);
+        }
+        int id = size++;
+        values[id] = value;
+        if (size > (mask + 1) / 2) {
+            this.rehash(); // keep the load factor below 0.5
+        } else {
+            marks[pos] = epoch;
+            keys[pos] = value;
+            ids[pos] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Get the value by the specified ID
+     *
+     * @param id ID of value
+     * @return the value
+     */
+    public long get(int id) {
+        return values[id];
+    }
+
+    /**
+     * Return the number of registered values
+     *
+     * @return Values' count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clear all values in O(1), the underlying arrays will be reused
+     */
+    public void clear() {
+        this.size = 0;
+        if (++this.epoch == 0) {
+            Arrays.fill(marks, 0);
+            this.epoch = 1;
+        }
+    }
+
+    /**
+     * Double the hash table, and reindex all values
+     */
+    private void rehash() {
+        int cap = (mask + 1) * 2;
+        this.mask = cap - 1;
+        this.keys = new long[cap];
+        this.ids = new int[cap];
+        this.marks = new int[cap];
+        for (int id = 0; id < size; id++) {
+            long value = values[id];
+            int pos = hash(value) & mask;
+            while (marks[pos] == epoch) {
+                pos = (pos + 1) & mask;
+            }
+            marks[pos] = epoch;
+            keys[pos] = value;
+            ids[pos] = id;
+        }
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
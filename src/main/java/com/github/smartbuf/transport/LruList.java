@@ -0,0 +1,88 @@
+package com.github.smartbuf.transport;
+
+/**
+ * LruList is a doubly linked list ordered by recent usage, the head is the least recently used one.
+ * <p>
+ * Every tracked item owns its {@link Node}, so touching or removing an item is O(1) without searching.
+ *
+ * @author sulin
+ * @since 2019-12-13 10:21:37
+ */
+public final class LruList<T> {
+
+    private Node<T> head; // the least recently used node
+    private Node<T> tail; // the most recently used node
+
+    /**
+     * Get the least recently used value
+     *
+     * @return The value of head, or null if this list is empty
+     */
+    public T first() {
+        return head == null ? null : head.value;
+    }
+
+    /**
+     * Mark the specified node as the most recently used one, it will be linked if it isn't
+     *
+     * @param node The node to touch
+     */
+    public void touch(Node<T> node) {
+        if (node != tail) {
+            this.unlink(node);
+            this.linkLast(node);
+        }
+    }
+
+    /**
+     * Remove the specified node from this list, it's ok if the node isn't linked
+     *
+     * @param node The node to remove
+     */
+    public void unlink(Node<T> node) {
+        Node<T> prev = node.prev;
+        Node<T> next = node.next;
+        if (prev == null) {
+            if (head == node) {
+                head = next;
+            }
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            if (tail == node) {
+                tail = prev;
+            }
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * Append the specified node into the tail, as the most recently used one
+     */
+    private void linkLast(Node<T> node) {
+        node.prev = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    /**
+     * Node of LruList, it should be held by the item it tracks
+     */
+    public static final class Node<T> {
+        final T value;
+        Node<T> prev;
+        Node<T> next;
+
+        public Node(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.smartbuf.transport;
+
+import java.util.Arrays;
+
+/**
+ * ObjectIndex is an open-addressing hash index for objects like String, it allocates incremental ID for every
+ * distinct value by {@link Object#equals(Object)}, and keeps values in insertion order like {@link Array}.
+ * <p>
+ * Every slot is stamped by an epoch like {@link LongIndex}, so {@link #clear()} needn't touch the hash table,
+ * it's designed for per-packet data which should be cleared after every message.
+ *
+ * @author sulin
+ * @since 2019-11-26 19:12:40
+ */
+@SuppressWarnings("unchecked")
+public final class ObjectIndex<T> {
+
+    private static final int INIT_CAPACITY = 16;
+
+    private int   epoch = 1;
+    private int   mask  = INIT_CAPACITY - 1;
+    private int[] ids   = new int[INIT_CAPACITY];
+    private int[] marks = new int[INIT_CAPACITY];
+
+    private int      size;
+    private Object[] values = new Object[INIT_CAPACITY / 2];
+
+    /**
+     * Find the ID of the specified key
+     *
+     * @param key The key to search, it could be a probe which equals to the registered value
+     * @return The value's ID, or -1 if not exists
+     */
+    public int find(Object key) {
+        int pos = hash(key) & mask;
+        while (marks[pos] == epoch) {
+            int id = ids[pos];
+            if (key.equals(values[id])) {
+                return id;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the ID of the specified value, register it if not exists
+     *
+     * @param value The value to index
+     * @return The value's ID, which is its offset in insertion order
+     */
+    public int register(T value) {
+        int id = this.find(value);
+        if (id < 0) {
+            id = this.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Add the specified value into this index directly, caller should make sure it doesn't exist.
+     *
+     * @param value The new value
+     * @return The value's ID
+     */
+    public int add(T value) {
+        if (size == values.length) {
+            this.values = Arrays.copyOf(values, size * 2);
+        }
+        int id = size++;
+        values[id] = value;
+        if (size > (mask + 1) / 2) {
+            this.rehash(); // keep the load factor below 0.5
+        } else {
+            this.insert(hash(value), id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the value by the specified ID
+     *
+     * @param id ID of value
+     * @return the value
+     */
+    public T get(int id) {
+        return (T) values[id];
+    }
+
+    /**
+     * Return the number of registered values
+     *
+     * @return Values' count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clear all values, the underlying arrays will be reused, but their used slots are released for GC
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        this.size = 0;
+        if (++this.epoch == 0) {
+            Arrays.fill(marks, 0);
+            this.epoch = 1;
+        }
+    }
+
+    /**
+     * Double the hash table, and reindex all values
+     */
+    private void rehash() {
+        int cap = (mask + 1) * 2;
+        this.mask = cap - 1;
+        this.ids = new int[cap];
+        this.marks = new int[cap];
+        for (int id = 0; id < size; id++) {
+            this.insert(hash(values[id]), id);
+        }
+    }
+
+    private void insert(int hash, int id) {
+        int pos = hash & mask;
+        while (marks[pos] == epoch) {
+            pos = (pos + 1) & mask;
+        }
+        marks[pos] = epoch;
+        ids[pos] = id;
+    }
+
+    private static int hash(Object value) {
+        int h = value.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
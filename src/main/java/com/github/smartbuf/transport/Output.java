@@ -1,17 +1,30 @@
 package com.github.smartbuf.transport;
 
 import com.github.smartbuf.Type;
+import com.github.smartbuf.converter.ConverterMethod;
 import com.github.smartbuf.converter.ConverterPipeline;
+import com.github.smartbuf.converter.RealConverterMethod;
+import com.github.smartbuf.exception.OutOfSpaceException;
 import com.github.smartbuf.node.Node;
+import com.github.smartbuf.node.NodeType;
 import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.reflect.BeanEncoder;
+import com.github.smartbuf.reflect.BeanEncoderBuilder;
 import com.github.smartbuf.reflect.XType;
 import com.github.smartbuf.utils.CodecUtils;
+import com.github.smartbuf.utils.NumberUtils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.BaseStream;
 
 /**
  * Output wraps the logic that scans the source data and serializes the output message into highly compressed data
@@ -25,6 +38,16 @@ public final class Output {
     public static int SYMBOL_LIMIT = 1 << 16;
     public static int STRUCT_LIMIT = 1 << 16;
 
+    /**
+     * The max byte length of sized container, which must fit into the 4-byte padded varuint
+     */
+    static int SIZED_LIMIT = (1 << 28) - 1;
+
+    /**
+     * Columnar slice shorter than this will be written in row-major layout
+     */
+    static final int MIN_COLUMN_ROWS = 8;
+
     private final boolean  enableStreamMode;
     private final XType<?> nodeXType;
 
@@ -34,8 +57,56 @@ public final class Output {
     public final OutputDataPool dataPool;
     public final OutputMetaPool metaPool;
 
+    private static final byte KIND_BOOL       = 1;
+    private static final byte KIND_VARINT     = 2;
+    private static final byte KIND_FLOAT      = 3;
+    private static final byte KIND_DOUBLE     = 4;
+    private static final byte KIND_STRING     = 5;
+    private static final byte KIND_CHARS      = 6;
+    private static final byte KIND_ENUM       = 7;
+    private static final byte KIND_COLLECTION = 8;
+    private static final byte KIND_ARRAY      = 9;
+    private static final byte KIND_NARRAY     = 10;
+    private static final byte KIND_MAP        = 11;
+    private static final byte KIND_NODE       = 12;
+    private static final byte KIND_BEAN       = 13;
+    private static final byte KIND_CODEC      = 14;
+    private static final byte KIND_ITERATOR   = 15;
+    private static final byte KIND_ITERABLE   = 16;
+    private static final byte KIND_STREAM     = 17;
+
+    /**
+     * Cache the {@link Handler} of every class, it will be resolved again only if new codecs were installed.
+     */
+    private static final ClassValue<Handler> HANDLERS = new ClassValue<Handler>() {
+        @Override
+        protected Handler computeValue(Class<?> cls) {
+            int generation = CodecUtils.getGeneration();
+            Handler handler = resolveHandler(cls);
+            handler.generation = generation;
+            return handler;
+        }
+    };
+
+    private final BeanSink     beanSink      = new BeanSink();
+    private final ColumnSink   columnSink    = new ColumnSink();
+    private ByteBuffer[] gatherBuffers = new ByteBuffer[2];
+
     private long sequence;
 
+    private OutputStream frameStream;
+    private int          frameSize;
+    private int          arrayDepth;
+    private OutputWriter writer;
+
+    private int sizedDepth;
+    private int containerDepth;
+
+    private long[] packBuf = new long[64];
+
+    private boolean columnar;
+    private boolean sparse;
+
     /**
      * Initialize Output, it is reusable
      *
@@ -50,6 +121,37 @@ public final class Output {
         this.metaPool = new OutputMetaPool(STRUCT_LIMIT);
     }
 
+    /**
+     * Set the depth of sized containers, nested objects and arrays within this depth will be prefixed
+     * by their byte length, so readers could skip them or locate fields without walking their values.
+     * The root is depth 0 and never sized, 0 means disabled. It doesn't work for continuation frames.
+     *
+     * @param sizedDepth The max depth of sized containers
+     */
+    public void setSizedDepth(int sizedDepth) {
+        this.sizedDepth = sizedDepth;
+    }
+
+    /**
+     * Set whether to write array's objects of the same struct in column-major layout. Each field becomes a column,
+     * numeric columns are written as native arrays, so they could be packed. Short runs keep row-major layout.
+     *
+     * @param columnar Enable columnar slices or not
+     */
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    /**
+     * Set whether to write objects with presence bitmap, null fields and primitive fields of zero or false
+     * cost only 1 bit, typed reading fills their defaults. Generic reading gets null for all absent fields.
+     *
+     * @param sparse Enable sparse objects or not
+     */
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
     /**
      * Write the specified object into the specified writer with the specified sequence
      *
@@ -59,10 +161,33 @@ public final class Output {
      */
     public byte[] write(Object o) throws IOException {
         this.writeBuffer(o);
-        // copy into byte[]
-        byte[] result = new byte[bodyBuf.offset + headBuf.offset];
-        System.arraycopy(headBuf.data, 0, result, 0, headBuf.offset);
-        System.arraycopy(bodyBuf.data, 0, result, headBuf.offset, bodyBuf.offset);
+        return this.toByteArray();
+    }
+
+    /**
+     * Start a new message and return the reusable {@link OutputWriter} for generating it value by value,
+     * the message should be finished by {@link OutputWriter#finish()} before the next writing.
+     *
+     * @return The writer of this Output
+     */
+    public OutputWriter writer() {
+        if (writer == null) {
+            this.writer = new OutputWriter(this, enableStreamMode);
+        }
+        this.resetBuffers();
+        this.arrayDepth = 0;
+        this.containerDepth = 0;
+        this.writer.reset();
+        return writer;
+    }
+
+    /**
+     * Copy the current message into a new byte[]
+     */
+    byte[] toByteArray() {
+        byte[] result = new byte[headBuf.size() + bodyBuf.size()];
+        headBuf.copyTo(result, 0);
+        bodyBuf.copyTo(result, headBuf.size());
         return result;
     }
 
@@ -75,20 +200,190 @@ public final class Output {
      */
     public void write(Object o, OutputStream outputStream) throws IOException {
         this.writeBuffer(o);
-        outputStream.write(headBuf.data, 0, headBuf.offset);
-        outputStream.write(bodyBuf.data, 0, bodyBuf.offset);
+        headBuf.writeTo(outputStream);
+        bodyBuf.writeTo(outputStream);
+    }
+
+    /**
+     * Write the specified object into the specified {@link OutputStream} as a sequence of continuation frames.
+     * <p>
+     * When the body exceeds frameSize while writing the outermost array, the array will be cut between items,
+     * and the current frame will be flushed with its own data and meta, then the next frame continues.
+     * So big dataset could be written with bounded memory, {@link Input} reassembles frames while reading.
+     *
+     * @param o            The object to encode or serialize
+     * @param outputStream The stream to write into
+     * @param frameSize    The expected size of body in every frame
+     * @throws IOException if any io exception happens
+     */
+    public void write(Object o, OutputStream outputStream, int frameSize) throws IOException {
+        this.frameStream = outputStream;
+        this.frameSize = frameSize;
+        try {
+            this.write(o, outputStream);
+        } finally {
+            this.frameStream = null;
+        }
+    }
+
+    /**
+     * Write the specified object into the specified byte[] at the specified offset, without allocating new array.
+     * <p>
+     * The object is encoded before checking the space. After {@link OutOfSpaceException} the encoded message
+     * is kept, the caller should retry by {@link #copyLast(byte[], int)} with a bigger dst instead of writing
+     * the object again, because in stream-mode the context was already updated.
+     *
+     * @param o      The object to encode or serialize
+     * @param dst    The byte[] to write into
+     * @param offset The offset of dst to start writing
+     * @return The number of bytes written
+     * @throws IOException if any io exception happens, or dst hasn't enough space
+     */
+    public int write(Object o, byte[] dst, int offset) throws IOException {
+        this.writeBuffer(o);
+        return this.copyLast(dst, offset);
+    }
+
+    /**
+     * Write the specified object into the specified {@link ByteBuffer}, it could be heap or direct buffer.
+     * <p>
+     * The object is encoded before checking the space. After {@link OutOfSpaceException} the encoded message
+     * is kept, the caller should retry by {@link #copyLast(ByteBuffer)} with a bigger dst instead of writing
+     * the object again, because in stream-mode the context was already updated.
+     *
+     * @param o   The object to encode or serialize
+     * @param dst The buffer to write into, its position will be moved forward
+     * @return The number of bytes written
+     * @throws IOException if any io exception happens, or dst hasn't enough space
+     */
+    public int write(Object o, ByteBuffer dst) throws IOException {
+        this.writeBuffer(o);
+        return this.copyLast(dst);
+    }
+
+    /**
+     * Get the size of the last encoded message, it's valid until the next write of this Output.
+     *
+     * @return The number of bytes of the last message
+     */
+    public int lastSize() {
+        return headBuf.size() + bodyBuf.size();
+    }
+
+    /**
+     * Copy the last encoded message into the specified byte[] at the specified offset,
+     * it could be called repeatedly until the next write of this Output.
+     *
+     * @param dst    The byte[] to write into
+     * @param offset The offset of dst to start writing
+     * @return The number of bytes written
+     * @throws OutOfSpaceException if dst hasn't enough space, the message is kept for retrying
+     */
+    public int copyLast(byte[] dst, int offset) throws OutOfSpaceException {
+        int len = this.lastSize();
+        if (offset < 0 || dst.length - offset < len) {
+            throw new OutOfSpaceException("no enough space in dst, need " + len + " bytes");
+        }
+        headBuf.copyTo(dst, offset);
+        bodyBuf.copyTo(dst, offset + headBuf.size());
+        return len;
+    }
+
+    /**
+     * Copy the last encoded message into the specified {@link ByteBuffer},
+     * it could be called repeatedly until the next write of this Output.
+     *
+     * @param dst The buffer to write into, its position will be moved forward
+     * @return The number of bytes written
+     * @throws OutOfSpaceException if dst hasn't enough space, the message is kept for retrying
+     */
+    public int copyLast(ByteBuffer dst) throws OutOfSpaceException {
+        int len = this.lastSize();
+        if (dst.remaining() < len) {
+            throw new OutOfSpaceException("no enough space in dst, need " + len + " bytes");
+        }
+        headBuf.copyTo(dst);
+        bodyBuf.copyTo(dst);
+        return len;
+    }
+
+    /**
+     * Write the specified object into the specified {@link GatheringByteChannel},
+     * all segments of head and body will be written by one gathering write if the channel accepts all of them.
+     * <p>
+     * It loops until all bytes were written, so the channel should be in blocking mode.
+     *
+     * @param o       The object to encode or serialize
+     * @param channel The channel to write into
+     * @return The number of bytes written
+     * @throws IOException if any io exception happens
+     */
+    public long write(Object o, GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] buffers = this.encode(o);
+        long len = headBuf.size() + bodyBuf.size();
+        long written = 0;
+        while (written < len) {
+            written += channel.write(buffers);
+        }
+        return written;
+    }
+
+    /**
+     * Encode the specified object into internal buffers, and expose the message's segments as {@link ByteBuffer}s,
+     * head's segments are in front of body's. They are reused and only valid until the next write of this Output.
+     *
+     * @param o The object to encode or serialize
+     * @return The message's segments in order
+     * @throws IOException if any io exception happens
+     */
+    public ByteBuffer[] encode(Object o) throws IOException {
+        this.writeBuffer(o);
+        int headCount = headBuf.segments();
+        int count = headCount + bodyBuf.segments();
+        if (gatherBuffers.length != count) {
+            this.gatherBuffers = new ByteBuffer[count];
+        }
+        headBuf.exportTo(gatherBuffers, 0);
+        bodyBuf.exportTo(gatherBuffers, headCount);
+        return gatherBuffers;
     }
 
     /**
      * Write the specified object into internal buffers.
      */
     void writeBuffer(Object o) throws IOException {
+        this.resetBuffers();
+        this.arrayDepth = 0;
+        this.containerDepth = 0;
+        this.writeObject(o);
+        this.writeHead();
+    }
+
+    /**
+     * Flush the current frame into frameStream, and prepare buffers and pools for the next frame.
+     */
+    private void flushFrame() throws IOException {
+        bodyBuf.writeShort(Const.SLICE_FRAME_BREAK);
+        this.writeHead();
+        headBuf.writeTo(frameStream);
+        bodyBuf.writeTo(frameStream);
+        this.resetBuffers();
+    }
+
+    /**
+     * Reset buffers and pools for the next message.
+     */
+    private void resetBuffers() {
         this.bodyBuf.reset();
         this.headBuf.reset();
         this.dataPool.reset();
         this.metaPool.reset();
-        this.writeObject(o);
+    }
 
+    /**
+     * Write the message's head, include data and meta, into headBuf.
+     */
+    void writeHead() throws IOException {
         boolean hasData = dataPool.needOutput();
         boolean hasMeta = metaPool.needOutput();
         boolean hasSeq = dataPool.needSequence() || metaPool.needSequence();
@@ -118,108 +413,121 @@ public final class Output {
      * Write any object into the buffer, support null.
      */
     void writeObject(Object data) throws IOException {
+        if (data == null) {
+            bodyBuf.writeVarUint(Const.CONST_NULL);
+            return;
+        }
+        Handler handler = handlerOf(data.getClass());
+        switch (handler.kind) {
+            case KIND_BOOL:
+                this.writeData(Const.TYPE_CONST, data);
+                break;
+            case KIND_VARINT:
+                this.writeData(Const.TYPE_VARINT, data);
+                break;
+            case KIND_FLOAT:
+                this.writeData(Const.TYPE_FLOAT, data);
+                break;
+            case KIND_DOUBLE:
+                this.writeData(Const.TYPE_DOUBLE, data);
+                break;
+            case KIND_STRING:
+                this.writeData(Const.TYPE_STRING, data);
+                break;
+            case KIND_CHARS:
+                this.writeData(Const.TYPE_STRING, new String((char[]) data));
+                break;
+            case KIND_ENUM:
+                this.writeData(Const.TYPE_SYMBOL, ((Enum) data).name());
+                break;
+            case KIND_COLLECTION:
+                this.writeArray(((Collection<?>) data).iterator());
+                break;
+            case KIND_ARRAY:
+                this.writeArray(Arrays.asList((Object[]) data).iterator());
+                break;
+            case KIND_ITERATOR:
+                this.writeArray((Iterator<?>) data);
+                break;
+            case KIND_ITERABLE:
+                this.writeArray(((Iterable<?>) data).iterator());
+                break;
+            case KIND_STREAM:
+                this.writeArray(((BaseStream<?, ?>) data).iterator());
+                break;
+            case KIND_NARRAY:
+                this.writeData(handler.narrayType, data);
+                break;
+            case KIND_MAP:
+                this.writeMap((Map<?, ?>) data);
+                break;
+            case KIND_BEAN:
+                this.writeBean(handler.encoder, data);
+                break;
+            default:
+                this.writeNode(handler.toNode(data, nodeXType));
+        }
+    }
+
+    /**
+     * Write the specified node into the buffer, support null.
+     */
+    void writeNode(Node node) throws IOException {
+        if (node == null) {
+            bodyBuf.writeVarUint(Const.CONST_NULL);
+            return;
+        }
         byte type;
-        if (data == null || data instanceof Boolean) {
-            type = Const.TYPE_CONST;
-        } else if (data instanceof Byte || data instanceof Short || data instanceof Integer || data instanceof Long) {
-            type = Const.TYPE_VARINT;
-        } else if (data instanceof Float) {
-            type = Const.TYPE_FLOAT;
-        } else if (data instanceof Double) {
-            type = Const.TYPE_DOUBLE;
-        } else if (data instanceof CharSequence || data instanceof Character) {
-            type = Const.TYPE_STRING;
-        } else if (data instanceof Collection) {
-            type = Const.TYPE_ARRAY;
-        } else if (data instanceof Enum) {
-            type = Const.TYPE_SYMBOL;
-            data = ((Enum) data).name();
-        } else if (data.getClass().isArray()) {
-            if (data instanceof char[]) {
+        switch (node.type()) {
+            case BOOLEAN:
+                type = Const.TYPE_CONST;
+                break;
+            case VARINT:
+                type = Const.TYPE_VARINT;
+                break;
+            case FLOAT:
+                type = Const.TYPE_FLOAT;
+                break;
+            case DOUBLE:
+                type = Const.TYPE_DOUBLE;
+                break;
+            case STRING:
                 type = Const.TYPE_STRING;
-                data = new String((char[]) data);
-            } else if (data instanceof boolean[]) {
+                break;
+            case SYMBOL:
+                type = Const.TYPE_SYMBOL;
+                break;
+            case ARRAY_BOOLEAN:
                 type = Const.TYPE_NARRAY_BOOL;
-            } else if (data instanceof byte[]) {
+                break;
+            case ARRAY_BYTE:
                 type = Const.TYPE_NARRAY_BYTE;
-            } else if (data instanceof short[]) {
+                break;
+            case ARRAY_SHORT:
                 type = Const.TYPE_NARRAY_SHORT;
-            } else if (data instanceof int[]) {
+                break;
+            case ARRAY_INT:
                 type = Const.TYPE_NARRAY_INT;
-            } else if (data instanceof long[]) {
+                break;
+            case ARRAY_LONG:
                 type = Const.TYPE_NARRAY_LONG;
-            } else if (data instanceof float[]) {
+                break;
+            case ARRAY_FLOAT:
                 type = Const.TYPE_NARRAY_FLOAT;
-            } else if (data instanceof double[]) {
+                break;
+            case ARRAY_DOUBLE:
                 type = Const.TYPE_NARRAY_DOUBLE;
-            } else {
+                break;
+            case ARRAY:
                 type = Const.TYPE_ARRAY;
-                data = Arrays.asList((Object[]) data);
-            }
-        } else {
-            Node node;
-            if (data instanceof Node) {
-                node = (Node) data;
-            } else {
-                node = CodecUtils.convert(data, Node.class);
-            }
-            if (node != null) {
-                data = node.value();
-                switch (node.type()) {
-                    case BOOLEAN:
-                        type = Const.TYPE_CONST;
-                        break;
-                    case VARINT:
-                        type = Const.TYPE_VARINT;
-                        break;
-                    case FLOAT:
-                        type = Const.TYPE_FLOAT;
-                        break;
-                    case DOUBLE:
-                        type = Const.TYPE_DOUBLE;
-                        break;
-                    case STRING:
-                        type = Const.TYPE_STRING;
-                        break;
-                    case SYMBOL:
-                        type = Const.TYPE_SYMBOL;
-                        break;
-                    case ARRAY_BOOLEAN:
-                        type = Const.TYPE_NARRAY_BOOL;
-                        break;
-                    case ARRAY_BYTE:
-                        type = Const.TYPE_NARRAY_BYTE;
-                        break;
-                    case ARRAY_SHORT:
-                        type = Const.TYPE_NARRAY_SHORT;
-                        break;
-                    case ARRAY_INT:
-                        type = Const.TYPE_NARRAY_INT;
-                        break;
-                    case ARRAY_LONG:
-                        type = Const.TYPE_NARRAY_LONG;
-                        break;
-                    case ARRAY_FLOAT:
-                        type = Const.TYPE_NARRAY_FLOAT;
-                        break;
-                    case ARRAY_DOUBLE:
-                        type = Const.TYPE_NARRAY_DOUBLE;
-                        break;
-                    case ARRAY:
-                        type = Const.TYPE_ARRAY;
-                        break;
-                    case OBJECT:
-                        type = Const.TYPE_OBJECT;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid node: " + node.type());
-                }
-            } else {
-                data = null;
-                type = Const.TYPE_CONST;
-            }
+                break;
+            case OBJECT:
+                type = Const.TYPE_OBJECT;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid node: " + node.type());
         }
-        this.writeData(type, data);
+        this.writeData(type, node.value());
     }
 
     /**
@@ -235,16 +543,16 @@ public final class Output {
                 }
                 break;
             case Const.TYPE_VARINT:
-                bodyBuf.writeVarUint((dataPool.registerVarint(((Number) data).longValue()) << 3) | Const.TYPE_VARINT);
+                this.writeVarint(((Number) data).longValue());
                 break;
             case Const.TYPE_FLOAT:
-                bodyBuf.writeVarUint((dataPool.registerFloat((Float) data) << 3) | Const.TYPE_FLOAT);
+                this.writeFloat((Float) data);
                 break;
             case Const.TYPE_DOUBLE:
-                bodyBuf.writeVarUint((dataPool.registerDouble((Double) data) << 3) | Const.TYPE_DOUBLE);
+                this.writeDouble((Double) data);
                 break;
             case Const.TYPE_STRING:
-                bodyBuf.writeVarUint((dataPool.registerString(data.toString()) << 3) | Const.TYPE_STRING);
+                this.writeString(data.toString());
                 break;
             case Const.TYPE_SYMBOL:
                 if (enableStreamMode) {
@@ -255,15 +563,24 @@ public final class Output {
                 break;
             case Const.TYPE_OBJECT:
                 ObjectNode node = (ObjectNode) data;
+                int sizedPos = this.beginContainer();
+                if (sparse) {
+                    bodyBuf.writeVarUint(Const.CONST_SPARSE);
+                }
                 if (enableStreamMode && node.isStable()) {
                     bodyBuf.writeVarUint(metaPool.registerCxtStruct(node.keys()) << 3 | Const.TYPE_OBJECT);
                 } else {
                     bodyBuf.writeVarUint(metaPool.registerTmpStruct(node.keys()) << 3 | Const.TYPE_OBJECT);
                 }
-                this.writeObjectNode(node);
+                if (sparse) {
+                    this.writeSparseValues(node.values(), node.types());
+                } else {
+                    this.writeObjectNode(node);
+                }
+                this.endContainer(sizedPos);
                 break;
             case Const.TYPE_ARRAY:
-                this.writeArray((Collection<?>) data);
+                this.writeArray(((Collection<?>) data).iterator());
                 break;
             case Const.TYPE_NARRAY_BOOL:
                 boolean[] booleans = (boolean[]) data;
@@ -277,26 +594,65 @@ public final class Output {
                 break;
             case Const.TYPE_NARRAY_SHORT:
                 short[] shorts = (short[]) data;
+                if (shorts.length >= ArrayPacker.MIN_PACK_SIZE) {
+                    long[] values = this.packBuffer(shorts.length);
+                    for (int i = 0; i < shorts.length; i++) {
+                        values[i] = shorts[i];
+                    }
+                    if (this.writePackedArray(type, values, shorts.length)) {
+                        break;
+                    }
+                }
                 bodyBuf.writeVarUint(shorts.length << 6 | Const.TYPE_NARRAY_SHORT);
                 bodyBuf.writeShortArray(shorts);
                 break;
             case Const.TYPE_NARRAY_INT:
                 int[] ints = (int[]) data;
+                if (ints.length >= ArrayPacker.MIN_PACK_SIZE) {
+                    long[] values = this.packBuffer(ints.length);
+                    for (int i = 0; i < ints.length; i++) {
+                        values[i] = ints[i];
+                    }
+                    if (this.writePackedArray(type, values, ints.length)) {
+                        break;
+                    }
+                }
                 bodyBuf.writeVarUint(ints.length << 6 | Const.TYPE_NARRAY_INT);
                 bodyBuf.writeIntArray(ints);
                 break;
             case Const.TYPE_NARRAY_LONG:
                 long[] longs = (long[]) data;
+                if (longs.length >= ArrayPacker.MIN_PACK_SIZE && this.writePackedArray(type, longs, longs.length)) {
+                    break;
+                }
                 bodyBuf.writeVarUint(longs.length << 6 | Const.TYPE_NARRAY_LONG);
                 bodyBuf.writeLongArray(longs);
                 break;
             case Const.TYPE_NARRAY_FLOAT:
                 float[] floats = (float[]) data;
+                if (floats.length >= ArrayPacker.MIN_PACK_SIZE) {
+                    long[] values = this.packBuffer(floats.length);
+                    for (int i = 0; i < floats.length; i++) {
+                        values[i] = NumberUtils.floatToBits(floats[i]) & 0xFFFFFFFFL;
+                    }
+                    if (this.writePackedArray(type, values, floats.length)) {
+                        break;
+                    }
+                }
                 bodyBuf.writeVarUint(floats.length << 6 | Const.TYPE_NARRAY_FLOAT);
                 bodyBuf.writeFloatArray(floats);
                 break;
             case Const.TYPE_NARRAY_DOUBLE:
                 double[] doubles = (double[]) data;
+                if (doubles.length >= ArrayPacker.MIN_PACK_SIZE) {
+                    long[] values = this.packBuffer(doubles.length);
+                    for (int i = 0; i < doubles.length; i++) {
+                        values[i] = NumberUtils.doubleToBits(doubles[i]);
+                    }
+                    if (this.writePackedArray(type, values, doubles.length)) {
+                        break;
+                    }
+                }
                 bodyBuf.writeVarUint(doubles.length << 6 | Const.TYPE_NARRAY_DOUBLE);
                 bodyBuf.writeDoubleArray(doubles);
                 break;
@@ -306,104 +662,146 @@ public final class Output {
     }
 
     /**
-     * Write an array into body, it will scan all items and write those group by different slices
+     * Write the specified varint, it's written inline unless it repeats in this message
+     */
+    void writeVarint(long l) throws IOException {
+        int id = dataPool.adaptVarint(l);
+        if (id == 0) {
+            bodyBuf.writeVarUint(Const.CONST_INLINE);
+            bodyBuf.writeVarUint(NumberUtils.intToUint(l) << 2 | Const.INLINE_VARINT);
+        } else {
+            bodyBuf.writeVarUint((id << 3) | Const.TYPE_VARINT);
+        }
+    }
+
+    /**
+     * Write the specified float, it's written inline unless it repeats in this message
+     */
+    void writeFloat(float f) throws IOException {
+        int id = dataPool.adaptFloat(f);
+        if (id == 0) {
+            bodyBuf.writeVarUint(Const.CONST_INLINE);
+            bodyBuf.writeVarUint(Const.INLINE_FLOAT);
+            bodyBuf.writeFloat(f);
+        } else {
+            bodyBuf.writeVarUint((id << 3) | Const.TYPE_FLOAT);
+        }
+    }
+
+    /**
+     * Write the specified double, it's written inline unless it repeats in this message
+     */
+    void writeDouble(double d) throws IOException {
+        int id = dataPool.adaptDouble(d);
+        if (id == 0) {
+            bodyBuf.writeVarUint(Const.CONST_INLINE);
+            bodyBuf.writeVarUint(Const.INLINE_DOUBLE);
+            bodyBuf.writeDouble(d);
+        } else {
+            bodyBuf.writeVarUint((id << 3) | Const.TYPE_DOUBLE);
+        }
+    }
+
+    /**
+     * Write the specified string, it's written inline unless it repeats in this message or it's long
+     */
+    void writeString(String s) throws IOException {
+        int id = dataPool.adaptString(s);
+        if (id == 0) {
+            bodyBuf.writeVarUint(Const.CONST_INLINE);
+            bodyBuf.writeVarUint(Const.INLINE_STRING);
+            bodyBuf.writeString(s);
+        } else {
+            bodyBuf.writeVarUint((id << 3) | Const.TYPE_STRING);
+        }
+    }
+
+    /**
+     * Write the specified numeric array in packed layout if it's smaller than the normal layout.
+     *
+     * @return false if the array should keep its normal layout
+     */
+    private boolean writePackedArray(byte type, long[] values, int len) throws IOException {
+        byte enc = ArrayPacker.choose(type, values, len);
+        if (enc == ArrayPacker.ENC_NONE) {
+            return false;
+        }
+        bodyBuf.writeVarUint(len << 6 | Const.TYPE_NARRAY_PACKED);
+        ArrayPacker.write(bodyBuf, type, enc, values, len);
+        return true;
+    }
+
+    /**
+     * Get the reused long[] for widening short[], int[] and the bits of float[], double[] before packing
+     */
+    private long[] packBuffer(int len) {
+        if (packBuf.length < len) {
+            this.packBuf = new long[Math.max(len, packBuf.length * 2)];
+        }
+        return packBuf;
+    }
+
+    /**
+     * Write an array into body, it will pull all items and write those group by different slices.
+     * Items are encoded as they are pulled, so the source could be lazy and has unknown length.
      */
-    void writeArray(Collection<?> arr) throws IOException {
-        if (arr.isEmpty()) {
+    void writeArray(Iterator<?> it) throws IOException {
+        if (!it.hasNext()) {
             bodyBuf.writeVarUint(Const.CONST_ZERO_ARRAY);
             return;
         }
 
+        int sizedPos = this.beginContainer();
+        arrayDepth++;
         byte sliceType = -1;
         int sliceLen = 0;
         int sliceHeadOffset = 0;
         String[] sliceKey = null;
+        boolean sliceStable = false;
         boolean isFirstSlice = true;
+        List<Object[]> rows = null; // the buffered rows of columnar slice
 
         // loop write all items
-        ConverterPipeline pipeline = null;
+        Handler handler = null;
         Class<?> prevCls = null;
-        for (Iterator it = arr.iterator(); ; ) {
+        while (true) {
             Object item = it.next();
             Class<?> itemCls = item == null ? null : item.getClass();
-            String[] itemKey = null;
-            byte itemType = -1;
+            if (itemCls != prevCls) {
+                handler = itemCls == null ? null : handlerOf(itemCls);
+                prevCls = itemCls;
+            }
             // determine the current item's metadata
-            Node node = null;
-            if (item == null) {
+            String[] itemKey = null;
+            byte itemType;
+            if (handler == null) {
                 itemType = Const.TYPE_SLICE_NULL;
-            } else if (pipeline != null && prevCls == itemCls) {
-                node = (Node) pipeline.convert(item, nodeXType); // reusing the previous's pipeline
-            } else if (prevCls == itemCls) {
-                itemType = sliceType; // reusing the previous's type
-            } else if (item instanceof Boolean) {
-                itemType = Const.TYPE_SLICE_BOOL;
-            } else if (item instanceof Byte) {
-                itemType = Const.TYPE_SLICE_BYTE;
-            } else if (item instanceof Short) {
-                itemType = Const.TYPE_SLICE_SHORT;
-            } else if (item instanceof Integer) {
-                itemType = Const.TYPE_SLICE_INT;
-            } else if (item instanceof Long) {
-                itemType = Const.TYPE_SLICE_LONG;
-            } else if (item instanceof Float) {
-                itemType = Const.TYPE_SLICE_FLOAT;
-            } else if (item instanceof Double) {
-                itemType = Const.TYPE_SLICE_DOUBLE;
-            } else if (item instanceof Character || item instanceof CharSequence) {
-                itemType = Const.TYPE_SLICE_STRING;
-            } else if (item instanceof Enum) {
-                itemType = Const.TYPE_SLICE_SYMBOL;
-            } else if (item instanceof Collection) {
-                itemType = Const.TYPE_SLICE_UNKNOWN;
-            } else if (itemCls.isArray()) {
-                if (item instanceof char[]) {
-                    itemType = Const.TYPE_SLICE_STRING;
-                } else {
-                    itemType = Const.TYPE_SLICE_UNKNOWN;
+            } else if (handler.kind == KIND_BEAN) {
+                itemKey = handler.encoder.getFieldNames();
+                itemType = Const.TYPE_SLICE_OBJECT;
+            } else if (handler.kind == KIND_MAP) {
+                itemKey = toStructKeys((Map<?, ?>) item);
+                itemType = Const.TYPE_SLICE_OBJECT;
+            } else if (handler.kind == KIND_NODE || handler.kind == KIND_CODEC) {
+                Node node = handler.toNode(item, nodeXType);
+                item = node == null ? null : node.value();
+                itemType = node == null ? Const.TYPE_SLICE_NULL : toSliceType(node.type());
+                if (itemType == Const.TYPE_SLICE_OBJECT) {
+                    itemKey = ((ObjectNode) node).keys();
                 }
             } else {
-                pipeline = CodecUtils.getPipeline(itemCls, Node.class);
-                node = (Node) pipeline.convert(item, nodeXType);
+                itemType = handler.sliceType;
             }
-            if (node != null) {
-                item = node.value();
-                switch (node.type()) {
-                    case BOOLEAN:
-                        itemType = Const.TYPE_SLICE_BOOL;
-                        break;
-                    case DOUBLE:
-                        itemType = Const.TYPE_SLICE_DOUBLE;
-                        break;
-                    case FLOAT:
-                        itemType = Const.TYPE_SLICE_FLOAT;
-                        break;
-                    case VARINT:
-                        itemType = Const.TYPE_SLICE_LONG;
-                        break;
-                    case STRING:
-                        itemType = Const.TYPE_SLICE_STRING;
-                        break;
-                    case SYMBOL:
-                        itemType = Const.TYPE_SLICE_SYMBOL;
-                        break;
-                    case OBJECT:
-                        itemKey = ((ObjectNode) node).keys();
-                        itemType = Const.TYPE_SLICE_OBJECT;
-                        break;
-                    default:
-                        itemType = Const.TYPE_SLICE_UNKNOWN;
-                }
-            } else if (itemType == -1) {
-                itemType = Const.TYPE_SLICE_NULL;
+            if (itemType == Const.TYPE_SLICE_OBJECT && (columnar || sparse)) {
+                itemType = columnar ? Const.TYPE_SLICE_COLUMN : Const.TYPE_SLICE_SPARSE;
             }
-            prevCls = itemCls;
 
             // terminate the previous slice if it's broken
             boolean typeBroken = sliceType >= 0 && (sliceType != itemType || !Arrays.equals(sliceKey, itemKey));
             boolean hitLimit = (sliceLen + 1) >= (isFirstSlice ? (1 << 6) : (1 << 11));
             if (typeBroken || hitLimit) {
-                this.writeSliceMetadata(sliceHeadOffset, isFirstSlice, sliceLen, sliceType, true);
+                byte type = sliceType == Const.TYPE_SLICE_COLUMN ? this.writeColumns(sliceKey, sliceStable, rows) : sliceType;
+                this.writeSliceMetadata(sliceHeadOffset, isFirstSlice, sliceLen, type, true);
                 isFirstSlice = false;
             }
 
@@ -412,8 +810,7 @@ public final class Output {
                 sliceType = itemType;
                 sliceKey = itemKey;
                 sliceLen = 0;
-                sliceHeadOffset = bodyBuf.offset;
-                bodyBuf.offset += 2; // skip 2-byte for storing slice metadata
+                sliceHeadOffset = bodyBuf.skip(2); // skip 2-byte for storing slice metadata
             }
 
             // output current item
@@ -459,15 +856,33 @@ public final class Output {
                     bodyBuf.writeVarUint(enableStreamMode ? dataPool.registerSymbol(str) : dataPool.registerString(str));
                     break;
                 case Const.TYPE_SLICE_OBJECT:
-                    ObjectNode objectNode = (ObjectNode) item;
+                case Const.TYPE_SLICE_SPARSE:
                     if (sliceLen == 0) {
-                        if (enableStreamMode && objectNode.isStable()) {
-                            bodyBuf.writeVarUint(metaPool.registerCxtStruct(objectNode.keys()));
+                        boolean stable = item instanceof ObjectNode ? ((ObjectNode) item).isStable() : handler.kind == KIND_BEAN;
+                        if (enableStreamMode && stable) {
+                            bodyBuf.writeVarUint(metaPool.registerCxtStruct(itemKey));
                         } else {
-                            bodyBuf.writeVarUint(metaPool.registerTmpStruct(objectNode.keys()));
+                            bodyBuf.writeVarUint(metaPool.registerTmpStruct(itemKey));
                         }
                     }
-                    this.writeObjectNode(objectNode);
+                    containerDepth++; // slice's object has no head, so it's never sized
+                    if (itemType == Const.TYPE_SLICE_SPARSE) {
+                        this.writeSparseFields(item, handler);
+                    } else if (item instanceof ObjectNode) {
+                        this.writeObjectNode((ObjectNode) item);
+                    } else if (item instanceof Map) {
+                        this.writeMapValues((Map<?, ?>) item);
+                    } else {
+                        handler.encoder.encode(item, beanSink);
+                    }
+                    containerDepth--;
+                    break;
+                case Const.TYPE_SLICE_COLUMN:
+                    if (sliceLen == 0) {
+                        sliceStable = item instanceof ObjectNode ? ((ObjectNode) item).isStable() : handler.kind == KIND_BEAN;
+                        rows = rows == null ? new ArrayList<>() : rows;
+                    }
+                    rows.add(this.toRow(item, handler, itemKey.length));
                     break;
                 default:
                     this.writeObject(item);
@@ -475,25 +890,193 @@ public final class Output {
             sliceLen++;
             // output the last slice's metadata if need
             if (!it.hasNext()) {
-                this.writeSliceMetadata(sliceHeadOffset, isFirstSlice, sliceLen, sliceType, false);
+                byte type = sliceType == Const.TYPE_SLICE_COLUMN ? this.writeColumns(sliceKey, sliceStable, rows) : sliceType;
+                this.writeSliceMetadata(sliceHeadOffset, isFirstSlice, sliceLen, type, false);
                 break;
             }
+            // cut the outermost array into the next frame, inner arrays' slice metadata can't be cut
+            if (frameStream != null && arrayDepth == 1 && bodyBuf.size() >= frameSize) {
+                byte type = sliceType == Const.TYPE_SLICE_COLUMN ? this.writeColumns(sliceKey, sliceStable, rows) : sliceType;
+                this.writeSliceMetadata(sliceHeadOffset, isFirstSlice, sliceLen, type, true);
+                this.flushFrame();
+                isFirstSlice = false;
+                sliceType = -1;
+                sliceLen = 0;
+            }
+        }
+        arrayDepth--;
+        this.endContainer(sizedPos);
+    }
+
+    /**
+     * Collect the field values of the specified object as a row of columnar slice
+     */
+    private Object[] toRow(Object item, Handler handler, int len) throws IOException {
+        if (item instanceof ObjectNode) {
+            return ((ObjectNode) item).values();
+        }
+        Object[] row = new Object[len];
+        if (item instanceof Map) {
+            int off = 0;
+            for (Object value : ((Map<?, ?>) item).values()) {
+                row[off++] = value;
+            }
+        } else {
+            columnSink.row = row;
+            columnSink.offset = 0;
+            handler.encoder.encode(item, columnSink);
+            columnSink.row = null;
+        }
+        return row;
+    }
+
+    /**
+     * Write the buffered rows of columnar slice, include its struct id.
+     * Short runs aren't worth the columns' metadata, they're written as normal object slice.
+     *
+     * @return The actual type of slice
+     */
+    private byte writeColumns(String[] keys, boolean stable, List<Object[]> rows) throws IOException {
+        if (enableStreamMode && stable) {
+            bodyBuf.writeVarUint(metaPool.registerCxtStruct(keys));
+        } else {
+            bodyBuf.writeVarUint(metaPool.registerTmpStruct(keys));
+        }
+        int rowCount = rows.size();
+        containerDepth++; // columns belong to the slice's objects, which have no head
+        if (rowCount < MIN_COLUMN_ROWS) {
+            for (Object[] row : rows) {
+                for (Object value : row) {
+                    this.writeObject(value);
+                }
+            }
+            containerDepth--;
+            rows.clear();
+            return Const.TYPE_SLICE_OBJECT;
+        }
+        Object[] values = new Object[rowCount];
+        for (int col = 0; col < keys.length; col++) {
+            int count = 0;
+            for (Object[] row : rows) {
+                if (row[col] != null) {
+                    values[count++] = row[col];
+                }
+            }
+            if (count == 0) {
+                bodyBuf.writeVarUint(Const.CONST_FALSE);
+                continue;
+            }
+            if (count == rowCount) {
+                bodyBuf.writeVarUint(Const.CONST_TRUE);
+            } else {
+                boolean[] presence = new boolean[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    presence[i] = rows.get(i)[col] != null;
+                }
+                this.writeData(Const.TYPE_NARRAY_BOOL, presence);
+            }
+            this.writeColumn(values, count);
+        }
+        containerDepth--;
+        rows.clear();
+        return Const.TYPE_SLICE_COLUMN;
+    }
+
+    /**
+     * Write the non-null values of a column, values of the same primitive wrapper become native array.
+     */
+    private void writeColumn(Object[] values, int count) throws IOException {
+        Class<?> cls = values[0].getClass();
+        for (int i = 1; i < count; i++) {
+            if (values[i].getClass() != cls) {
+                cls = null;
+                break;
+            }
+        }
+        if (cls == Long.class) {
+            long[] longs = new long[count];
+            for (int i = 0; i < count; i++) {
+                longs[i] = (Long) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_LONG, longs);
+        } else if (cls == Integer.class) {
+            int[] ints = new int[count];
+            for (int i = 0; i < count; i++) {
+                ints[i] = (Integer) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_INT, ints);
+        } else if (cls == Short.class) {
+            short[] shorts = new short[count];
+            for (int i = 0; i < count; i++) {
+                shorts[i] = (Short) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_SHORT, shorts);
+        } else if (cls == Byte.class) {
+            byte[] bytes = new byte[count];
+            for (int i = 0; i < count; i++) {
+                bytes[i] = (Byte) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_BYTE, bytes);
+        } else if (cls == Float.class) {
+            float[] floats = new float[count];
+            for (int i = 0; i < count; i++) {
+                floats[i] = (Float) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_FLOAT, floats);
+        } else if (cls == Double.class) {
+            double[] doubles = new double[count];
+            for (int i = 0; i < count; i++) {
+                doubles[i] = (Double) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_DOUBLE, doubles);
+        } else if (cls == Boolean.class) {
+            boolean[] bools = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                bools[i] = (Boolean) values[i];
+            }
+            this.writeData(Const.TYPE_NARRAY_BOOL, bools);
+        } else {
+            this.writeArray(Arrays.asList(values).subList(0, count).iterator());
+        }
+    }
+
+    /**
+     * Enter a container, and write its sized prefix if need.
+     *
+     * @return The position of its byte length, or -1 if it's not sized
+     */
+    private int beginContainer() throws IOException {
+        int depth = containerDepth++;
+        if (depth == 0 || depth > sizedDepth || frameStream != null) {
+            return -1;
+        }
+        bodyBuf.writeVarUint(Const.CONST_SIZED);
+        return bodyBuf.skip(4);
+    }
+
+    /**
+     * Leave the current container, and fill its byte length if it's sized.
+     * The length is left 0 if it exceeds {@link #SIZED_LIMIT}, which means the container should be walked to skip.
+     */
+    private void endContainer(int sizedPos) {
+        containerDepth--;
+        if (sizedPos >= 0) {
+            int len = bodyBuf.size() - sizedPos - 4;
+            bodyBuf.writeVarUintAt(sizedPos, len > SIZED_LIMIT ? 0 : len);
         }
     }
 
     /**
      * Write a 2-byte metadata of Fixed-Sliceinto the specified position
      */
-    private void writeSliceMetadata(int headOffset, boolean isFirst, int len, byte type, boolean hasMore) throws IOException {
-        int tmp = bodyBuf.offset;
-        bodyBuf.offset = headOffset;
+    void writeSliceMetadata(int headOffset, boolean isFirst, int len, byte type, boolean hasMore) {
         if (isFirst) {
             // need compatible with writeObject, must write 2-byte varint
-            bodyBuf.writeVarUint(len << 8 | type << 4 | (hasMore ? 0b0000_1000 : 0) | Const.TYPE_ARRAY);
+            int n = len << 8 | type << 4 | (hasMore ? 0b0000_1000 : 0) | Const.TYPE_ARRAY;
+            bodyBuf.writeShortAt(headOffset, (short) ((n | 0x80) << 8 | n >>> 7));
         } else {
-            bodyBuf.writeShort((short) (len << 5 | type << 1 | (hasMore ? 0b0000_0001 : 0)));
+            bodyBuf.writeShortAt(headOffset, (short) (len << 5 | type << 1 | (hasMore ? 0b0000_0001 : 0)));
         }
-        bodyBuf.offset = tmp;
     }
 
     /**
@@ -503,76 +1086,479 @@ public final class Output {
         Object[] values = node.values();
         Type[] types = node.types();
         for (int i = 0, len = values.length; i < len; i++) {
-            Object value = values[i];
-            if (value == null) {
-                this.writeData(Const.TYPE_CONST, null);
-                continue;
+            this.writeValue(values[i], types == null ? Type.UNKNOWN : types[i]);
+        }
+    }
+
+    /**
+     * Write the specified POJO into output buffer by its compiled encoder
+     */
+    private void writeBean(BeanEncoder encoder, Object bean) throws IOException {
+        String[] names = encoder.getFieldNames();
+        int sizedPos = this.beginContainer();
+        if (sparse) {
+            bodyBuf.writeVarUint(Const.CONST_SPARSE);
+        }
+        if (enableStreamMode) {
+            bodyBuf.writeVarUint(metaPool.registerCxtStruct(names) << 3 | Const.TYPE_OBJECT);
+        } else {
+            bodyBuf.writeVarUint(metaPool.registerTmpStruct(names) << 3 | Const.TYPE_OBJECT);
+        }
+        if (sparse) {
+            this.writeSparseBean(encoder, bean);
+        } else {
+            encoder.encode(bean, beanSink);
+        }
+        this.endContainer(sizedPos);
+    }
+
+    /**
+     * Write the specified Map into output buffer as temporary struct, without converting it into ObjectNode
+     */
+    private void writeMap(Map<?, ?> map) throws IOException {
+        String[] keys = toStructKeys(map);
+        int sizedPos = this.beginContainer();
+        if (sparse) {
+            bodyBuf.writeVarUint(Const.CONST_SPARSE);
+            bodyBuf.writeVarUint(metaPool.registerTmpStruct(keys) << 3 | Const.TYPE_OBJECT);
+            this.writeSparseValues(map.values().toArray(), null);
+        } else {
+            bodyBuf.writeVarUint(metaPool.registerTmpStruct(keys) << 3 | Const.TYPE_OBJECT);
+            this.writeMapValues(map);
+        }
+        this.endContainer(sizedPos);
+    }
+
+    /**
+     * Write all values of the specified Map, their order should be the same as {@link #toStructKeys}
+     */
+    private void writeMapValues(Map<?, ?> map) throws IOException {
+        for (Object value : map.values()) {
+            this.writeObject(value);
+        }
+    }
+
+    /**
+     * Write the presence bitmap and present fields of the specified object, it could be ObjectNode, Map or POJO.
+     */
+    private void writeSparseFields(Object item, Handler handler) throws IOException {
+        if (item instanceof ObjectNode) {
+            this.writeSparseValues(((ObjectNode) item).values(), ((ObjectNode) item).types());
+        } else if (item instanceof Map) {
+            this.writeSparseValues(((Map<?, ?>) item).values().toArray(), null);
+        } else {
+            this.writeSparseBean(handler.encoder, item);
+        }
+    }
+
+    /**
+     * Write the presence bitmap of the specified values, and then the present values
+     */
+    private void writeSparseValues(Object[] values, Type[] types) throws IOException {
+        int len = values.length;
+        for (int i = 0; i < len; i += 8) {
+            int bits = 0;
+            for (int j = i, end = Math.min(len, i + 8); j < end; j++) {
+                if (!isDefault(values[j], types == null ? Type.UNKNOWN : types[j])) {
+                    bits |= 1 << (j - i);
+                }
             }
-            switch (types == null ? Type.UNKNOWN : types[i]) {
-                case Z:
-                case BOOLEAN:
-                    this.writeData(Const.TYPE_CONST, value);
-                    break;
-                case B:
-                case BYTE:
-                case S:
-                case SHORT:
-                case I:
-                case INTEGER:
-                case J:
-                case LONG:
-                    this.writeData(Const.TYPE_VARINT, value);
-                    break;
-                case F:
-                case FLOAT:
-                    this.writeData(Const.TYPE_FLOAT, value);
-                    break;
-                case D:
-                case DOUBLE:
-                    this.writeData(Const.TYPE_DOUBLE, value);
-                    break;
-                case C:
-                case CHAR:
-                case STRING:
-                    this.writeData(Const.TYPE_STRING, value);
-                    break;
-                case SYMBOL:
-                    this.writeData(Const.TYPE_SYMBOL, ((Enum) value).name());
-                    break;
-                case ARRAY_BOOL:
-                    this.writeData(Const.TYPE_NARRAY_BOOL, value);
-                    break;
-                case ARRAY_BYTE:
-                    this.writeData(Const.TYPE_NARRAY_BYTE, value);
-                    break;
-                case ARRAY_SHORT:
-                    this.writeData(Const.TYPE_NARRAY_SHORT, value);
-                    break;
-                case ARRAY_INT:
-                    this.writeData(Const.TYPE_NARRAY_INT, value);
-                    break;
-                case ARRAY_LONG:
-                    this.writeData(Const.TYPE_NARRAY_LONG, value);
-                    break;
-                case ARRAY_FLOAT:
-                    this.writeData(Const.TYPE_NARRAY_FLOAT, value);
-                    break;
-                case ARRAY_DOUBLE:
-                    this.writeData(Const.TYPE_NARRAY_DOUBLE, value);
-                    break;
-                case ARRAY_CHAR:
-                    this.writeData(Const.TYPE_STRING, new String((char[]) value));
-                    break;
-                case ARRAY:
-                    this.writeData(Const.TYPE_ARRAY, Arrays.asList((Object[]) value));
-                    break;
-                case COLLECTION:
-                    this.writeData(Const.TYPE_ARRAY, value);
-                    break;
-                default:
-                    this.writeObject(value);
-                    break;
+            bodyBuf.writeByte((byte) bits);
+        }
+        for (int i = 0; i < len; i++) {
+            Type type = types == null ? Type.UNKNOWN : types[i];
+            if (!isDefault(values[i], type)) {
+                this.writeValue(values[i], type);
             }
         }
     }
+
+    /**
+     * Write the presence bitmap and present fields of the specified POJO, its fields are collected before writing,
+     * so the bitmap is complete before any field, even if a field's array is cut into the next frame.
+     */
+    private void writeSparseBean(BeanEncoder encoder, Object bean) throws IOException {
+        Type[] types = encoder.getFieldTypes();
+        Object[] values = new Object[types.length];
+        columnSink.row = values;
+        columnSink.offset = 0;
+        encoder.encode(bean, columnSink);
+        columnSink.row = null;
+        this.writeSparseValues(values, types);
+    }
+
+    /**
+     * Check whether the specified value could be omitted in sparse object, it's null or primitive's default value
+     */
+    private static boolean isDefault(Object value, Type type) {
+        if (value == null) {
+            return true;
+        }
+        switch (type) {
+            case Z:
+                return !(Boolean) value;
+            case B:
+            case S:
+            case I:
+            case J:
+                return ((Number) value).longValue() == 0;
+            case F:
+                return Float.floatToRawIntBits(((Number) value).floatValue()) == 0;
+            case D:
+                return Double.doubleToRawLongBits(((Number) value).doubleValue()) == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Collect keys of the specified Map as struct's field names, non-string key will be converted.
+     */
+    private static String[] toStructKeys(Map<?, ?> map) {
+        String[] keys = new String[map.size()];
+        int offset = 0;
+        for (Object key : map.keySet()) {
+            keys[offset++] = key instanceof String ? (String) key : CodecUtils.convert(key, String.class);
+        }
+        return keys;
+    }
+
+    /**
+     * Get the cached {@link Handler} of the specified class, it's stale if codecs were installed after resolving
+     */
+    private static Handler handlerOf(Class<?> cls) {
+        Handler handler = HANDLERS.get(cls);
+        if (handler.generation != CodecUtils.getGeneration()) {
+            HANDLERS.remove(cls);
+            handler = HANDLERS.get(cls);
+        }
+        return handler;
+    }
+
+    /**
+     * Resolve the {@link Handler} of the specified class
+     */
+    private static Handler resolveHandler(Class<?> cls) {
+        if (cls == Boolean.class) {
+            return new Handler(KIND_BOOL, Const.TYPE_SLICE_BOOL);
+        } else if (cls == Byte.class) {
+            return new Handler(KIND_VARINT, Const.TYPE_SLICE_BYTE);
+        } else if (cls == Short.class) {
+            return new Handler(KIND_VARINT, Const.TYPE_SLICE_SHORT);
+        } else if (cls == Integer.class) {
+            return new Handler(KIND_VARINT, Const.TYPE_SLICE_INT);
+        } else if (cls == Long.class) {
+            return new Handler(KIND_VARINT, Const.TYPE_SLICE_LONG);
+        } else if (cls == Float.class) {
+            return new Handler(KIND_FLOAT, Const.TYPE_SLICE_FLOAT);
+        } else if (cls == Double.class) {
+            return new Handler(KIND_DOUBLE, Const.TYPE_SLICE_DOUBLE);
+        } else if (cls == Character.class || CharSequence.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_STRING, Const.TYPE_SLICE_STRING);
+        } else if (Collection.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_COLLECTION, Const.TYPE_SLICE_UNKNOWN);
+        } else if (Enum.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_ENUM, Const.TYPE_SLICE_SYMBOL);
+        } else if (cls.isArray()) {
+            if (cls == char[].class) {
+                return new Handler(KIND_CHARS, Const.TYPE_SLICE_STRING);
+            }
+            Handler handler = new Handler(KIND_NARRAY, Const.TYPE_SLICE_UNKNOWN);
+            if (cls == boolean[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_BOOL;
+            } else if (cls == byte[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_BYTE;
+            } else if (cls == short[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_SHORT;
+            } else if (cls == int[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_INT;
+            } else if (cls == long[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_LONG;
+            } else if (cls == float[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_FLOAT;
+            } else if (cls == double[].class) {
+                handler.narrayType = Const.TYPE_NARRAY_DOUBLE;
+            } else {
+                return new Handler(KIND_ARRAY, Const.TYPE_SLICE_UNKNOWN);
+            }
+            return handler;
+        } else if (Node.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_NODE, Const.TYPE_SLICE_UNKNOWN);
+        } else if (Map.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_MAP, Const.TYPE_SLICE_OBJECT);
+        } else if (BaseStream.class.isAssignableFrom(cls)) {
+            return new Handler(KIND_STREAM, Const.TYPE_SLICE_UNKNOWN);
+        }
+        Handler handler;
+        ConverterPipeline pipeline = CodecUtils.getPipeline(cls, Node.class);
+        Class<?> realSrc = getRealSrcClass(pipeline);
+        if (realSrc == Iterator.class) {
+            handler = new Handler(KIND_ITERATOR, Const.TYPE_SLICE_UNKNOWN);
+        } else if (realSrc == Iterable.class) {
+            handler = new Handler(KIND_ITERABLE, Const.TYPE_SLICE_UNKNOWN);
+        } else if (isBeanPipeline(pipeline)) {
+            handler = new Handler(KIND_BEAN, Const.TYPE_SLICE_OBJECT);
+            handler.encoder = BeanEncoderBuilder.build(cls);
+        } else {
+            handler = new Handler(KIND_CODEC, Const.TYPE_SLICE_UNKNOWN);
+            handler.pipeline = pipeline;
+        }
+        return handler;
+    }
+
+    /**
+     * Convert the specified node type to slice type
+     */
+    private static byte toSliceType(NodeType nodeType) {
+        switch (nodeType) {
+            case BOOLEAN:
+                return Const.TYPE_SLICE_BOOL;
+            case DOUBLE:
+                return Const.TYPE_SLICE_DOUBLE;
+            case FLOAT:
+                return Const.TYPE_SLICE_FLOAT;
+            case VARINT:
+                return Const.TYPE_SLICE_LONG;
+            case STRING:
+                return Const.TYPE_SLICE_STRING;
+            case SYMBOL:
+                return Const.TYPE_SLICE_SYMBOL;
+            case OBJECT:
+                return Const.TYPE_SLICE_OBJECT;
+            default:
+                return Const.TYPE_SLICE_UNKNOWN;
+        }
+    }
+
+    /**
+     * Get the source class of the first real conversion in the specified pipeline.
+     * Iterator and Iterable would be collected into a Collection by codec, it's better to pull them directly.
+     */
+    private static Class<?> getRealSrcClass(ConverterPipeline pipeline) {
+        if (pipeline == null) {
+            return null;
+        }
+        for (ConverterMethod method : pipeline.getMethods()) {
+            if (method instanceof RealConverterMethod) {
+                return method.getSrcClass();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the specified pipeline converts POJO to {@link ObjectNode} by reflection,
+     * other codecs like Date or Map should still be used.
+     */
+    private static boolean isBeanPipeline(ConverterPipeline pipeline) {
+        if (pipeline == null) {
+            return false;
+        }
+        RealConverterMethod realMethod = null;
+        for (ConverterMethod method : pipeline.getMethods()) {
+            if (method instanceof RealConverterMethod) {
+                if (realMethod != null) {
+                    return false;
+                }
+                realMethod = (RealConverterMethod) method;
+            }
+        }
+        return realMethod != null && realMethod.getSrcClass() == Object.class && realMethod.getTgtClass() == ObjectNode.class;
+    }
+
+    /**
+     * Write the specified value into output buffer by its declared type
+     */
+    private void writeValue(Object value, Type type) throws IOException {
+        if (value == null) {
+            this.writeData(Const.TYPE_CONST, null);
+            return;
+        }
+        switch (type) {
+            case Z:
+            case BOOLEAN:
+                this.writeData(Const.TYPE_CONST, value);
+                break;
+            case B:
+            case BYTE:
+            case S:
+            case SHORT:
+            case I:
+            case INTEGER:
+            case J:
+            case LONG:
+                this.writeData(Const.TYPE_VARINT, value);
+                break;
+            case F:
+            case FLOAT:
+                this.writeData(Const.TYPE_FLOAT, value);
+                break;
+            case D:
+            case DOUBLE:
+                this.writeData(Const.TYPE_DOUBLE, value);
+                break;
+            case C:
+            case CHAR:
+            case STRING:
+                this.writeData(Const.TYPE_STRING, value);
+                break;
+            case SYMBOL:
+                this.writeData(Const.TYPE_SYMBOL, ((Enum) value).name());
+                break;
+            case ARRAY_BOOL:
+                this.writeData(Const.TYPE_NARRAY_BOOL, value);
+                break;
+            case ARRAY_BYTE:
+                this.writeData(Const.TYPE_NARRAY_BYTE, value);
+                break;
+            case ARRAY_SHORT:
+                this.writeData(Const.TYPE_NARRAY_SHORT, value);
+                break;
+            case ARRAY_INT:
+                this.writeData(Const.TYPE_NARRAY_INT, value);
+                break;
+            case ARRAY_LONG:
+                this.writeData(Const.TYPE_NARRAY_LONG, value);
+                break;
+            case ARRAY_FLOAT:
+                this.writeData(Const.TYPE_NARRAY_FLOAT, value);
+                break;
+            case ARRAY_DOUBLE:
+                this.writeData(Const.TYPE_NARRAY_DOUBLE, value);
+                break;
+            case ARRAY_CHAR:
+                this.writeData(Const.TYPE_STRING, new String((char[]) value));
+                break;
+            case ARRAY:
+                this.writeData(Const.TYPE_ARRAY, Arrays.asList((Object[]) value));
+                break;
+            case COLLECTION:
+                this.writeData(Const.TYPE_ARRAY, value);
+                break;
+            default:
+                this.writeObject(value);
+                break;
+        }
+    }
+
+    /**
+     * Handler represents how to write instances of one class, like its kind and slice type in array.
+     */
+    private static final class Handler {
+        final byte kind;
+        final byte sliceType;
+
+        byte              narrayType;
+        BeanEncoder       encoder;
+        ConverterPipeline pipeline;
+        int               generation;
+
+        Handler(byte kind, byte sliceType) {
+            this.kind = kind;
+            this.sliceType = sliceType;
+        }
+
+        /**
+         * Convert the specified data into node, only for node and codec
+         */
+        Node toNode(Object data, XType<?> nodeXType) {
+            if (kind == KIND_NODE) {
+                return (Node) data;
+            }
+            if (pipeline == null) {
+                throw new IllegalStateException("Can't convert " + data.getClass() + " to " + nodeXType);
+            }
+            return (Node) pipeline.convert(data, nodeXType);
+        }
+    }
+
+    /**
+     * BeanSink accepts POJO's field values from {@link BeanEncoder}, and writes them into body directly.
+     */
+    private final class BeanSink implements BeanEncoder.Sink {
+
+        @Override
+        public void writeNull() throws IOException {
+            bodyBuf.writeVarUint(Const.CONST_NULL);
+        }
+
+        @Override
+        public void writeBoolean(boolean b) throws IOException {
+            bodyBuf.writeVarUint(b ? Const.CONST_TRUE : Const.CONST_FALSE);
+        }
+
+        @Override
+        public void writeVarint(long l) throws IOException {
+            Output.this.writeVarint(l);
+        }
+
+        @Override
+        public void writeFloat(float f) throws IOException {
+            Output.this.writeFloat(f);
+        }
+
+        @Override
+        public void writeDouble(double d) throws IOException {
+            Output.this.writeDouble(d);
+        }
+
+        @Override
+        public void writeString(String s) throws IOException {
+            if (s == null) {
+                bodyBuf.writeVarUint(Const.CONST_NULL);
+            } else {
+                Output.this.writeString(s);
+            }
+        }
+
+        @Override
+        public void writeObject(Object o, Type type) throws IOException {
+            writeValue(o, type);
+        }
+    }
+
+    /**
+     * ColumnSink collects bean's field values into a row of columnar slice, primitive values are boxed.
+     */
+    private static final class ColumnSink implements BeanEncoder.Sink {
+
+        private Object[] row;
+        private int      offset;
+
+        @Override
+        public void writeNull() {
+            row[offset++] = null;
+        }
+
+        @Override
+        public void writeBoolean(boolean b) {
+            row[offset++] = b;
+        }
+
+        @Override
+        public void writeVarint(long l) {
+            row[offset++] = l;
+        }
+
+        @Override
+        public void writeFloat(float f) {
+            row[offset++] = f;
+        }
+
+        @Override
+        public void writeDouble(double d) {
+            row[offset++] = d;
+        }
+
+        @Override
+        public void writeString(String s) {
+            row[offset++] = s;
+        }
+
+        @Override
+        public void writeObject(Object o, Type type) {
+            row[offset++] = o;
+        }
+    }
+
 }
@@ -5,29 +5,70 @@ import com.github.smartbuf.utils.NumberUtils;
 import com.github.smartbuf.utils.UTF8Utils;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Encapsulate all serialize operations of output side.
+ * <p>
+ * The buffer is a list of segments, the first segment grows from 1KB to {@link #SEGMENT_SIZE},
+ * after that the full segment will be sealed and a new segment will be used, so big message won't
+ * copy the whole buffer while growing, and won't allocate humongous array.
+ * Segments are reused after {@link #reset()}.
  *
  * @author sulin
  * @since 2019-11-03 16:44:02
  */
 public final class OutputBuffer {
 
+    /**
+     * The size of standard segment, it's far below the humongous threshold of G1.
+     */
+    static final int SEGMENT_SIZE = 1 << 16;
+
     private final int limit;
 
     int    offset;
     byte[] data = new byte[1024];
 
+    private byte[][]     segments    = new byte[4][];
+    private int[]        segmentLens = new int[4];
+    private int          segmentCount;
+    private int          sealedBytes;
+    private byte[][]     spares      = new byte[4][];
+    private int          spareCount;
+    private ByteBuffer[] views       = new ByteBuffer[1];
+
     public OutputBuffer(int limit) {
         this.limit = limit;
     }
 
     /**
-     * Reset this buffer, simply reset the offset.
+     * Reset this buffer, sealed segments will be recycled for the next writing.
      */
     public void reset() {
         this.offset = 0;
+        if (segmentCount == 0 && data.length <= SEGMENT_SIZE) {
+            return;
+        }
+        for (int i = 0; i < segmentCount; i++) {
+            this.recycle(segments[i]);
+            segments[i] = null;
+        }
+        this.recycle(data);
+        this.data = spareCount > 0 ? spares[--spareCount] : new byte[1024];
+        this.spares[spareCount] = null;
+        this.segmentCount = 0;
+        this.sealedBytes = 0;
+    }
+
+    /**
+     * Get the number of bytes in this buffer
+     *
+     * @return Total size of all segments
+     */
+    public int size() {
+        return sealedBytes + offset;
     }
 
     public void writeByte(byte b) throws IOException {
@@ -53,16 +94,7 @@ public final class OutputBuffer {
         if (data.length < offset + 10) {
             this.ensureCapacity(offset + 10);
         }
-        int oldOffset = offset;
-        do {
-            if ((n & 0xFFFFFFFFFFFFFF80L) == 0) {
-                data[offset++] = (byte) n;
-            } else {
-                data[offset++] = (byte) ((n | 0x80) & 0xFF);
-            }
-            n >>>= 7;
-        } while (n != 0);
-        return offset - oldOffset;
+        return this.putVarUint(n);
     }
 
     public void writeFloat(float f) throws IOException {
@@ -100,13 +132,13 @@ public final class OutputBuffer {
         } else {
             expectedLen = 5;
         }
-        int writeFrom = offset + expectedLen;
-        if (data.length < writeFrom + strLen * 3) {
-            this.ensureCapacity(writeFrom + strLen * 3);
+        if (data.length < offset + expectedLen + strLen * 3) {
+            this.ensureCapacity(offset + expectedLen + strLen * 3);
         }
+        int writeFrom = offset + expectedLen;
         int writeTo = UTF8Utils.encode(str, data, writeFrom);
         int len = writeTo - writeFrom;
-        if (writeVarUint(len) < expectedLen) {
+        if (putVarUint(len) < expectedLen) {
             System.arraycopy(data, writeFrom, data, offset, len);
         }
         this.offset += len;
@@ -114,9 +146,6 @@ public final class OutputBuffer {
 
     public void writeBooleanArray(boolean[] arr) throws IOException {
         int len = arr.length;
-        if (data.length < offset + (len + 1) / 8) {
-            this.ensureCapacity(offset + (len + 1) / 8);
-        }
         int off;
         for (int i = 0; i < len; i += 8) {
             byte b = 0;
@@ -128,26 +157,30 @@ public final class OutputBuffer {
                     b |= 1 << j;
                 }
             }
+            if (data.length == offset) {
+                this.ensureCapacity(offset + 1);
+            }
             data[offset++] = b;
         }
     }
 
     public void writeByteArray(byte[] arr) throws IOException {
         int len = arr.length;
-        if (data.length < offset + len) {
-            this.ensureCapacity(offset + len);
+        int off = 0;
+        while (off < len) {
+            if (data.length == offset) {
+                this.ensureCapacity(offset + Math.min(len - off, SEGMENT_SIZE));
+            }
+            int n = Math.min(len - off, data.length - offset);
+            System.arraycopy(arr, off, data, offset, n);
+            this.offset += n;
+            off += n;
         }
-        System.arraycopy(arr, 0, data, offset, len);
-        this.offset += len;
     }
 
     public void writeShortArray(short[] arr) throws IOException {
-        if (data.length < offset + arr.length * 2) {
-            this.ensureCapacity(offset + arr.length * 2);
-        }
         for (short s : arr) {
-            data[offset++] = (byte) (s >> 8);
-            data[offset++] = (byte) (s & 0xFF);
+            writeShort(s);
         }
     }
 
@@ -175,14 +208,213 @@ public final class OutputBuffer {
         }
     }
 
+    /**
+     * Skip the specified number of bytes for writing them later by {@link #writeShortAt(int, short)},
+     * the skipped bytes are always in the same segment.
+     *
+     * @param n The number of bytes to skip
+     * @return The position of the skipped bytes
+     * @throws IOException if no enough space
+     */
+    public int skip(int n) throws IOException {
+        if (data.length < offset + n) {
+            this.ensureCapacity(offset + n);
+        }
+        int pos = sealedBytes + offset;
+        this.offset += n;
+        return pos;
+    }
+
+    /**
+     * Write a short at the specified position, which was skipped before.
+     *
+     * @param pos The position returned by {@link #skip(int)}
+     * @param s   The short to write
+     */
+    public void writeShortAt(int pos, short s) {
+        byte[] seg = data;
+        int off = pos - sealedBytes;
+        for (int i = segmentCount - 1; off < 0; i--) {
+            seg = segments[i];
+            off += segmentLens[i];
+        }
+        seg[off] = (byte) (s >> 8);
+        seg[off + 1] = (byte) (s & 0xFF);
+    }
+
+    /**
+     * Write a 4-byte padded varuint at the specified position, which was skipped before.
+     * The padding keeps it readable by normal varuint reading, so n must be less than 2^28.
+     *
+     * @param pos The position returned by {@link #skip(int)}
+     * @param n   The number to write
+     */
+    public void writeVarUintAt(int pos, int n) {
+        byte[] seg = data;
+        int off = pos - sealedBytes;
+        for (int i = segmentCount - 1; off < 0; i--) {
+            seg = segments[i];
+            off += segmentLens[i];
+        }
+        seg[off] = (byte) ((n & 0x7F) | 0x80);
+        seg[off + 1] = (byte) (((n >>> 7) & 0x7F) | 0x80);
+        seg[off + 2] = (byte) (((n >>> 14) & 0x7F) | 0x80);
+        seg[off + 3] = (byte) ((n >>> 21) & 0x7F);
+    }
+
+    /**
+     * Copy all bytes of this buffer into the specified byte[]
+     *
+     * @param dst    The byte[] to write into
+     * @param dstOff The offset of dst
+     */
+    public void copyTo(byte[] dst, int dstOff) {
+        for (int i = 0; i < segmentCount; i++) {
+            System.arraycopy(segments[i], 0, dst, dstOff, segmentLens[i]);
+            dstOff += segmentLens[i];
+        }
+        System.arraycopy(data, 0, dst, dstOff, offset);
+    }
+
+    /**
+     * Copy all bytes of this buffer into the specified {@link ByteBuffer}
+     *
+     * @param dst The buffer to write into, its position will be moved forward
+     */
+    public void copyTo(ByteBuffer dst) {
+        for (int i = 0; i < segmentCount; i++) {
+            dst.put(segments[i], 0, segmentLens[i]);
+        }
+        dst.put(data, 0, offset);
+    }
+
+    /**
+     * Write all bytes of this buffer into the specified {@link OutputStream} segment by segment.
+     *
+     * @param os The stream to write into
+     * @throws IOException if any io exception happens
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        for (int i = 0; i < segmentCount; i++) {
+            os.write(segments[i], 0, segmentLens[i]);
+        }
+        os.write(data, 0, offset);
+    }
+
+    /**
+     * Copy all bytes of this buffer into a new byte[]
+     *
+     * @return Content of this buffer
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[size()];
+        this.copyTo(result, 0);
+        return result;
+    }
+
+    /**
+     * Get the number of segments in use, include the current one.
+     *
+     * @return Segment number
+     */
+    public int segments() {
+        return segmentCount + 1;
+    }
+
+    /**
+     * Expose every segment as {@link ByteBuffer} into the specified array,
+     * they are reused and only valid until the next modification of this buffer.
+     *
+     * @param dst  The array to accept segments' {@link ByteBuffer}
+     * @param from The start index of dst
+     */
+    public void exportTo(ByteBuffer[] dst, int from) {
+        if (views.length < segmentCount + 1) {
+            ByteBuffer[] newViews = new ByteBuffer[segmentCount + 1];
+            System.arraycopy(views, 0, newViews, 0, views.length);
+            this.views = newViews;
+        }
+        for (int i = 0; i <= segmentCount; i++) {
+            byte[] seg = i < segmentCount ? segments[i] : data;
+            int len = i < segmentCount ? segmentLens[i] : offset;
+            if (views[i] == null || views[i].array() != seg) {
+                views[i] = ByteBuffer.wrap(seg);
+            }
+            views[i].limit(len).position(0);
+            dst[from + i] = views[i];
+        }
+    }
+
+    /**
+     * Write varuint into current segment without checking its space.
+     */
+    private int putVarUint(long n) {
+        int oldOffset = offset;
+        do {
+            if ((n & 0xFFFFFFFFFFFFFF80L) == 0) {
+                data[offset++] = (byte) n;
+            } else {
+                data[offset++] = (byte) ((n | 0x80) & 0xFF);
+            }
+            n >>>= 7;
+        } while (n != 0);
+        return offset - oldOffset;
+    }
+
+    /**
+     * Make sure the current segment could hold the specified size,
+     * grow the first small segment, or seal the current segment and switch to a new one.
+     */
     private void ensureCapacity(int size) throws IOException {
-        int newSize = Math.min(Math.max(data.length * 2, size), limit);
-        if (newSize < size) {
+        if (sealedBytes + size > limit) {
             throw new OutOfSpaceException("no space");
         }
-        byte[] newData = new byte[newSize];
-        System.arraycopy(data, 0, newData, 0, data.length);
-        this.data = newData;
+        if (size <= SEGMENT_SIZE) {
+            byte[] newData = new byte[Math.min(Math.max(data.length * 2, size), SEGMENT_SIZE)];
+            System.arraycopy(data, 0, newData, 0, offset);
+            this.data = newData;
+            return;
+        }
+        int need = size - offset;
+        if (offset > 0) {
+            if (segmentCount == segments.length) {
+                byte[][] newSegments = new byte[segmentCount * 2][];
+                int[] newLens = new int[segmentCount * 2];
+                System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+                System.arraycopy(segmentLens, 0, newLens, 0, segmentCount);
+                this.segments = newSegments;
+                this.segmentLens = newLens;
+            }
+            segments[segmentCount] = data;
+            segmentLens[segmentCount++] = offset;
+            this.sealedBytes += offset;
+            this.offset = 0;
+        } else {
+            this.recycle(data);
+        }
+        if (need > SEGMENT_SIZE) {
+            this.data = new byte[need]; // it's oversized, won't be reused
+        } else if (spareCount > 0) {
+            this.data = spares[--spareCount];
+            this.spares[spareCount] = null;
+        } else {
+            this.data = new byte[SEGMENT_SIZE];
+        }
+    }
+
+    /**
+     * Recycle the specified segment if it's standard
+     */
+    private void recycle(byte[] seg) {
+        if (seg.length != SEGMENT_SIZE) {
+            return;
+        }
+        if (spareCount == spares.length) {
+            byte[][] newSpares = new byte[spareCount * 2][];
+            System.arraycopy(spares, 0, newSpares, 0, spareCount);
+            this.spares = newSpares;
+        }
+        spares[spareCount++] = seg;
     }
 
 }
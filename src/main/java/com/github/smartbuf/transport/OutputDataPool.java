@@ -1,14 +1,14 @@
 package com.github.smartbuf.transport;
 
-import com.github.smartbuf.utils.TimeUtils;
-
 import java.io.IOException;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * DataPool represents an area holds data properties like float/double/varint/string/symbol.
  * <p>
  * It will allocate unique ID for every data object by its type and value.
+ * The adapt methods pool only repeated values or long strings, others should be written inline by the caller.
  *
  * @author sulin
  * @since 2019-10-08 20:19:59
@@ -24,14 +24,24 @@ public final class OutputDataPool {
 
     private static final byte NEED_SEQ = HAS_SYMBOL_ADDED | HAS_SYMBOL_EXPIRED;
 
-    private final Array<Float>         floats      = new Array<>();
-    private final Map<Float, Integer>  floatIndex  = new HashMap<>();
-    private final Array<Double>        doubles     = new Array<>();
-    private final Map<Double, Integer> doubleIndex = new HashMap<>();
-    private final Array<Long>          varints     = new Array<>();
-    private final Map<Long, Integer>   varintIndex = new HashMap<>();
-    private final Array<String>        strings     = new Array<>();
-    private final Map<String, Integer> stringIndex = new HashMap<>();
+    /**
+     * Strings longer than it are always pooled, because their repetition saves more than hashing costs
+     */
+    static final int POOLED_STRING_LENGTH = 32;
+    /**
+     * Varints beyond it are always pooled, because they can't be inlined with the kind bits
+     */
+    static final long MAX_INLINE_VARINT = 1L << 60;
+
+    private final LongIndex           floats  = new LongIndex();
+    private final LongIndex           doubles = new LongIndex();
+    private final LongIndex           varints = new LongIndex();
+    private final ObjectIndex<String> strings = new ObjectIndex<>();
+
+    private final RepeatTracker floatTracker  = new RepeatTracker();
+    private final RepeatTracker doubleTracker = new RepeatTracker();
+    private final RepeatTracker varintTracker = new RepeatTracker();
+    private final RepeatTracker stringTracker = new RepeatTracker();
 
     private final int                 symbolLimit;
     private final IDAllocator         symbolID      = new IDAllocator();
@@ -39,6 +49,7 @@ public final class OutputDataPool {
     private final Array<Symbol>       symbolAdded   = new Array<>();
     private final Array<Integer>      symbolExpired = new Array<>();
     private final Map<String, Symbol> symbolIndex   = new HashMap<>();
+    private final LruList<Symbol>     symbolLru     = new LruList<>();
 
     private byte flags;
 
@@ -61,7 +72,7 @@ public final class OutputDataPool {
         if (f == 0) {
             return 1;
         }
-        return floatIndex.computeIfAbsent(f, floats::add) + 2;
+        return floats.register(Float.floatToIntBits(f)) + 2;
     }
 
     /**
@@ -74,7 +85,7 @@ public final class OutputDataPool {
         if (d == 0) {
             return 1;
         }
-        return doubleIndex.computeIfAbsent(d, doubles::add) + 2;
+        return doubles.register(Double.doubleToLongBits(d)) + 2;
     }
 
     /**
@@ -87,7 +98,7 @@ public final class OutputDataPool {
         if (l == 0) {
             return 1;
         }
-        return varintIndex.computeIfAbsent(l, varints::add) + 2;
+        return varints.register(l) + 2;
     }
 
     /**
@@ -100,7 +111,59 @@ public final class OutputDataPool {
         if (str.isEmpty()) {
             return 1;
         }
-        return stringIndex.computeIfAbsent(str, strings::add) + 2;
+        return strings.register(str) + 2;
+    }
+
+    /**
+     * Register the specified float only if it repeats in this message
+     *
+     * @param f Float data
+     * @return Float ID, or 0 if it should be written inline
+     */
+    public int adaptFloat(float f) {
+        if (f == 0) {
+            return 1;
+        }
+        return floatTracker.repeated(Float.floatToIntBits(f)) ? this.registerFloat(f) : 0;
+    }
+
+    /**
+     * Register the specified double only if it repeats in this message
+     *
+     * @param d Double data
+     * @return Double ID, or 0 if it should be written inline
+     */
+    public int adaptDouble(double d) {
+        if (d == 0) {
+            return 1;
+        }
+        return doubleTracker.repeated(Double.doubleToLongBits(d)) ? this.registerDouble(d) : 0;
+    }
+
+    /**
+     * Register the specified varint only if it repeats in this message, or it's too large to inline
+     *
+     * @param l Varint data
+     * @return Varint ID, or 0 if it should be written inline
+     */
+    public int adaptVarint(long l) {
+        if (l == 0 || l >= MAX_INLINE_VARINT || l < -MAX_INLINE_VARINT) {
+            return this.registerVarint(l);
+        }
+        return varintTracker.repeated(l) ? this.registerVarint(l) : 0;
+    }
+
+    /**
+     * Register the specified string only if it repeats in this message, or it's long
+     *
+     * @param str String data
+     * @return String ID, or 0 if it should be written inline
+     */
+    public int adaptString(String str) {
+        if (str.isEmpty() || str.length() > POOLED_STRING_LENGTH) {
+            return this.registerString(str);
+        }
+        return stringTracker.repeated(str) ? this.registerString(str) : 0;
     }
 
     /**
@@ -120,7 +183,7 @@ public final class OutputDataPool {
             this.symbolAdded.add(result);
             return result;
         });
-        symbol.lastTime = (int) TimeUtils.fastUpTime();
+        symbolLru.touch(symbol.node);
         return symbol.index + 1;
     }
 
@@ -157,7 +220,7 @@ public final class OutputDataPool {
             flags ^= HAS_FLOAT;
             buf.writeVarUint((len << 4) | Const.FLAG_DATA_FLOAT | (flags == 0 ? 0 : 1));
             for (int i = 0; i < len; i++) {
-                buf.writeFloat(floats.get(i));
+                buf.writeFloat(Float.intBitsToFloat((int) floats.get(i)));
             }
         }
         if ((flags & HAS_DOUBLE) != 0) {
@@ -165,7 +228,7 @@ public final class OutputDataPool {
             flags ^= HAS_DOUBLE;
             buf.writeVarUint((len << 4) | Const.FLAG_DATA_DOUBLE | (flags == 0 ? 0 : 1));
             for (int i = 0; i < len; i++) {
-                buf.writeDouble(doubles.get(i));
+                buf.writeDouble(Double.longBitsToDouble(doubles.get(i)));
             }
         }
         if ((flags & HAS_VARINT) != 0) {
@@ -206,13 +269,13 @@ public final class OutputDataPool {
      */
     void reset() {
         this.floats.clear();
-        this.floatIndex.clear();
         this.doubles.clear();
-        this.doubleIndex.clear();
         this.varints.clear();
-        this.varintIndex.clear();
         this.strings.clear();
-        this.stringIndex.clear();
+        this.floatTracker.clear();
+        this.doubleTracker.clear();
+        this.varintTracker.clear();
+        this.stringTracker.clear();
         this.symbolAdded.clear();
         this.symbolExpired.clear();
 
@@ -221,10 +284,9 @@ public final class OutputDataPool {
         if (expireNum <= 0) {
             return;
         }
-        List<Symbol> symbols = new ArrayList<>(symbolIndex.values());
-        symbols.sort(Comparator.comparingInt(s -> s.lastTime));
-        for (int i = 0, len = Math.min(expireNum, symbols.size()); i < len; i++) {
-            Symbol expiredSymbol = symbols.get(i);
+        for (int i = 0; i < expireNum; i++) {
+            Symbol expiredSymbol = symbolLru.first();
+            this.symbolLru.unlink(expiredSymbol.node);
             this.symbolIndex.remove(expiredSymbol.value);
             this.symbolID.release(expiredSymbol.index);
             this.symbols.put(expiredSymbol.index, null);
@@ -235,7 +297,8 @@ public final class OutputDataPool {
     static class Symbol {
         String value;
         int    index;
-        int    lastTime;
+
+        final LruList.Node<Symbol> node = new LruList.Node<>(this);
 
         public Symbol(String value, int index) {
             this.value = value;
@@ -1,9 +1,9 @@
 package com.github.smartbuf.transport;
 
-import com.github.smartbuf.utils.TimeUtils;
-
 import java.io.IOException;
-import java.util.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * StructPool represents an area holds struct for sharing, which support temporary and context using.
@@ -28,11 +28,8 @@ public final class OutputMetaPool {
     private final int   cxtStructLimit;
     private final Names key = new Names();
 
-    final Array<String>        tmpNames     = new Array<>();
-    final Map<String, Integer> tmpNameIndex = new HashMap<>();
-
-    final Array<Struct>      tmpStructs     = new Array<>();
-    final Map<Names, Struct> tmpStructIndex = new HashMap<>();
+    final ObjectIndex<String> tmpNames       = new ObjectIndex<>();
+    final ObjectIndex<Struct> tmpStructIndex = new ObjectIndex<>();
 
     final IDAllocator       cxtIdAlloc     = new IDAllocator();
     final Array<Name>       cxtNames       = new Array<>();
@@ -46,8 +43,10 @@ public final class OutputMetaPool {
     final Array<Integer>     cxtStructExpired  = new Array<>();
     final Array<Struct>      cxtStructReferred = new Array<>();
     final Map<Names, Struct> cxtStructIndex    = new HashMap<>();
+    final LruList<Struct>    cxtStructLru      = new LruList<>();
 
     private byte status;
+    private int  epoch = 1;
 
     /**
      * Initialize StructPool with the specified limit of context-struct
@@ -72,24 +71,16 @@ public final class OutputMetaPool {
             return 0;
         }
         this.key.names = names;
-        Struct struct = tmpStructIndex.get(key);
-        if (struct == null) {
+        int index = tmpStructIndex.find(key);
+        if (index < 0) {
             int[] nameIds = new int[names.length];
             int off = 0;
             for (String name : names) {
-                Integer nameId = tmpNameIndex.get(name);
-                if (nameId == null) {
-                    nameId = tmpNames.add(name);
-                    tmpNameIndex.put(name, nameId);
-                }
-                nameIds[off++] = nameId;
+                nameIds[off++] = tmpNames.register(name);
             }
-            struct = new Struct(names, nameIds);
-            struct.index = tmpStructs.add(struct);
-            struct.id = (struct.index + 1) << 1; // identify temporary struct by suffixed 0
-            tmpStructIndex.put(struct, struct);
+            index = tmpStructIndex.add(new Struct(names, nameIds));
         }
-        return struct.id;
+        return (index + 1) << 1; // identify temporary struct by suffixed 0
     }
 
     /**
@@ -129,11 +120,27 @@ public final class OutputMetaPool {
             this.cxtStructAdded.add(struct);
             this.cxtStructIndex.put(struct, struct);
         }
-        struct.lastTime = (int) TimeUtils.fastUpTime();
-        if (!struct.refered) {
-            struct.refered = true;
-            this.cxtStructReferred.add(struct);
+        this.touch(struct);
+        return struct.id;
+    }
+
+    /**
+     * Register the specified handle's struct into pool, the handle caches its struct,
+     * so it won't be looked up by field-names again until the struct expired.
+     *
+     * @param handle StructHandle which represents an struct
+     * @return Struct ID
+     */
+    int registerCxtStruct(OutputWriter.StructHandle handle) {
+        Struct struct = handle.cxtStruct;
+        if (struct == null || struct.index >= cxtStructs.size() || cxtStructs.get(struct.index) != struct) {
+            int id = this.registerCxtStruct(handle.names);
+            if (id > 0) {
+                handle.cxtStruct = cxtStructs.get((id >>> 1) - 1);
+            }
+            return id;
         }
+        this.touch(struct);
         return struct.id;
     }
 
@@ -142,7 +149,7 @@ public final class OutputMetaPool {
         if (tmpNames.size() > 0) status |= HAS_NAME_TMP;
         if (cxtNameAdded.size() > 0) status |= HAS_NAME_ADDED;
         if (cxtNameExpired.size() > 0) status |= HAS_NAME_EXPIRED;
-        if (tmpStructs.size() > 0) status |= HAS_STRUCT_TMP;
+        if (tmpStructIndex.size() > 0) status |= HAS_STRUCT_TMP;
         if (cxtStructAdded.size() > 0) status |= HAS_STRUCT_ADDED;
         if (cxtStructExpired.size() > 0) status |= HAS_STRUCT_EXPIRED;
         if (cxtStructReferred.size() > 0) status |= HAS_STRUCT_REFERRED;
@@ -186,10 +193,10 @@ public final class OutputMetaPool {
         }
         if ((status & HAS_STRUCT_TMP) > 0) {
             status ^= HAS_STRUCT_TMP;
-            len = tmpStructs.size();
+            len = tmpStructIndex.size();
             buf.writeVarUint((len << 4) | Const.FLAG_META_STRUCT_TMP | (status == 0 ? 0 : 1));
             for (int i = 0; i < len; i++) {
-                OutputMetaPool.Struct struct = tmpStructs.get(i);
+                OutputMetaPool.Struct struct = tmpStructIndex.get(i);
                 buf.writeVarUint(struct.nameIds.length);
                 for (int nameId : struct.nameIds) {
                     buf.writeVarUint(nameId);
@@ -232,18 +239,20 @@ public final class OutputMetaPool {
      */
     void reset() {
         this.tmpNames.clear();
-        this.tmpNameIndex.clear();
         this.cxtNameAdded.clear();
         this.cxtNameExpired.clear();
 
-        this.tmpStructs.clear();
         this.tmpStructIndex.clear();
         this.cxtStructAdded.clear();
         this.cxtStructExpired.clear();
         this.cxtStructReferred.clear();
 
-        for (Struct struct : cxtStructIndex.values()) {
-            struct.refered = false;
+        // invalidate all structs' referred mark by a new epoch
+        if (++this.epoch == 0) {
+            for (Struct struct : cxtStructIndex.values()) {
+                struct.referredEpoch = 0;
+            }
+            this.epoch = 1;
         }
 
         // execute automatically expire for context-struct
@@ -251,10 +260,9 @@ public final class OutputMetaPool {
         if (expireCount <= 0) {
             return;
         }
-        List<Struct> structs = new ArrayList<>(cxtStructIndex.values());
-        structs.sort(Comparator.comparingInt(s -> s.lastTime));
-        for (int i = 0, len = Math.min(expireCount, structs.size()); i < len; i++) {
-            Struct expiredStruct = structs.get(i);
+        for (int i = 0; i < expireCount; i++) {
+            Struct expiredStruct = cxtStructLru.first();
+            this.cxtStructLru.unlink(expiredStruct.node);
             cxtStructIndex.remove(expiredStruct);
             cxtStructIdAlloc.release(expiredStruct.index);
             cxtStructExpired.add(expiredStruct.index);
@@ -273,6 +281,17 @@ public final class OutputMetaPool {
         }
     }
 
+    /**
+     * Mark the specified struct as the most recently used one, and referred by the current epoch
+     */
+    private void touch(Struct struct) {
+        cxtStructLru.touch(struct.node);
+        if (struct.referredEpoch != epoch) {
+            struct.referredEpoch = epoch;
+            this.cxtStructReferred.add(struct);
+        }
+    }
+
     /**
      * field-name's metadata
      */
@@ -308,11 +327,12 @@ public final class OutputMetaPool {
      * Struct model for inner usage
      */
     static class Struct extends Names {
-        int     id;
-        int     index;
-        int     lastTime;
-        int[]   nameIds;
-        boolean refered;
+        int    id;
+        int    index;
+        int[]  nameIds;
+        int    referredEpoch;
+
+        final LruList.Node<Struct> node = new LruList.Node<>(this);
 
         public Struct(String[] names, int[] nameIds) {
             this.names = names;
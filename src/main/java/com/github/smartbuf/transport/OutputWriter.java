@@ -0,0 +1,400 @@
+package com.github.smartbuf.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * OutputWriter is a low-level generator of {@link Output}, it writes values into the message directly,
+ * so hot code could emit messages without building POJO, Map or ObjectNode.
+ * <p>
+ * Object's fields are declared by {@link StructHandle} in advance, and its values should be written in order:
+ * <pre>
+ * OutputWriter writer = output.writer();
+ * writer.beginObject(QUOTE).writeSymbol(code).writeDouble(price).writeLong(volume).end();
+ * byte[] message = writer.finish();
+ * </pre>
+ * Array's items are grouped into slices like {@link Output#writeArray}, primitive items are written without head.
+ * <p>
+ * OutputWriter is reused by its {@link Output}, it won't allocate memory for frames of nested object or array,
+ * and {@link StructHandle} caches its context struct, so the struct won't be looked up again in stream-mode.
+ *
+ * @author sulin
+ * @since 2019-12-04 10:31:27
+ */
+public final class OutputWriter {
+
+    private static final byte TYPE_UNKNOWN = -1;
+
+    private final Output         output;
+    private final boolean        enableStreamMode;
+    private final OutputBuffer   bodyBuf;
+    private final OutputDataPool dataPool;
+    private final OutputMetaPool metaPool;
+
+    private boolean finished = true;
+    private boolean hasRoot;
+
+    private int        depth;
+    private boolean[]  isArray    = new boolean[8];
+    private int[]      counters   = new int[8]; // remained fields of object, or length of the current slice
+    private byte[]     sliceTypes = new byte[8];
+    private String[][] sliceKeys  = new String[8][];
+    private int[]      sliceHeads = new int[8];
+    private boolean[]  firsts     = new boolean[8];
+
+    OutputWriter(Output output, boolean enableStreamMode) {
+        this.output = output;
+        this.enableStreamMode = enableStreamMode;
+        this.bodyBuf = output.bodyBuf;
+        this.dataPool = output.dataPool;
+        this.metaPool = output.metaPool;
+    }
+
+    /**
+     * Prepare this writer for a new message
+     */
+    void reset() {
+        this.finished = false;
+        this.hasRoot = false;
+        this.depth = 0;
+    }
+
+    /**
+     * Write null value
+     *
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeNull() throws IOException {
+        if (this.prepareValue(Const.TYPE_SLICE_NULL, null) == TYPE_UNKNOWN) {
+            bodyBuf.writeVarUint(Const.CONST_NULL);
+        }
+        return this;
+    }
+
+    /**
+     * Write boolean value
+     *
+     * @param b Boolean value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeBoolean(boolean b) throws IOException {
+        if (this.prepareValue(Const.TYPE_SLICE_BOOL, null) == TYPE_UNKNOWN) {
+            bodyBuf.writeVarUint(b ? Const.CONST_TRUE : Const.CONST_FALSE);
+        } else {
+            bodyBuf.writeByte(b ? Const.CONST_TRUE : Const.CONST_FALSE);
+        }
+        return this;
+    }
+
+    /**
+     * Write integer value, byte, short, int and long are all written as varint
+     *
+     * @param l Integer value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeLong(long l) throws IOException {
+        if (this.prepareValue(Const.TYPE_SLICE_LONG, null) == TYPE_UNKNOWN) {
+            output.writeVarint(l);
+        } else {
+            bodyBuf.writeVarInt(l);
+        }
+        return this;
+    }
+
+    /**
+     * Write float value
+     *
+     * @param f Float value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeFloat(float f) throws IOException {
+        if (this.prepareValue(Const.TYPE_SLICE_FLOAT, null) == TYPE_UNKNOWN) {
+            output.writeFloat(f);
+        } else {
+            bodyBuf.writeFloat(f);
+        }
+        return this;
+    }
+
+    /**
+     * Write double value
+     *
+     * @param d Double value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeDouble(double d) throws IOException {
+        if (this.prepareValue(Const.TYPE_SLICE_DOUBLE, null) == TYPE_UNKNOWN) {
+            output.writeDouble(d);
+        } else {
+            bodyBuf.writeDouble(d);
+        }
+        return this;
+    }
+
+    /**
+     * Write string value, null is supported
+     *
+     * @param s String value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeString(String s) throws IOException {
+        if (s == null) {
+            return this.writeNull();
+        }
+        if (this.prepareValue(Const.TYPE_SLICE_STRING, null) == TYPE_UNKNOWN) {
+            output.writeString(s);
+        } else {
+            bodyBuf.writeVarUint(dataPool.registerString(s));
+        }
+        return this;
+    }
+
+    /**
+     * Write symbol value, it would be shared by context in stream-mode, like enum.
+     * It's written as normal string in packet-mode.
+     *
+     * @param s Symbol value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeSymbol(String s) throws IOException {
+        if (s == null) {
+            return this.writeNull();
+        }
+        if (this.prepareValue(Const.TYPE_SLICE_SYMBOL, null) == TYPE_UNKNOWN) {
+            if (enableStreamMode) {
+                bodyBuf.writeVarUint((dataPool.registerSymbol(s) << 3) | Const.TYPE_SYMBOL);
+            } else {
+                bodyBuf.writeVarUint((dataPool.registerString(s) << 3) | Const.TYPE_STRING);
+            }
+        } else {
+            bodyBuf.writeVarUint(enableStreamMode ? dataPool.registerSymbol(s) : dataPool.registerString(s));
+        }
+        return this;
+    }
+
+    /**
+     * Write any object by {@link Output}'s normal way, it's the slow path for values out of generator's support.
+     *
+     * @param o Object value
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter writeObject(Object o) throws IOException {
+        if (o == null) {
+            return this.writeNull();
+        }
+        this.prepareValue(TYPE_UNKNOWN, null);
+        output.writeObject(o);
+        return this;
+    }
+
+    /**
+     * Begin an object with the specified struct, values of its fields should be written in order,
+     * and finish it by {@link #end()}.
+     *
+     * @param struct The struct of this object
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter beginObject(StructHandle struct) throws IOException {
+        byte type = this.prepareValue(Const.TYPE_SLICE_OBJECT, struct.names);
+        if (type == TYPE_UNKNOWN) {
+            bodyBuf.writeVarUint(this.registerStruct(struct) << 3 | Const.TYPE_OBJECT);
+        } else if (counters[depth - 1] == 1) {
+            bodyBuf.writeVarUint(this.registerStruct(struct)); // the first object of slice
+        }
+        this.push(false);
+        counters[depth - 1] = struct.names.length;
+        return this;
+    }
+
+    /**
+     * Begin an array, its items could be written by any method of this writer, and finish it by {@link #end()}.
+     *
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter beginArray() throws IOException {
+        this.prepareValue(TYPE_UNKNOWN, null);
+        this.push(true);
+        int d = depth - 1;
+        counters[d] = 0;
+        sliceTypes[d] = TYPE_UNKNOWN;
+        sliceKeys[d] = null;
+        firsts[d] = true;
+        return this;
+    }
+
+    /**
+     * Finish the current object or array.
+     *
+     * @return This writer
+     * @throws IOException if any io exception happens
+     */
+    public OutputWriter end() throws IOException {
+        if (finished || depth == 0) {
+            throw new IllegalStateException("no object or array to end");
+        }
+        int d = --depth;
+        if (!isArray[d]) {
+            if (counters[d] > 0) {
+                throw new IllegalStateException("object missed " + counters[d] + " fields");
+            }
+        } else if (sliceTypes[d] == TYPE_UNKNOWN) {
+            bodyBuf.writeVarUint(Const.CONST_ZERO_ARRAY);
+        } else {
+            output.writeSliceMetadata(sliceHeads[d], firsts[d], counters[d], sliceTypes[d], false);
+        }
+        return this;
+    }
+
+    /**
+     * Finish the current message and copy it into a new byte[].
+     *
+     * @return The message
+     * @throws IOException if any io exception happens
+     */
+    public byte[] finish() throws IOException {
+        this.complete();
+        return output.toByteArray();
+    }
+
+    /**
+     * Finish the current message and write it into the specified {@link OutputStream}
+     *
+     * @param os The stream to write into
+     * @throws IOException if any io exception happens
+     */
+    public void finish(OutputStream os) throws IOException {
+        this.complete();
+        output.headBuf.writeTo(os);
+        output.bodyBuf.writeTo(os);
+    }
+
+    /**
+     * Validate the current message and write its head
+     */
+    private void complete() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("writer was finished");
+        }
+        if (!hasRoot || depth > 0) {
+            throw new IllegalStateException("message is incomplete");
+        }
+        this.finished = true;
+        output.writeHead();
+    }
+
+    /**
+     * Prepare for the next value, check its position and open new slice for it if it's an array's item.
+     *
+     * @return The slice type of the value, or TYPE_UNKNOWN if it should be written with its head
+     */
+    private byte prepareValue(byte type, String[] key) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("writer was finished");
+        }
+        if (depth == 0) {
+            if (hasRoot) {
+                throw new IllegalStateException("message could have only one root value");
+            }
+            this.hasRoot = true;
+            return TYPE_UNKNOWN;
+        }
+        int d = depth - 1;
+        if (!isArray[d]) {
+            if (counters[d]-- <= 0) {
+                throw new IllegalStateException("object has no more fields");
+            }
+            return TYPE_UNKNOWN;
+        }
+        if (type == TYPE_UNKNOWN) {
+            type = Const.TYPE_SLICE_UNKNOWN;
+        }
+        byte sliceType = sliceTypes[d];
+        boolean typeBroken = sliceType >= 0 && (sliceType != type || (sliceKeys[d] != key && !Arrays.equals(sliceKeys[d], key)));
+        boolean hitLimit = (counters[d] + 1) >= (firsts[d] ? (1 << 6) : (1 << 11));
+        if (typeBroken || hitLimit) {
+            output.writeSliceMetadata(sliceHeads[d], firsts[d], counters[d], sliceType, true);
+            firsts[d] = false;
+        }
+        if (sliceType == TYPE_UNKNOWN || typeBroken || hitLimit) {
+            sliceTypes[d] = type;
+            sliceKeys[d] = key;
+            sliceHeads[d] = bodyBuf.skip(2); // skip 2-byte for storing slice metadata
+            counters[d] = 0;
+        }
+        counters[d]++;
+        return type == Const.TYPE_SLICE_UNKNOWN ? TYPE_UNKNOWN : type;
+    }
+
+    /**
+     * Push a new frame of object or array
+     */
+    private void push(boolean array) {
+        if (depth == isArray.length) {
+            int newLen = depth * 2;
+            this.isArray = Arrays.copyOf(isArray, newLen);
+            this.counters = Arrays.copyOf(counters, newLen);
+            this.sliceTypes = Arrays.copyOf(sliceTypes, newLen);
+            this.sliceKeys = Arrays.copyOf(sliceKeys, newLen);
+            this.sliceHeads = Arrays.copyOf(sliceHeads, newLen);
+            this.firsts = Arrays.copyOf(firsts, newLen);
+        }
+        isArray[depth++] = array;
+    }
+
+    /**
+     * Register the specified struct, context struct is used in stream-mode
+     */
+    private int registerStruct(StructHandle struct) {
+        if (enableStreamMode) {
+            return metaPool.registerCxtStruct(struct);
+        }
+        return metaPool.registerTmpStruct(struct.names);
+    }
+
+    /**
+     * StructHandle represents a pre-registered struct with fixed field-names, it should be created once and reused,
+     * so its context struct could be reused by all messages in stream-mode.
+     */
+    public static final class StructHandle {
+
+        final String[] names;
+
+        OutputMetaPool.Struct cxtStruct;
+
+        /**
+         * Create a StructHandle with the specified field-names, values of fields should be written in the same order.
+         *
+         * @param names Field-names of this struct
+         */
+        public StructHandle(String... names) {
+            HashSet<String> set = new HashSet<>();
+            for (String name : names) {
+                if (name == null || !set.add(name)) {
+                    throw new IllegalArgumentException("invalid field-name: " + name);
+                }
+            }
+            this.names = names.clone();
+        }
+
+        /**
+         * Get field-names of this struct in writing order
+         *
+         * @return Field-names
+         */
+        public String[] getNames() {
+            return names.clone();
+        }
+    }
+}
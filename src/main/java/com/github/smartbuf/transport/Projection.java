@@ -0,0 +1,74 @@
+package com.github.smartbuf.transport;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Projection represents the field paths to decode, like "user.name" or "items.price".
+ * Path of array is applied to its items, unselected values will be skipped without decoding.
+ * <p>
+ * Projection is immutable, it should be created once and reused, because {@link Input} caches
+ * the field mapping of the latest projection in its structs.
+ *
+ * @author sulin
+ * @since 2019-12-06 10:48:33
+ */
+public final class Projection {
+
+    /**
+     * The projection which selects everything
+     */
+    public static final Projection ALL = new Projection();
+
+    private final Map<String, Projection> children = new HashMap<>();
+
+    private Projection() {
+    }
+
+    /**
+     * Build a projection by the specified field paths, fields of path are separated by '.'
+     *
+     * @param fieldPaths Field paths to select
+     * @return Projection
+     */
+    public static Projection of(String... fieldPaths) {
+        Projection root = new Projection();
+        for (String path : fieldPaths) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("invalid field path: " + path);
+            }
+            String[] names = path.split("\\.", -1);
+            Projection node = root;
+            for (int i = 0; i < names.length && node != ALL; i++) {
+                String name = names[i];
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("invalid field path: " + path);
+                }
+                if (i == names.length - 1) {
+                    node.children.put(name, ALL);
+                    break;
+                }
+                Projection child = node.children.get(name);
+                if (child == null) {
+                    child = new Projection();
+                    node.children.put(name, child);
+                }
+                node = child;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Select the specified field from this projection
+     *
+     * @param name Field name
+     * @return The field's projection, or null if it isn't selected
+     */
+    public Projection select(String name) {
+        if (this == ALL) {
+            return ALL;
+        }
+        return children.get(name);
+    }
+}
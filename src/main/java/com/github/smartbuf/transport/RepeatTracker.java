@@ -0,0 +1,113 @@
+package com.github.smartbuf.transport;
+
+import java.util.Arrays;
+
+/**
+ * RepeatTracker remembers recently seen values in a small direct-mapped table, it helps {@link OutputDataPool}
+ * find values which repeat in the current message, without registering every value into the pool.
+ * <p>
+ * A value colliding with another one just evicts it, so tracking never grows or probes.
+ * If less than 1/16 values repeat before {@link #SAMPLE} misses, the tracker turns itself off
+ * until {@link #clear()}, so high-cardinality values won't be hashed at all.
+ *
+ * @author sulin
+ * @since 2019-12-12 15:08:46
+ */
+public final class RepeatTracker {
+
+    static final int SLOTS    = 256;
+    static final int SAMPLE   = 256;
+    static final int MIN_HITS = SAMPLE / 16;
+
+    private int            epoch = 1;
+    private final long[]   keys  = new long[SLOTS];
+    private final Object[] objs  = new Object[SLOTS];
+    private final int[]    marks = new int[SLOTS];
+
+    private int     lookups;
+    private int     hits;
+    private boolean disabled;
+    private boolean holding;
+
+    /**
+     * Check whether the specified value was seen before, and remember it
+     *
+     * @param value The value to check, float and double could be checked by their raw bits
+     * @return true if it's seen before
+     */
+    public boolean repeated(long value) {
+        if (disabled) {
+            return false;
+        }
+        long h = value * 0x9E3779B97F4A7C15L;
+        int pos = (int) (h >>> 56);
+        if (marks[pos] == epoch && keys[pos] == value) {
+            hits++;
+            return true;
+        }
+        marks[pos] = epoch;
+        keys[pos] = value;
+        this.sample();
+        return false;
+    }
+
+    /**
+     * Check whether the specified string was seen before, and remember it
+     *
+     * @param value The string to check
+     * @return true if it's seen before
+     */
+    public boolean repeated(String value) {
+        if (disabled) {
+            return false;
+        }
+        int h = value.hashCode() * 0x9E3779B9;
+        int pos = h >>> 24;
+        if (marks[pos] == epoch && value.equals(objs[pos])) {
+            hits++;
+            return true;
+        }
+        marks[pos] = epoch;
+        objs[pos] = value;
+        this.holding = true;
+        this.sample();
+        return false;
+    }
+
+    /**
+     * Check whether this tracker is turned off for high cardinality
+     *
+     * @return true if it's disabled
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    /**
+     * Forget all values and turn on tracking, the underlying arrays will be reused,
+     * but tracked strings are released for GC
+     */
+    public void clear() {
+        this.lookups = 0;
+        this.hits = 0;
+        this.disabled = false;
+        if (holding) {
+            Arrays.fill(objs, null);
+            this.holding = false;
+        }
+        if (++this.epoch == 0) {
+            Arrays.fill(marks, 0);
+            this.epoch = 1;
+        }
+    }
+
+    /**
+     * Count the missed lookup, turn off tracking if few values repeat in the sample
+     */
+    private void sample() {
+        if (++lookups == SAMPLE && hits < MIN_HITS) {
+            this.disabled = true;
+        }
+    }
+
+}
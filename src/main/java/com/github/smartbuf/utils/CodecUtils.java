@@ -72,6 +72,19 @@ public final class CodecUtils {
         return (T) factory.convert(src, type);
     }
 
+    /**
+     * Convert the specified object to the specified {@link XType}
+     *
+     * @param src  Source data
+     * @param type Target type, with generic info
+     * @param <T>  Target's real type
+     * @return instance of the specified type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T convert(Object src, XType<T> type) {
+        return (T) factory.convert(src, type);
+    }
+
     /**
      * Convert the specified {@link Type} into {@link XType}
      *
@@ -93,4 +106,13 @@ public final class CodecUtils {
         return factory.getPipeline(srcClass, tgtClass);
     }
 
+    /**
+     * Get the generation of codecs installed into the default CodecFactory, pipelines are rebuilt after it changed.
+     *
+     * @return Current generation
+     */
+    public static int getGeneration() {
+        return factory.getGeneration();
+    }
+
 }
@@ -0,0 +1,91 @@
+package com.github.smartbuf;
+
+import com.github.smartbuf.exception.SmartBufClosedException;
+import com.github.smartbuf.reflect.TypeRef;
+import lombok.Data;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author sulin
+ * @since 2019-11-28 21:03:12
+ */
+public class SmartChannelTest {
+
+    @Test
+    public void testPipe() throws Exception {
+        SmartChannel.BUFFER_SIZE = 1024; // force growing and direct writing
+        try {
+            Pipe pipe = Pipe.open();
+            SmartChannel writer = new SmartChannel(null, pipe.sink());
+            SmartChannel reader = new SmartChannel(pipe.source(), null);
+
+            List<Msg> msgs = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Msg msg = new Msg();
+                if (i % 50 == 0) {
+                    msg.text = RandomStringUtils.randomAlphanumeric(4000);
+                }
+                msgs.add(msg);
+            }
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                try {
+                    writer.setAutoFlush(false);
+                    for (int i = 0; i < msgs.size(); i++) {
+                        writer.write(msgs.get(i));
+                        if (i % 10 == 0) {
+                            writer.flush();
+                        }
+                    }
+                    writer.write(Arrays.asList(1, 2, 3));
+                    writer.write("end");
+                    writer.flush();
+                    writer.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            for (Msg msg : msgs) {
+                assert msg.equals(reader.read(Msg.class));
+            }
+            List<Long> list = reader.read(new TypeRef<List<Long>>() {
+            });
+            assert list.equals(Arrays.asList(1L, 2L, 3L));
+            assert "end".equals(reader.readObject());
+            future.get();
+
+            try {
+                reader.readObject();
+                assert false;
+            } catch (Exception e) {
+                assert e instanceof EOFException;
+            }
+            reader.close();
+            try {
+                reader.readObject();
+                assert false;
+            } catch (Exception e) {
+                assert e instanceof SmartBufClosedException;
+            }
+        } finally {
+            SmartChannel.BUFFER_SIZE = 64 * 1024;
+        }
+    }
+
+    @Data
+    public static class Msg {
+        private long   id    = RandomUtils.nextLong();
+        private double score = RandomUtils.nextDouble();
+        private String text  = RandomStringUtils.randomAlphanumeric(16);
+    }
+
+}
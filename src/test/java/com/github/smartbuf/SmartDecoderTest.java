@@ -0,0 +1,102 @@
+package com.github.smartbuf;
+
+import com.github.smartbuf.exception.InvalidDataException;
+import lombok.Data;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author sulin
+ * @since 2019-11-29 16:22:08
+ */
+public class SmartDecoderTest {
+
+    @Test
+    public void testPartial() throws IOException {
+        List<Msg> msgs = new ArrayList<>();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SmartChannel channel = new SmartChannel(null, Channels.newChannel(bos));
+        for (int i = 0; i < 100; i++) {
+            Msg msg = new Msg();
+            msg.text = RandomStringUtils.randomAlphanumeric(i * 3);
+            msgs.add(msg);
+            channel.write(msg);
+        }
+        channel.write(null);
+        byte[] bytes = bos.toByteArray();
+
+        // feed by random chunks, and reuse the receiving buffer like event-loop
+        SmartDecoder decoder = new SmartDecoder();
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        List<Object> results = new ArrayList<>();
+        for (int off = 0; off < bytes.length; ) {
+            int len = Math.min(RandomUtils.nextInt(1, 64), bytes.length - off);
+            buf.clear();
+            buf.put(bytes, off, len);
+            buf.flip();
+            off += len;
+            while (decoder.next(buf)) {
+                results.add(results.size() < msgs.size() ? decoder.read(Msg.class) : decoder.readObject());
+            }
+            assert !buf.hasRemaining();
+        }
+        assert results.size() == msgs.size() + 1;
+        assert results.subList(0, msgs.size()).equals(msgs);
+        assert results.get(msgs.size()) == null;
+
+        // feed all bytes at once, decode in place
+        decoder = new SmartDecoder();
+        buf = ByteBuffer.wrap(bytes);
+        for (Msg msg : msgs) {
+            assert decoder.next(buf);
+            assert msg.equals(decoder.read(Msg.class));
+        }
+        assert decoder.next(buf);
+        assert decoder.readObject() == null;
+        assert !decoder.next(buf);
+    }
+
+    @Test
+    public void testError() throws IOException {
+        SmartDecoder decoder = new SmartDecoder();
+        try {
+            decoder.readObject();
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalStateException;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(new byte[]{1, 0x10, 1, 0x10});
+        assert decoder.next(buf);
+        try {
+            decoder.next(buf);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalStateException;
+        }
+
+        decoder = new SmartDecoder();
+        try {
+            decoder.next(ByteBuffer.wrap(new byte[]{-1, -1, -1, -1, -1, 1}));
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof InvalidDataException;
+        }
+    }
+
+    @Data
+    public static class Msg {
+        private long   id    = RandomUtils.nextLong();
+        private float  rate  = RandomUtils.nextFloat();
+        private String text;
+    }
+
+}
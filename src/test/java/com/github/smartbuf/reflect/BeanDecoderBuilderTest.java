@@ -0,0 +1,83 @@
+package com.github.smartbuf.reflect;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author sulin
+ * @since 2019-11-23 11:05:19
+ */
+public class BeanDecoderBuilderTest {
+
+    @Test
+    public void test() {
+        BeanDecoder decoder = BeanDecoderBuilder.build(BeanReaderBuilderTest.Full.class);
+        assert decoder == BeanDecoderBuilder.build(BeanReaderBuilderTest.Full.class);
+        assert decoder.getFieldNames().length == 24;
+
+        BeanReaderBuilderTest.Full full = (BeanReaderBuilderTest.Full) decoder.newInstance();
+        decoder.setBoolean(full, indexOf(decoder, "bool1"), true);
+        decoder.setBoolean(full, indexOf(decoder, "bool2"), true);
+        decoder.setLong(full, indexOf(decoder, "byte1"), 300);
+        decoder.setLong(full, indexOf(decoder, "short2"), 3);
+        decoder.setLong(full, indexOf(decoder, "int1"), 4);
+        decoder.setLong(full, indexOf(decoder, "long2"), 5);
+        decoder.setLong(full, indexOf(decoder, "float1"), 6);
+        decoder.setDouble(full, indexOf(decoder, "float2"), 1.5);
+        decoder.setDouble(full, indexOf(decoder, "double1"), 2.5);
+        decoder.setObject(full, indexOf(decoder, "char1"), 'c');
+        decoder.setObject(full, indexOf(decoder, "double2"), 3.5);
+        decoder.setObject(full, indexOf(decoder, "ints"), new int[]{1});
+
+        assert full.isBool1();
+        assert full.getBool2();
+        assert full.getByte1() == (byte) 300;
+        assert full.getShort2() == 3;
+        assert full.getInt1() == 4;
+        assert full.getLong2() == 5;
+        assert full.getFloat1() == 6;
+        assert full.getFloat2() == 1.5f;
+        assert full.getDouble1() == 2.5;
+        assert full.getChar1() == 'c';
+        assert full.getDouble2() == 3.5;
+        assert full.getInts()[0] == 1;
+
+        try {
+            decoder.setDouble(full, indexOf(decoder, "int1"), 1.0);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalArgumentException;
+        }
+        try {
+            decoder.setObject(full, 100, null);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalArgumentException;
+        }
+    }
+
+    @Test
+    public void testError() {
+        String oldName = BeanDecoder.API_NAME;
+
+        BeanDecoder.API_NAME = "...";
+        try {
+            BeanDecoderBuilder.buildDecoder(BeanReaderBuilderTest.Child.class);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalArgumentException;
+        }
+
+        BeanDecoder.API_NAME = oldName;
+    }
+
+    private static int indexOf(BeanDecoder decoder, String name) {
+        String[] names = decoder.getFieldNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.github.smartbuf.reflect;
+
+import com.github.smartbuf.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author sulin
+ * @since 2019-11-20 21:02:37
+ */
+public class BeanEncoderBuilderTest {
+
+    @Test
+    public void test() throws Exception {
+        BeanEncoder encoder = BeanEncoderBuilder.build(BeanReaderBuilderTest.Child.class);
+        assert encoder == BeanEncoderBuilder.build(BeanReaderBuilderTest.Child.class);
+        assert Arrays.equals(encoder.getFieldNames(), new String[]{"_name", "enable", "name", "time"});
+
+        BeanReaderBuilderTest.Child child = new BeanReaderBuilderTest.Child();
+        child._name = "_name";
+        child.setEnable(true);
+        child.setTime(100);
+
+        RecordSink sink = new RecordSink();
+        encoder.encode(child, sink);
+        assert sink.records.equals(Arrays.asList("_name", true, null, 100L));
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        BeanEncoder encoder = BeanEncoderBuilder.build(BeanReaderBuilderTest.Full.class);
+        assert encoder.getFieldNames().length == 24;
+
+        BeanReaderBuilderTest.Full full = new BeanReaderBuilderTest.Full();
+        full.setByte1((byte) 1);
+        full.setShort2((short) 2);
+        full.setInt1(3);
+        full.setLong2(4L);
+        full.setFloat1(1.5f);
+        full.setDouble2(2.5);
+        full.setChar1('c');
+        full.setInts(new int[]{1, 2});
+
+        RecordSink sink = new RecordSink();
+        encoder.encode(full, sink);
+
+        assert sink.records.size() == 24;
+        assert sink.records.get(0).equals(false); // bool1
+        assert sink.records.get(1) == null; // bool2
+        assert sink.records.get(2) == null; // booleans
+        assert sink.records.get(3).equals(1L); // byte1
+        assert sink.records.get(4) == null; // byte2
+        assert sink.records.get(6).equals("c"); // char1
+        assert sink.records.get(7) == null; // char2
+        assert sink.records.get(9).equals(0.0); // double1
+        assert sink.records.get(10).equals(2.5); // double2
+        assert sink.records.get(12).equals(1.5f); // float1
+        assert sink.records.get(13) == null; // float2
+        assert sink.records.get(15).equals(3L); // int1
+        assert sink.records.get(16) == null; // int2
+        assert sink.records.get(17) == full.getInts();
+        assert sink.records.get(18).equals(0L); // long1
+        assert sink.records.get(19).equals(4L); // long2
+        assert sink.records.get(21).equals(0L); // short1
+        assert sink.records.get(22).equals(2L); // short2
+        assert sink.types.get(sink.records.indexOf(full.getInts())) == Type.ARRAY_INT;
+    }
+
+    @Test
+    public void testError() {
+        String oldName = BeanEncoder.API_NAME;
+
+        BeanEncoder.API_NAME = "...";
+        try {
+            BeanEncoderBuilder.buildEncoder(BeanReaderBuilderTest.Full.class);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof IllegalArgumentException;
+        }
+
+        BeanEncoder.API_NAME = oldName;
+    }
+
+    static class RecordSink implements BeanEncoder.Sink {
+        List<Object> records = new ArrayList<>();
+        List<Type>   types   = new ArrayList<>();
+
+        @Override
+        public void writeNull() {
+            this.add(null, null);
+        }
+
+        @Override
+        public void writeBoolean(boolean b) {
+            this.add(b, Type.Z);
+        }
+
+        @Override
+        public void writeVarint(long l) {
+            this.add(l, Type.J);
+        }
+
+        @Override
+        public void writeFloat(float f) {
+            this.add(f, Type.F);
+        }
+
+        @Override
+        public void writeDouble(double d) {
+            this.add(d, Type.D);
+        }
+
+        @Override
+        public void writeString(String s) {
+            this.add(s, Type.STRING);
+        }
+
+        @Override
+        public void writeObject(Object o, Type type) {
+            this.add(o, type);
+        }
+
+        private void add(Object o, Type type) {
+            records.add(o);
+            types.add(type);
+        }
+    }
+
+}
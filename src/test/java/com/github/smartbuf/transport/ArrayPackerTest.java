@@ -0,0 +1,140 @@
+package com.github.smartbuf.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author sulin
+ * @since 2019-12-09 15:18:40
+ */
+public class ArrayPackerTest {
+
+    @Test
+    public void testLongs() throws IOException {
+        Random random = new Random(1);
+        long[] timestamps = new long[1000];
+        long[] jitters = new long[1000];
+        long[] sorted = new long[1000];
+        long[] bigs = new long[1000];
+        long[] smalls = new long[1000];
+        long[] extremes = new long[1000];
+        long now = 1575000000000L;
+        for (int i = 0; i < 1000; i++) {
+            timestamps[i] = now + i * 1000L;
+            jitters[i] = now + i * 1000L + random.nextInt(10);
+            sorted[i] = i == 0 ? 0 : sorted[i - 1] + random.nextInt(100);
+            bigs[i] = random.nextLong();
+            smalls[i] = random.nextInt(16) - 8;
+            extremes[i] = i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        for (long[] arr : new long[][]{timestamps, jitters, sorted, bigs, smalls, extremes}) {
+            byte[] packed = new Output(false).write(arr);
+            assert Arrays.equals(arr, (long[]) new Input(false).read(packed));
+            assert packed.length <= plainSize(arr);
+        }
+        // regular timestamps should shrink a lot
+        assert new Output(false).write(timestamps).length * 5 < plainSize(timestamps);
+        assert new Output(false).write(jitters).length * 3 < plainSize(jitters);
+        // large magnitudes should use fixed-width
+        assert new Output(false).write(bigs).length < plainSize(bigs);
+    }
+
+    @Test
+    public void testInts() throws IOException {
+        Random random = new Random(2);
+        for (int len : new int[]{0, 1, 7, 8, 9, 63, 64, 65, 1000}) {
+            int[] ids = new int[len];
+            int[] randoms = new int[len];
+            short[] shorts = new short[len];
+            for (int i = 0; i < len; i++) {
+                ids[i] = 100000 + i;
+                randoms[i] = random.nextInt();
+                shorts[i] = (short) (1000 + i % 7);
+            }
+            Input input = new Input(false);
+            Output output = new Output(false);
+            assert Arrays.equals(ids, (int[]) input.read(output.write(ids)));
+            assert Arrays.equals(randoms, (int[]) input.read(output.write(randoms)));
+            assert Arrays.equals(shorts, (short[]) input.read(output.write(shorts)));
+        }
+    }
+
+    @Test
+    public void testFloats() throws IOException {
+        Random random = new Random(3);
+        for (int len : new int[]{0, 1, 8, 31, 32, 33, 1000}) {
+            double[] sensors = new double[len];
+            double[] randoms = new double[len];
+            double[] specials = new double[len];
+            float[] temperatures = new float[len];
+            float[] noises = new float[len];
+            for (int i = 0; i < len; i++) {
+                sensors[i] = 20.0 + (i / 10) * 0.5;
+                randoms[i] = random.nextDouble();
+                specials[i] = new double[]{Double.NaN, -0.0, 0.0, Double.MIN_VALUE, Double.POSITIVE_INFINITY, 1}[i % 6];
+                temperatures[i] = 36.5f + (i % 3) * 0.25f;
+                noises[i] = random.nextFloat() * 1000;
+            }
+            Output output = new Output(false);
+            Input input = new Input(false);
+            for (double[] arr : new double[][]{sensors, randoms, specials}) {
+                byte[] bytes = output.write(arr);
+                assert Arrays.equals(arr, (double[]) input.read(bytes));
+                assert bytes.length <= len * 8 + 4;
+            }
+            for (float[] arr : new float[][]{temperatures, noises}) {
+                byte[] bytes = output.write(arr);
+                assert Arrays.equals(arr, (float[]) input.read(bytes));
+                assert bytes.length <= len * 4 + 4;
+            }
+        }
+        // slowly changing series should shrink a lot
+        double[] sensors = new double[1000];
+        float[] temperatures = new float[1000];
+        for (int i = 0; i < 1000; i++) {
+            sensors[i] = 20.0 + (i / 10) * 0.5;
+            temperatures[i] = 36.5f + (i % 3) * 0.25f;
+        }
+        assert new Output(false).write(sensors).length * 5 < sensors.length * 8;
+        assert new Output(false).write(temperatures).length * 3 < temperatures.length * 4;
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        List<Object> list = new ArrayList<>();
+        long[] longs = new long[100];
+        int[] ints = new int[100];
+        for (int i = 0; i < 100; i++) {
+            longs[i] = i * 3;
+            ints[i] = i % 5;
+        }
+        double[] doubles = new double[100];
+        for (int i = 0; i < 100; i++) {
+            doubles[i] = i / 10;
+        }
+        list.add(longs);
+        list.add(doubles);
+        list.add(ints);
+        list.add("end");
+        byte[] bytes = new Output(false).write(list);
+
+        InputParser parser = new Input(false).parse(bytes);
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        assert parser.nextToken() == InputParser.Token.VALUE_NATIVE_ARRAY; // skip the packed long[]
+        assert parser.nextToken() == InputParser.Token.VALUE_NATIVE_ARRAY; // skip the packed double[]
+        assert parser.nextToken() == InputParser.Token.VALUE_NATIVE_ARRAY;
+        assert Arrays.equals(ints, (int[]) parser.readNativeArray());
+        assert parser.nextToken() == InputParser.Token.VALUE_STRING && parser.readString().equals("end");
+    }
+
+    private static int plainSize(long[] arr) throws IOException {
+        OutputBuffer buf = new OutputBuffer(1 << 24);
+        buf.writeLongArray(arr);
+        return buf.size();
+    }
+}
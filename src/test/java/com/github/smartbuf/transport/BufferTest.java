@@ -3,10 +3,14 @@ package com.github.smartbuf.transport;
 import com.github.smartbuf.exception.OutOfSpaceException;
 import com.github.smartbuf.exception.UnexpectedReadException;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -53,6 +57,44 @@ public class BufferTest {
         assert Short.MAX_VALUE == inputBuffer.readShort();
     }
 
+    @Test
+    public void testByteBuffer() throws IOException {
+        OutputBuffer output = new OutputBuffer(1 << 20);
+        output.writeShort(Short.MIN_VALUE);
+        output.writeFloat(1.5f);
+        output.writeDouble(-3.25);
+        output.writeString("你好，中国");
+        output.writeString(RandomStringUtils.random(100));
+        output.writeFloatArray(new float[]{1f, 2f, Float.NaN});
+        output.writeDoubleArray(new double[]{1.0, Double.MIN_VALUE});
+        output.writeByteArray(new byte[]{1, 2, 3});
+        output.writeVarInt(-100);
+
+        ByteBuffer heap = ByteBuffer.allocate(output.offset);
+        ByteBuffer direct = ByteBuffer.allocateDirect(output.offset).order(ByteOrder.LITTLE_ENDIAN);
+        for (ByteBuffer buf : new ByteBuffer[]{heap, direct}) {
+            buf.put(output.data, 0, output.offset);
+            buf.flip();
+            InputBuffer input = InputBuffer.valueOf(buf);
+            assert input.readShort() == Short.MIN_VALUE;
+            assert input.readFloat() == 1.5f;
+            assert input.readDouble() == -3.25;
+            assert input.readString().equals("你好，中国");
+            assert input.readString().length() == 100;
+            assert Arrays.equals(input.readFloatArray(3), new float[]{1f, 2f, Float.NaN});
+            assert Arrays.equals(input.readDoubleArray(2), new double[]{1.0, Double.MIN_VALUE});
+            assert Arrays.equals(input.readByteArray(3), new byte[]{1, 2, 3});
+            assert input.readVarInt() == -100;
+            assert !buf.hasRemaining();
+            try {
+                input.readDouble();
+                assert false;
+            } catch (Exception e) {
+                assert e instanceof EOFException;
+            }
+        }
+    }
+
     @Test
     public void testOutSpace() {
         OutputBuffer buffer = new OutputBuffer(1 << 10);
@@ -79,7 +121,7 @@ public class BufferTest {
         }
         output.writeString(sb.toString());
 
-        InputBuffer input = InputBuffer.valueOf(output.data);
+        InputBuffer input = InputBuffer.valueOf(output.toByteArray());
 
         assert input.readString().length() == 40;
         assert input.readString().length() == 5460;
@@ -87,6 +129,49 @@ public class BufferTest {
         assert input.readString().length() == size;
     }
 
+    @Test
+    public void testSegments() throws IOException {
+        OutputBuffer output = new OutputBuffer(1 << 24);
+        byte[] bytes = RandomUtils.nextBytes(OutputBuffer.SEGMENT_SIZE * 3);
+        for (int round = 0; round < 2; round++) {
+            output.reset();
+            int pos = 0;
+            for (int i = 0; i < 100000; i++) {
+                if (i % 1000 == 0) {
+                    pos = output.skip(2);
+                }
+                output.writeVarInt(i);
+                if (i % 1000 == 999) {
+                    output.writeShortAt(pos, (short) i);
+                }
+            }
+            output.writeByteArray(bytes);
+            output.writeString("hello world");
+            assert output.segments() > 1;
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            output.writeTo(bos);
+            ByteBuffer[] buffers = new ByteBuffer[output.segments()];
+            output.exportTo(buffers, 0);
+            ByteBuffer gathered = ByteBuffer.allocate(output.size());
+            for (ByteBuffer buf : buffers) {
+                gathered.put(buf);
+            }
+            assert Arrays.equals(bos.toByteArray(), output.toByteArray());
+            assert Arrays.equals(gathered.array(), output.toByteArray());
+
+            InputBuffer input = InputBuffer.valueOf(output.toByteArray());
+            for (int i = 0; i < 100000; i++) {
+                if (i % 1000 == 0) {
+                    assert input.readShort() == (short) (i + 999);
+                }
+                assert input.readVarInt() == i;
+            }
+            assert Arrays.equals(input.readByteArray(bytes.length), bytes);
+            assert input.readString().equals("hello world");
+        }
+    }
+
     @Test
     public void testBuffer() {
 
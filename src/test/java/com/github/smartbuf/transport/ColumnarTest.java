@@ -0,0 +1,174 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.reflect.XTypeUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * @author sulin
+ * @since 2019-12-11 16:42:19
+ */
+public class ColumnarTest {
+
+    @Test
+    public void testTyped() throws IOException {
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            output.setColumnar(true);
+            Input input = new Input(stream);
+            for (int round = 0; round < 3; round++) {
+                for (int size : new int[]{1, 7, 8, 63, 64, 100, 3000}) {
+                    List<Row> rows = rows(size, round);
+                    byte[] bytes = output.write(rows);
+                    Row[] result = (Row[]) input.read(bytes, XTypeUtils.toXType(Row[].class));
+                    assert Arrays.asList(result).equals(rows);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGeneric() throws IOException {
+        List<Object> list = new ArrayList<>();
+        list.addAll(rows(100, 1));
+        list.add(null);
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("key", "key" + i);
+            map.put("value", i % 3 == 0 ? null : i);
+            list.add(map);
+        }
+        list.add("end");
+
+        Output rowOutput = new Output(false);
+        Output colOutput = new Output(false);
+        colOutput.setColumnar(true);
+        byte[] rowBytes = rowOutput.write(list);
+        byte[] colBytes = colOutput.write(list);
+        assert colBytes.length < rowBytes.length;
+
+        // the tokens should be the same as row-major layout
+        Input input = new Input(false);
+        assert dump(input.parse(colBytes)).equals(dump(input.parse(rowBytes)));
+
+        // skip columnar slice
+        InputParser parser = input.parse(colOutput.write(list));
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        for (int i = 0; i < 121; i++) {
+            parser.nextToken();
+            parser.skipValue();
+        }
+        assert parser.nextToken() == InputParser.Token.VALUE_STRING && parser.readString().equals("end");
+
+        // skip the whole array, its columns are skipped without rebuilding rows
+        parser = input.parse(colOutput.write(Arrays.asList(list, list.subList(0, 100), "end")));
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        parser.skipValue();
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        parser.skipValue();
+        assert parser.nextToken() == InputParser.Token.VALUE_STRING && parser.readString().equals("end");
+        assert parser.nextToken() == InputParser.Token.END_ARRAY;
+    }
+
+    @Test
+    public void testProjection() throws IOException {
+        Output output = new Output(false);
+        output.setColumnar(true);
+        output.setSizedDepth(3);
+        Input input = new Input(false);
+        List<Row> rows = rows(200, 2);
+        Projection projection = Projection.of("id", "item.name");
+
+        Row[] result = (Row[]) input.read(output.write(rows), XTypeUtils.toXType(Row[].class), projection);
+        for (int i = 0; i < rows.size(); i++) {
+            assert result[i].id == rows.get(i).id;
+            assert result[i].item.name.equals(rows.get(i).item.name);
+            assert result[i].item.price == 0 && result[i].name == null && result[i].tags == null;
+        }
+        assert Arrays.asList((Row[]) input.read(output.write(rows), XTypeUtils.toXType(Row[].class))).equals(rows);
+    }
+
+    private static List<Row> rows(int size, int round) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Row row = new Row();
+            row.id = 10000L + i;
+            row.count = i % 10;
+            row.price = 99.5 + (i / 10) * 0.5;
+            row.ratio = i % 4 * 0.25f;
+            row.name = "row" + (i % 30 + round);
+            row.status = Status.values()[i % 3];
+            row.parent = i % 5 == 0 ? null : i / 5;
+            row.tags = i % 7 == 0 ? null : Arrays.asList("t" + i % 2, "t" + i % 3);
+            row.scores = i % 2 == 0 ? null : new int[]{i, i + 1};
+            row.item = new Item("item" + i % 11, i % 11 * 1.5);
+            row.valid = i % 2 == 0;
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<String> dump(InputParser parser) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        for (InputParser.Token token = parser.nextToken(); token != null; token = parser.nextToken()) {
+            switch (token) {
+                case VALUE_BOOLEAN:
+                    tokens.add(token + ":" + parser.readBoolean());
+                    break;
+                case VALUE_LONG:
+                    tokens.add(token + ":" + parser.readLong());
+                    break;
+                case VALUE_FLOAT:
+                case VALUE_DOUBLE:
+                    tokens.add(token + ":" + parser.readDouble());
+                    break;
+                case VALUE_STRING:
+                    tokens.add(token + ":" + parser.readString());
+                    break;
+                case VALUE_NATIVE_ARRAY:
+                    tokens.add(token + ":" + Arrays.toString((int[]) parser.readNativeArray()));
+                    break;
+                case FIELD_NAME:
+                    tokens.add(token + ":" + parser.fieldName());
+                    break;
+                default:
+                    tokens.add(token.toString());
+            }
+        }
+        return tokens;
+    }
+
+    public enum Status {
+        NEW, PAID, DONE
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Row {
+        private long         id;
+        private int          count;
+        private double       price;
+        private float        ratio;
+        private String       name;
+        private Status       status;
+        private Integer      parent;
+        private List<String> tags;
+        private int[]        scores;
+        private Item         item;
+        private boolean      valid;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String name;
+        private double price;
+    }
+}
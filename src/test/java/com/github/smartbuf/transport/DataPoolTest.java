@@ -7,6 +7,7 @@ import com.github.smartbuf.utils.TimeUtils;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * @author sulin
@@ -164,4 +165,38 @@ public class DataPoolTest {
         }
     }
 
+    @Test
+    public void testInputReuse() throws IOException {
+        OutputDataPool outputPool = new OutputDataPool(16);
+        InputDataPool inputPool = new InputDataPool();
+        for (int round = 1; round <= 3; round++) {
+            outputPool.reset();
+            for (int i = 1; i <= round * 10; i++) {
+                assert outputPool.registerFloat(i * 0.5f) == i + 1;
+                assert outputPool.registerDouble(i * 0.25) == i + 1;
+                assert outputPool.registerVarint(-i) == i + 1;
+            }
+            OutputBuffer buffer = new OutputBuffer(1 << 10);
+            assert outputPool.needOutput();
+            outputPool.write(buffer);
+
+            inputPool.reset();
+            inputPool.read(InputBuffer.valueOf(Arrays.copyOf(buffer.data, buffer.offset)));
+            for (int i = 1; i <= round * 10; i++) {
+                assert inputPool.getFloat(i + 1) == i * 0.5f;
+                assert inputPool.getDouble(i + 1) == i * 0.25;
+                assert inputPool.getVarint(i + 1) == -i;
+            }
+        }
+
+        // the previous round's data is invalid after reset
+        inputPool.reset();
+        try {
+            inputPool.getVarint(2);
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof InvalidDataException;
+        }
+    }
+
 }
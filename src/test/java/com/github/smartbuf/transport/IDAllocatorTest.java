@@ -1,8 +1,11 @@
 package com.github.smartbuf.transport;
 
+import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.TreeSet;
+
 /**
  * @author sulin
  * @since 2019-09-30 18:01:40
@@ -53,4 +56,23 @@ public class IDAllocatorTest {
         assert allocator.acquire() == 3;
     }
 
+    @Test
+    public void testRandom() {
+        IDAllocator allocator = new IDAllocator();
+        for (int i = 0; i < 10000; i++) {
+            assert allocator.acquire() == i;
+        }
+        TreeSet<Integer> released = new TreeSet<>();
+        for (int i = 0; i < 5000; i++) {
+            int id = RandomUtils.nextInt(0, 10000);
+            if (released.add(id)) {
+                allocator.release(id);
+            }
+        }
+        while (!released.isEmpty()) {
+            assert allocator.acquire() == released.pollFirst();
+        }
+        assert allocator.acquire() == 10000;
+    }
+
 }
@@ -11,9 +11,16 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalInt;
 
@@ -67,6 +74,40 @@ public class IOSliceTest {
         assert Objects.deepEquals(srcArr, tgt);
     }
 
+    @Test
+    public void testFrames() throws IOException {
+        List<Object> rows = create();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("name", RandomStringUtils.randomAlphabetic(8));
+            row.put("tags", Arrays.asList("tag" + i, "tag" + (i + 1)));
+            rows.add(row);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("rows", rows);
+        data.put("tail", "end");
+
+        for (boolean cxt : new boolean[]{false, true}) {
+            byte[] packet = new Output(cxt).write(data);
+            // compare results by their encoding in packet-mode
+            byte[] expected = new Output(false).write(new Input(cxt).read(packet));
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            Output output = new Output(cxt);
+            output.write(data, bos, 1024);
+            assert !Arrays.equals(packet, bos.toByteArray()); // it was cut into frames
+            output.write(data, bos, 1024);
+
+            Input input = new Input(cxt);
+            InputStream is = new ByteArrayInputStream(bos.toByteArray());
+            for (int i = 0; i < 2; i++) {
+                assert Arrays.equals(expected, new Output(false).write(input.read(is)));
+            }
+            assert is.read() == -1;
+        }
+    }
+
     List<Object> create() {
         List<Object> result = new ArrayList<>();
         // boolean
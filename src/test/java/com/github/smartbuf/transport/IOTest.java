@@ -163,6 +163,19 @@ public class IOTest {
         assert result instanceof ObjectNode;
     }
 
+    @Test
+    public void testVersion() throws IOException {
+        Input input = new Input(false);
+        assert input.read(new byte[]{Const.VER, Const.CONST_TRUE}).equals(true);
+        assert input.read(new byte[]{Const.VER_1, Const.CONST_TRUE}).equals(true); // previous version is readable
+        try {
+            input.read(new byte[]{0b0011_0000, Const.CONST_TRUE});
+            assert false;
+        } catch (Exception e) {
+            assert e instanceof InvalidVersionException;
+        }
+    }
+
     @Test
     public void testError() {
         Input input = new Input(true);
@@ -0,0 +1,278 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.converter.Codec;
+import com.github.smartbuf.converter.Converter;
+import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.reflect.TypeRef;
+import com.github.smartbuf.reflect.XType;
+import com.github.smartbuf.reflect.XTypeUtils;
+import com.github.smartbuf.utils.CodecUtils;
+import lombok.Data;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * @author sulin
+ * @since 2019-11-23 14:20:51
+ */
+public class IOTypedTest {
+
+    @Test
+    public void testBean() throws IOException {
+        for (boolean stream : new boolean[]{true, false}) {
+            Output output = new Output(stream);
+            Input input = new Input(stream);
+            Input genericInput = new Input(stream);
+            for (int i = 0; i < 3; i++) {
+                Model model = new Model();
+                byte[] bytes = output.write(model);
+                Object generic = genericInput.read(bytes);
+
+                Model result = (Model) input.read(bytes, CodecUtils.toXType(Model.class));
+                assert model.equals(result);
+                assert result.equals(CodecUtils.convert(generic, Model.class));
+            }
+        }
+    }
+
+    @Test
+    public void testCollection() throws IOException {
+        List<Model> models = Arrays.asList(new Model(), null, new Model(), new Model());
+
+        Output output = new Output(false);
+        Input input = new Input(false);
+        byte[] bytes = output.write(models);
+
+        XType<?> listType = CodecUtils.toXType(new TypeRef<List<Model>>() {
+        }.getType());
+        Object result = input.read(bytes, listType);
+        assert models.equals(result);
+
+        Model[] arr = (Model[]) input.read(bytes, CodecUtils.toXType(Model[].class));
+        assert models.equals(Arrays.asList(arr));
+
+        Set<Long> ids = new HashSet<>(Arrays.asList(1L, 2L, 3L));
+        XType<?> setType = CodecUtils.toXType(new TypeRef<TreeSet<Integer>>() {
+        }.getType());
+        Object set = input.read(output.write(ids), setType);
+        assert set instanceof TreeSet;
+        assert set.equals(new TreeSet<>(Arrays.asList(1, 2, 3)));
+
+        Object bigArr = input.read(output.write(new Model[200]), CodecUtils.toXType(Model[].class));
+        assert ((Model[]) bigArr).length == 200;
+    }
+
+    @Test
+    public void testLoose() throws IOException {
+        Output output = new Output(true);
+        Input input = new Input(true);
+
+        Model model = new Model();
+        model.state = null;
+        byte[] bytes = output.write(model);
+        Loose loose = (Loose) input.read(bytes, CodecUtils.toXType(Loose.class));
+        assert loose.id.equals(String.valueOf(model.id));
+        assert loose.score == model.score;
+        assert loose.rate == (float) model.rate;
+        assert Objects.equals(loose.name, model.name);
+        assert loose.state == Thread.State.NEW; // null value is ignored
+        assert loose.time.getTime() == model.time;
+
+        // struct's mapping should be reused
+        loose = (Loose) input.read(output.write(model), CodecUtils.toXType(Loose.class));
+        assert loose.id.equals(String.valueOf(model.id));
+
+        Map map = (Map) input.read(output.write(model), CodecUtils.toXType(Map.class));
+        assert map.size() == 12;
+
+        model.state = Thread.State.BLOCKED;
+        Object obj = input.read(new ByteArrayInputStream(output.write(model)), CodecUtils.toXType(Model.class));
+        assert model.equals(obj);
+    }
+
+    @Test
+    public void testByteBuffer() throws IOException {
+        Output output = new Output(true);
+        Input input = new Input(true);
+
+        ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+        List<Model> models = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Model model = new Model();
+            models.add(model);
+            output.write(model, buf);
+        }
+        File file = File.createTempFile("smartbuf", ".bin");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buf.flip();
+            channel.write(buf);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            assert models.get(0).equals(input.read(mapped, CodecUtils.toXType(Model.class)));
+            assert models.get(1).equals(CodecUtils.convert(input.read(mapped), Model.class));
+            assert models.get(2).equals(input.read(mapped, CodecUtils.toXType(Model.class)));
+            assert !mapped.hasRemaining();
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        InputBuffer.InputStreamReader.CHUNK_SIZE = 64; // force refilling and rewinding
+        try {
+            Output output = new Output(true);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            List<Object> objects = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Model model = new Model();
+                model.name = RandomStringUtils.randomAlphanumeric(i * 50);
+                objects.add(model);
+                objects.add(new double[]{i, 1.5, -2.5});
+                objects.add(RandomStringUtils.random(i * 30));
+            }
+            for (Object obj : objects) {
+                output.write(obj, bos);
+            }
+            bos.write(0x7F);
+            byte[] bytes = bos.toByteArray();
+
+            for (boolean markable : new boolean[]{true, false}) {
+                InputStream is = new ByteArrayInputStream(bytes);
+                if (!markable) {
+                    is = new FilterInputStream(is) {
+                        @Override
+                        public boolean markSupported() {
+                            return false;
+                        }
+                    };
+                }
+                Input input = new Input(true);
+                for (int i = 0; i < objects.size(); i += 3) {
+                    assert objects.get(i).equals(input.read(is, CodecUtils.toXType(Model.class)));
+                    assert Arrays.equals((double[]) objects.get(i + 1), (double[]) input.read(is));
+                    assert objects.get(i + 2).equals(input.read(is));
+                }
+                assert is.read() == 0x7F;
+                assert is.read() == -1;
+            }
+        } finally {
+            InputBuffer.InputStreamReader.CHUNK_SIZE = 4096;
+        }
+    }
+
+    @Test
+    public void testStreamBulk() throws IOException {
+        Random random = new Random(1);
+        double[] doubles = new double[1000];
+        float[] floats = new float[1000];
+        short[] shorts = new short[1000];
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            doubles[i] = random.nextDouble();
+            floats[i] = random.nextFloat();
+            shorts[i] = (short) random.nextInt();
+        }
+        for (int i = 0; i < 10; i++) {
+            map.put("d" + i, random.nextDouble());
+            map.put("f" + i, random.nextFloat());
+        }
+        Output output = new Output(false);
+        for (Object obj : new Object[]{doubles, floats, shorts, map}) {
+            int[] reads = new int[1];
+            InputStream is = new FilterInputStream(new ByteArrayInputStream(output.write(obj))) {
+                @Override
+                public int read() throws IOException {
+                    reads[0]++;
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    reads[0]++;
+                    return super.read(b, off, len);
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+            };
+            Object result = new Input(false).read(is);
+            assert reads[0] < 200; // only heads and metadata are read byte by byte
+            assert Objects.deepEquals(obj, result) || obj.equals(CodecUtils.convert(result, Map.class));
+        }
+    }
+
+    @Test
+    public void testCodecInstalled() throws IOException {
+        Output output = new Output(false);
+        Input input = new Input(false);
+        Money money = new Money();
+        money.amount = 42;
+        XType<?> type = XTypeUtils.toXType(Money.class);
+        assert ((Money) input.read(output.write(money), type)).amount == 42; // decoded as bean
+
+        // the cached bean decoder should be dropped after new codecs were installed
+        CodecUtils.installCodec(new MoneyCodec());
+        assert ((Money) input.read(output.write(money), type)).amount == 4200;
+    }
+
+    @Data
+    public static class Model {
+        private long              id     = RandomUtils.nextLong();
+        private int               count  = RandomUtils.nextInt();
+        private Short             level  = (short) RandomUtils.nextInt(0, Short.MAX_VALUE);
+        private Boolean           enable = RandomUtils.nextBoolean();
+        private boolean           hidden = RandomUtils.nextBoolean();
+        private float             rate   = RandomUtils.nextFloat();
+        private double            score  = RandomUtils.nextDouble();
+        private String            name   = RandomStringUtils.randomAlphanumeric(16);
+        private Thread.State      state  = Thread.State.BLOCKED;
+        private long              time   = System.currentTimeMillis();
+        private List<Tag>         tags   = Arrays.asList(new Tag(), new Tag());
+        private Map<String, Long> attrs  = Collections.singletonMap("k", 1L);
+    }
+
+    @Data
+    public static class Tag {
+        private int    code = RandomUtils.nextInt();
+        private String desc = RandomStringUtils.randomAlphanumeric(8);
+    }
+
+    @Data
+    public static class Loose {
+        private String       id;
+        private double       score;
+        private double       rate;
+        private String       name;
+        private Thread.State state = Thread.State.NEW;
+        private Date         time;
+    }
+
+    @Data
+    public static class Money {
+        private long amount;
+    }
+
+    public static class MoneyCodec extends Codec {
+        @Converter(distance = -100)
+        public Money toMoney(ObjectNode node) {
+            Money money = new Money();
+            money.amount = ((Number) node.values()[0]).longValue() * 100;
+            return money;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.transport.InputParser.Token;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author sulin
+ * @since 2019-12-02 14:05:11
+ */
+public class InputParserTest {
+
+    @Test
+    public void testPick() throws IOException {
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            Input input = new Input(stream);
+            for (int round = 0; round < 3; round++) {
+                Log log = new Log();
+                byte[] bytes = output.write(log);
+
+                InputParser parser = input.parse(bytes);
+                assert parser.nextToken() == Token.START_OBJECT;
+                assert Arrays.asList(parser.fieldNames()).contains("level");
+                String level = null;
+                long time = 0;
+                while (parser.nextToken() == Token.FIELD_NAME) {
+                    switch (parser.fieldName()) {
+                        case "level":
+                            parser.nextToken();
+                            level = parser.readString();
+                            break;
+                        case "time":
+                            parser.nextToken();
+                            time = parser.readLong();
+                            break;
+                        default:
+                            parser.skipValue();
+                    }
+                }
+                assert parser.currentToken() == Token.END_OBJECT;
+                assert parser.nextToken() == null;
+                assert log.level.name().equals(level);
+                assert log.time == time;
+            }
+        }
+    }
+
+    @Test
+    public void testTokens() throws IOException {
+        List<Object> list = new ArrayList<>();
+        list.add(1);
+        list.add(2);
+        list.add(1.5f);
+        list.add(2.5);
+        list.add("hello");
+        list.add(null);
+        list.add(true);
+        list.add(new int[]{1, 2, 3});
+        list.add(new byte[]{1, 2});
+        list.add(new ArrayList<>());
+        list.add(Arrays.asList(new Tag(1, "a"), new Tag(2, "b")));
+        list.add(Level.WARN);
+
+        byte[] bytes = new Output(false).write(list);
+        InputParser parser = new Input(false).parse(ByteBuffer.wrap(bytes));
+        assert parser.nextToken() == Token.START_ARRAY;
+        assert parser.nextToken() == Token.VALUE_LONG && parser.readLong() == 1;
+        assert parser.nextToken() == Token.VALUE_LONG; // skip it
+        assert parser.nextToken() == Token.VALUE_FLOAT && parser.readDouble() == 1.5;
+        assert parser.nextToken() == Token.VALUE_DOUBLE && parser.readDouble() == 2.5 && parser.readLong() == 2;
+        assert parser.nextToken() == Token.VALUE_STRING && parser.readString().equals("hello");
+        assert parser.nextToken() == Token.VALUE_NULL;
+        assert parser.nextToken() == Token.VALUE_BOOLEAN && parser.readBoolean();
+        assert parser.nextToken() == Token.VALUE_NATIVE_ARRAY;
+        assert Arrays.equals((int[]) parser.readNativeArray(), new int[]{1, 2, 3});
+        assert parser.nextToken() == Token.VALUE_NATIVE_ARRAY; // skip it
+        assert parser.nextToken() == Token.START_ARRAY;
+        assert parser.nextToken() == Token.END_ARRAY;
+        assert parser.nextToken() == Token.START_ARRAY;
+        assert parser.nextToken() == Token.START_OBJECT;
+        parser.skipValue();
+        assert parser.currentToken() == Token.END_OBJECT;
+        assert parser.nextToken() == Token.START_OBJECT;
+        assert parser.nextToken() == Token.FIELD_NAME && parser.fieldName().equals("code");
+        assert parser.nextToken() == Token.VALUE_LONG && parser.readLong() == 2;
+        assert parser.nextToken() == Token.FIELD_NAME && parser.fieldName().equals("name");
+        assert parser.nextToken() == Token.VALUE_STRING && parser.readString().equals("b");
+        assert parser.nextToken() == Token.END_OBJECT;
+        assert parser.nextToken() == Token.END_ARRAY;
+        assert parser.nextToken() == Token.VALUE_STRING && parser.readString().equals("WARN");
+        assert parser.nextToken() == Token.END_ARRAY;
+        assert parser.nextToken() == null;
+
+        try {
+            parser = new Input(false).parse(bytes);
+            parser.nextToken();
+            parser.readLong();
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().contains("START_ARRAY");
+        }
+    }
+
+    @Test
+    public void testFrames() throws IOException {
+        List<Tag> tags = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tags.add(new Tag(i, "tag" + i));
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Output output = new Output(true);
+        output.write(tags, bos, 1024);
+        output.write(tags, bos, 1024);
+
+        Input input = new Input(true);
+        InputStream is = new ByteArrayInputStream(bos.toByteArray());
+        for (int round = 0; round < 2; round++) {
+            InputParser parser = input.parse(is);
+            assert parser.nextToken() == Token.START_ARRAY;
+            int count = 0;
+            while (parser.nextToken() == Token.START_OBJECT) {
+                parser.nextToken();
+                parser.skipValue();
+                assert parser.nextToken() == Token.FIELD_NAME;
+                parser.nextToken();
+                assert parser.readString().equals("tag" + count);
+                assert parser.nextToken() == Token.END_OBJECT;
+                count++;
+            }
+            assert count == tags.size();
+            assert parser.nextToken() == null;
+        }
+        assert is.read() == -1;
+    }
+
+    public enum Level {
+        INFO, WARN
+    }
+
+    @Data
+    public static class Log {
+        private long         time    = System.currentTimeMillis();
+        private Level        level   = Level.INFO;
+        private String       message = "something happened";
+        private List<String> tags    = Arrays.asList("a", "b", "c");
+        private double[]     values  = new double[]{1.0, 2.0};
+        private Tag          tag     = new Tag(1, "tag");
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tag {
+        private int    code;
+        private String name;
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.reflect.XTypeUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author sulin
+ * @since 2019-12-05 17:20:45
+ */
+public class LazyObjectTest {
+
+    @Test
+    public void testLazy() throws IOException {
+        for (boolean stream : new boolean[]{false, true}) {
+            for (int sizedDepth : new int[]{0, 1, 2}) {
+                Output output = new Output(stream);
+                output.setSizedDepth(sizedDepth);
+                Input input = new Input(stream);
+                for (int round = 0; round < 3; round++) {
+                    Envelope envelope = new Envelope(round);
+                    byte[] bytes = output.write(envelope);
+
+                    LazyObject obj = (LazyObject) input.readLazy(bytes);
+                    assert obj.size() == 5;
+                    assert obj.get("route").equals(envelope.route);
+                    assert obj.get("id").equals(envelope.id);
+                    assert obj.get("unknown") == null;
+                    assert obj.indexOf("unknown") == -1;
+
+                    LazyObject tag = (LazyObject) obj.get("tag");
+                    assert tag.get("name").equals(envelope.tag.name);
+                    assert ((Number) tag.get("code")).intValue() == envelope.tag.code;
+                    assert tag == obj.get("tag");
+
+                    Object[] body = (Object[]) obj.get("body");
+                    assert body.length == envelope.body.size();
+                    assert ((LazyObject) obj.get("headers")).get("h" + round).equals("v" + round);
+
+                    // full reading should be compatible with sized containers
+                    bytes = output.write(envelope);
+                    assert envelope.equals(input.read(bytes, XTypeUtils.toXType(Envelope.class)));
+                    bytes = output.write(envelope);
+                    InputParser parser = input.parse(bytes);
+                    parser.nextToken();
+                    parser.skipValue();
+                    assert parser.currentToken() == InputParser.Token.END_OBJECT;
+                    assert parser.nextToken() == null;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSized() throws IOException {
+        Envelope envelope = new Envelope(1);
+        Output output = new Output(false);
+        byte[] plain = output.write(envelope);
+        output.setSizedDepth(1);
+        byte[] sized = output.write(envelope);
+        assert sized.length == plain.length + 3 * 5; // body, headers and tag are sized
+        assert envelope.equals(new Input(false).read(sized, XTypeUtils.toXType(Envelope.class)));
+
+        // non-object root is decoded directly
+        assert new Input(false).readLazy(output.write("hello")).equals("hello");
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Envelope {
+        private List<Tag>           body    = new ArrayList<>();
+        private Map<String, String> headers = new HashMap<>();
+        private long                id;
+        private String              route;
+        private Tag                 tag;
+
+        public Envelope(int round) {
+            for (int i = 0; i < 1000; i++) {
+                body.add(new Tag(i, "body" + i));
+            }
+            headers.put("h" + round, "v" + round);
+            id = 1000 + round;
+            route = "route" + round;
+            tag = new Tag(round, "tag" + round);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tag {
+        private int    code;
+        private String name;
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.smartbuf.transport;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author sulin
+ * @since 2019-11-25 21:02:44
+ */
+public class LongIndexTest {
+
+    @Test
+    public void test() {
+        LongIndex index = new LongIndex();
+        assert index.register(100) == 0;
+        assert index.register(-1) == 1;
+        assert index.register(100) == 0;
+        assert index.register(Long.MIN_VALUE) == 2;
+        assert index.size() == 3;
+        assert index.get(1) == -1;
+        assert index.get(2) == Long.MIN_VALUE;
+
+        index.clear();
+        assert index.size() == 0;
+        assert index.register(-1) == 0;
+        assert index.register(100) == 1;
+    }
+
+    @Test
+    public void testRandom() {
+        LongIndex index = new LongIndex();
+        for (int round = 0; round < 10; round++) {
+            Map<Long, Integer> map = new HashMap<>();
+            for (int i = 0; i < 10000; i++) {
+                long value = RandomUtils.nextLong(0, 5000) << (round * 3);
+                int id = index.register(value);
+                assert id == map.computeIfAbsent(value, v -> map.size());
+                assert index.get(id) == value;
+            }
+            assert index.size() == map.size();
+            index.clear();
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.github.smartbuf.transport;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author sulin
+ * @since 2019-12-13 10:40:12
+ */
+public class LruListTest {
+
+    @Test
+    public void test() {
+        LruList<String> list = new LruList<>();
+        assert list.first() == null;
+
+        LruList.Node<String> a = new LruList.Node<>("a");
+        LruList.Node<String> b = new LruList.Node<>("b");
+        LruList.Node<String> c = new LruList.Node<>("c");
+        list.touch(a);
+        list.touch(b);
+        list.touch(c);
+        assert "a".equals(list.first());
+
+        list.touch(a);
+        assert "b".equals(list.first());
+        list.touch(a); // touch the tail again
+        assert "b".equals(list.first());
+
+        list.unlink(b);
+        assert "c".equals(list.first());
+        list.unlink(b); // unlinked node is ok
+        list.unlink(a);
+        assert "c".equals(list.first());
+        list.unlink(c);
+        assert list.first() == null;
+
+        list.touch(b);
+        assert "b".equals(list.first());
+    }
+
+}
@@ -126,6 +126,26 @@ public class MetaPoolTest {
         assert pool.registerCxtStruct("id1", "name") == 4 * 2 + 1;
     }
 
+    @Test
+    public void testLRU() {
+        OutputMetaPool pool = new OutputMetaPool(2);
+        assert pool.registerCxtStruct("a") == 2 + 1;
+        assert pool.registerCxtStruct("b") == 2 * 2 + 1;
+        assert pool.registerCxtStruct("c") == 3 * 2 + 1;
+        assert pool.registerCxtStruct("a") == 2 + 1; // touch without waiting for clock
+
+        pool.reset(); // b released
+        assert pool.cxtStructIndex.size() == 2;
+        assert pool.cxtStructExpired.size() == 1;
+        assert pool.cxtStructExpired.get(0) == 1;
+        assert pool.registerCxtStruct("b") == 2 * 2 + 1;
+        assert pool.registerCxtStruct("c") == 3 * 2 + 1;
+
+        pool.reset(); // a released
+        assert pool.registerCxtStruct("a") == 2 + 1;
+        assert pool.cxtStructIndex.size() == 3;
+    }
+
     @Test
     public void testNames() {
         OutputMetaPool.Names names1 = new OutputMetaPool.Names();
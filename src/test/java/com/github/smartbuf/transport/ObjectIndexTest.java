@@ -0,0 +1,62 @@
+package com.github.smartbuf.transport;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author sulin
+ * @since 2019-11-26 19:40:17
+ */
+public class ObjectIndexTest {
+
+    @Test
+    public void test() {
+        ObjectIndex<String> index = new ObjectIndex<>();
+        assert index.find("hello") == -1;
+        assert index.register("hello") == 0;
+        assert index.register("world") == 1;
+        assert index.register("hello") == 0;
+        assert index.find("world") == 1;
+        assert index.size() == 2;
+        assert index.get(1).equals("world");
+
+        index.clear();
+        assert index.size() == 0;
+        assert index.get(1) == null; // cleared values shouldn't be retained
+        assert index.find("hello") == -1;
+        assert index.register("world") == 0;
+        assert index.add("hello") == 1;
+    }
+
+    @Test
+    public void testProbe() {
+        ObjectIndex<OutputMetaPool.Struct> index = new ObjectIndex<>();
+        index.add(new OutputMetaPool.Struct(new String[]{"id", "name"}, new int[]{0, 1}));
+
+        OutputMetaPool.Names probe = new OutputMetaPool.Names();
+        probe.names = new String[]{"id", "name"};
+        assert index.find(probe) == 0;
+        probe.names = new String[]{"id"};
+        assert index.find(probe) == -1;
+    }
+
+    @Test
+    public void testRandom() {
+        ObjectIndex<String> index = new ObjectIndex<>();
+        for (int round = 0; round < 10; round++) {
+            Map<String, Integer> map = new HashMap<>();
+            for (int i = 0; i < 10000; i++) {
+                String value = String.valueOf(RandomUtils.nextInt(0, 5000) << round);
+                int id = index.register(value);
+                assert id == map.computeIfAbsent(value, v -> map.size());
+                assert index.get(id).equals(value);
+            }
+            assert index.size() == map.size();
+            index.clear();
+        }
+    }
+
+}
@@ -1,17 +1,37 @@
 package com.github.smartbuf.transport;
 
+import com.github.smartbuf.converter.Codec;
+import com.github.smartbuf.converter.Converter;
+import com.github.smartbuf.exception.OutOfSpaceException;
+import com.github.smartbuf.node.Node;
+import com.github.smartbuf.node.basic.StringNode;
+import com.github.smartbuf.reflect.XTypeUtils;
+import com.github.smartbuf.utils.CodecUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * @author sulin
@@ -35,6 +55,172 @@ public class OutputTest {
         }
     }
 
+    @Test
+    public void testBean() throws IOException {
+        for (boolean stream : new boolean[]{true, false}) {
+            Bean bean = new Bean();
+            byte[] beanBytes = new Output(stream).write(bean);
+            byte[] nodeBytes = new Output(stream).write(CodecUtils.convert(bean, Node.class));
+            assert Arrays.equals(beanBytes, nodeBytes);
+
+            List<Object> beans = Arrays.asList(bean, new Bean(), new Tag(1, "tag"), null, bean, new Bean());
+            List<Object> nodes = new ArrayList<>();
+            for (Object item : beans) {
+                nodes.add(item == null ? null : CodecUtils.convert(item, Node.class));
+            }
+            beanBytes = new Output(stream).write(beans);
+            nodeBytes = new Output(stream).write(nodes);
+            assert Arrays.equals(beanBytes, nodeBytes);
+        }
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("id", 1);
+        map.put(2, "two");
+        map.put("date", new Date());
+        map.put("bits", new BitSet());
+        map.put("tags", new int[]{1, 2});
+        for (boolean stream : new boolean[]{true, false}) {
+            byte[] mapBytes = new Output(stream).write(map);
+            byte[] nodeBytes = new Output(stream).write(CodecUtils.convert(map, Node.class));
+            assert Arrays.equals(mapBytes, nodeBytes);
+
+            List<Object> maps = Arrays.asList(map, new HashMap<>(), map, null, Collections.singletonMap("k", "v"));
+            List<Object> nodes = new ArrayList<>();
+            for (Object item : maps) {
+                nodes.add(item == null ? null : CodecUtils.convert(item, Node.class));
+            }
+            assert Arrays.equals(new Output(stream).write(maps), new Output(stream).write(nodes));
+        }
+    }
+
+    @Test
+    public void testWriteTarget() throws IOException {
+        Bean bean = new Bean();
+        byte[] expected = new Output(false).write(bean);
+        Output output = new Output(false);
+
+        byte[] arr = new byte[expected.length + 10];
+        assert output.write(bean, arr, 10) == expected.length;
+        assert Arrays.equals(expected, Arrays.copyOfRange(arr, 10, arr.length));
+        try {
+            output.write(bean, new byte[expected.length], 1);
+            assert false;
+        } catch (OutOfSpaceException e) {
+            assert e.getMessage().contains(String.valueOf(expected.length));
+        }
+
+        for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024)}) {
+            buf.put((byte) 1);
+            assert output.write(bean, buf) == expected.length;
+            assert buf.position() == expected.length + 1;
+            buf.flip();
+            buf.get();
+            byte[] bytes = new byte[expected.length];
+            buf.get(bytes);
+            assert Arrays.equals(expected, bytes);
+        }
+        try {
+            output.write(bean, ByteBuffer.allocate(expected.length - 1));
+            assert false;
+        } catch (OutOfSpaceException ignored) {
+        }
+
+        // stream-mode retries by copyLast, so the peer's context keeps in sync
+        Output streamOutput = new Output(true);
+        Input streamInput = new Input(true);
+        for (int i = 0; i < 3; i++) {
+            Bean b = new Bean();
+            b.setName("bean" + i);
+            try {
+                streamOutput.write(b, new byte[1], 0);
+                assert false;
+            } catch (OutOfSpaceException ignored) {
+            }
+            byte[] bytes = new byte[streamOutput.lastSize()];
+            assert streamOutput.copyLast(bytes, 0) == bytes.length;
+            assert streamInput.read(bytes, XTypeUtils.toXType(Bean.class)).equals(b);
+
+            ByteBuffer buf = ByteBuffer.allocate(bytes.length);
+            assert streamOutput.copyLast(buf) == bytes.length;
+            assert Arrays.equals(bytes, buf.array());
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(bos);
+        GatheringByteChannel gathering = new GatheringByteChannel() {
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+                return write(srcs[offset]) + (length > 1 ? write(srcs[offset + 1]) : 0);
+            }
+
+            @Override
+            public long write(ByteBuffer[] srcs) throws IOException {
+                return write(srcs, 0, srcs.length);
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            assert output.write(bean, gathering) == expected.length;
+        }
+        byte[] bytes = bos.toByteArray();
+        assert Arrays.equals(expected, Arrays.copyOfRange(bytes, 0, expected.length));
+        assert Arrays.equals(expected, Arrays.copyOfRange(bytes, expected.length, bytes.length));
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(i % 3 == 0 ? "str" + i : new Tag(i, "tag" + i));
+        }
+        byte[] expected = new Output(false).write(list);
+        Iterable<Object> iterable = list::iterator;
+
+        assert Arrays.equals(expected, new Output(false).write(list.iterator()));
+        assert Arrays.equals(expected, new Output(false).write(iterable));
+        assert Arrays.equals(expected, new Output(false).write(list.stream()));
+
+        Output output = new Output(false);
+        assert Arrays.equals(output.write(Arrays.asList(1, 2, 3)), output.write(IntStream.rangeClosed(1, 3)));
+        assert Arrays.equals(output.write(Collections.emptyList()), output.write(Collections.emptyIterator()));
+        assert Arrays.equals(output.write(Collections.singletonMap("list", list)),
+            output.write(Collections.singletonMap("list", list.iterator())));
+
+        // a lazy source of unknown length could be written as continuation frames
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        output.write(IntStream.range(0, 100000).mapToObj(i -> new Tag(i, "tag" + i)), bos, 4096);
+        Object[] result = (Object[]) new Input(false).read(new ByteArrayInputStream(bos.toByteArray()));
+        assert result.length == 100000;
+    }
+
+    @Test
+    public void testCodecInstalled() throws IOException {
+        Output output = new Output(false);
+        Price price = new Price();
+        price.value = 42;
+        assert new Input(false).read(output.write(price)) != null; // written as bean
+
+        // the cached handler should be resolved again after new codecs were installed
+        CodecUtils.installCodec(new PriceCodec());
+        assert "$42".equals(new Input(false).read(output.write(price)));
+    }
+
     @Test
     public void testBuffer() throws IOException {
         OutputBuffer buffer = new OutputBuffer(1 << 20);
@@ -61,4 +247,16 @@ public class OutputTest {
         private String name;
     }
 
+    @Data
+    public static class Price {
+        private int value;
+    }
+
+    public static class PriceCodec extends Codec {
+        @Converter(distance = -100)
+        public StringNode toNode(Price price) {
+            return StringNode.valueOf("$" + price.value);
+        }
+    }
+
 }
@@ -0,0 +1,177 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.transport.OutputWriter.StructHandle;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author sulin
+ * @since 2019-12-04 14:12:36
+ */
+public class OutputWriterTest {
+
+    private static final StructHandle QUOTE = new StructHandle("symbol", "price", "volume", "tags");
+    private static final StructHandle EMPTY = new StructHandle();
+
+    @Test
+    public void testPacket() throws IOException {
+        Output output = new Output(false);
+        for (int round = 0; round < 3; round++) {
+            List<Object> quotes = createQuotes(round, 100);
+            byte[] expected = output.write(quotes);
+
+            OutputWriter writer = output.writer();
+            writeQuotes(writer, round, 100);
+            assert Arrays.equals(expected, writer.finish());
+        }
+
+        // empty array, empty object and single value
+        assert Arrays.equals(output.write(new ArrayList<>()), output.writer().beginArray().end().finish());
+        assert Arrays.equals(output.write(new LinkedHashMap<>()), output.writer().beginObject(EMPTY).end().finish());
+        assert Arrays.equals(output.write("hello"), output.writer().writeString("hello").finish());
+        assert Arrays.equals(output.write(null), output.writer().writeNull().finish());
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        Output output = new Output(true);
+        Input input = new Input(true);
+        Output packetOutput = new Output(false);
+        Input packetInput = new Input(false);
+        OutputMetaPool.Struct struct = null;
+        for (int round = 0; round < 5; round++) {
+            OutputWriter writer = output.writer();
+            writeQuotes(writer, round, 200);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            writer.finish(bos);
+
+            Object expected = packetInput.read(packetOutput.write(createQuotes(round, 200)));
+            Object got = input.read(bos.toByteArray());
+            assert normalize(expected).equals(normalize(got));
+
+            // the context struct should be cached by handle
+            assert QUOTE.cxtStruct != null;
+            assert struct == null || struct == QUOTE.cxtStruct;
+            struct = QUOTE.cxtStruct;
+        }
+    }
+
+    @Test
+    public void testMisuse() throws IOException {
+        Output output = new Output(false);
+        OutputWriter writer = output.writer();
+        writer.beginObject(QUOTE).writeString("a").writeDouble(1.0);
+        try {
+            writer.end();
+            assert false;
+        } catch (IllegalStateException ignored) {
+        }
+
+        writer = output.writer();
+        writer.writeLong(1);
+        try {
+            writer.writeLong(2);
+            assert false;
+        } catch (IllegalStateException ignored) {
+        }
+        writer.finish();
+        try {
+            writer.finish();
+            assert false;
+        } catch (IllegalStateException ignored) {
+        }
+
+        try {
+            output.writer().beginArray().finish();
+            assert false;
+        } catch (IllegalStateException ignored) {
+        }
+
+        try {
+            new StructHandle("a", "b", "a");
+            assert false;
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static Object normalize(Object o) {
+        if (o instanceof Object[]) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (Object[]) o) {
+                list.add(normalize(item));
+            }
+            return list;
+        }
+        Map<String, Object> map = new TreeMap<>();
+        if (o instanceof ObjectNode) {
+            ObjectNode node = (ObjectNode) o;
+            for (int i = 0; i < node.keys().length; i++) {
+                map.put(node.keys()[i], normalize(node.values()[i]));
+            }
+            return map;
+        }
+        if (o instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+                map.put(entry.getKey().toString(), normalize(entry.getValue()));
+            }
+            return map;
+        }
+        return o;
+    }
+
+    private static void writeQuotes(OutputWriter writer, int round, int count) throws IOException {
+        writer.beginArray();
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 7) {
+                writer.writeNull();
+                continue;
+            }
+            writer.beginObject(QUOTE)
+                .writeString("SYM" + (i % 10))
+                .writeDouble(i * 0.25 + round)
+                .writeLong(i * 1000L - round)
+                .beginArray();
+            for (int j = 0; j < i % 4; j++) {
+                writer.writeString("tag" + j);
+            }
+            writer.end().end();
+            if (i % 30 == 0) {
+                writer.writeLong(i);
+            }
+        }
+        writer.end();
+    }
+
+    private static List<Object> createQuotes(int round, int count) {
+        List<Object> quotes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 7) {
+                quotes.add(null);
+                continue;
+            }
+            List<String> tags = new ArrayList<>();
+            for (int j = 0; j < i % 4; j++) {
+                tags.add("tag" + j);
+            }
+            Map<String, Object> quote = new LinkedHashMap<>();
+            quote.put("symbol", "SYM" + (i % 10));
+            quote.put("price", i * 0.25 + round);
+            quote.put("volume", i * 1000L - round);
+            quote.put("tags", tags);
+            quotes.add(quote);
+            if (i % 30 == 0) {
+                quotes.add((long) i);
+            }
+        }
+        return quotes;
+    }
+}
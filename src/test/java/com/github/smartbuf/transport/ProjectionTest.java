@@ -0,0 +1,149 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.SmartPacket;
+import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.reflect.XTypeUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author sulin
+ * @since 2019-12-06 14:31:09
+ */
+public class ProjectionTest {
+
+    private static final Projection PROJECTION = Projection.of("id", "buyer.name", "items.price", "items.price.x");
+
+    @Test
+    public void testTyped() throws IOException {
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            output.setSizedDepth(stream ? 2 : 0);
+            Input input = new Input(stream);
+            for (int round = 0; round < 3; round++) {
+                Order order = new Order(round);
+                byte[] bytes = output.write(order);
+
+                Order result = (Order) input.read(bytes, XTypeUtils.toXType(Order.class), PROJECTION);
+                assert result.id == order.id;
+                assert result.note == null;
+                assert result.payload == null;
+                assert result.buyer.name.equals(order.buyer.name);
+                assert result.buyer.age == 0 && result.buyer.tags == null;
+                assert result.items.size() == order.items.size();
+                for (int i = 0; i < order.items.size(); i++) {
+                    assert result.items.get(i).price == order.items.get(i).price;
+                    assert result.items.get(i).name == null;
+                }
+
+                // it should be the same as the full reading if all fields are selected
+                bytes = output.write(order);
+                assert order.equals(input.read(bytes, XTypeUtils.toXType(Order.class), Projection.ALL));
+            }
+        }
+    }
+
+    @Test
+    public void testSizedLimit() throws IOException {
+        int limit = Output.SIZED_LIMIT;
+        Output.SIZED_LIMIT = 16; // big containers' length will be unknown
+        try {
+            Output output = new Output(false);
+            output.setSizedDepth(2);
+            Input input = new Input(false);
+            Order order = new Order(1);
+
+            Order result = (Order) input.read(output.write(order), XTypeUtils.toXType(Order.class), Projection.of("id", "note"));
+            assert result.id == order.id && result.note.equals(order.note);
+            assert result.buyer == null && result.items == null;
+
+            result = (Order) input.read(output.write(order), XTypeUtils.toXType(Order.class), PROJECTION);
+            assert result.buyer.name.equals(order.buyer.name);
+            assert result.items.get(99).price == order.items.get(99).price;
+            assert order.equals(input.read(output.write(order), XTypeUtils.toXType(Order.class)));
+        } finally {
+            Output.SIZED_LIMIT = limit;
+        }
+    }
+
+    @Test
+    public void testGeneric() throws IOException {
+        Output output = new Output(false);
+        Input input = new Input(false);
+        Order order = new Order(1);
+
+        Object result = input.read(output.write(order), XTypeUtils.toXType(Object.class), PROJECTION);
+        ObjectNode node = (ObjectNode) result;
+        assert Arrays.equals(node.keys(), new String[]{"buyer", "id", "items"});
+        ObjectNode buyer = (ObjectNode) node.values()[0];
+        assert Arrays.equals(buyer.keys(), new String[]{"name"});
+        Object[] items = (Object[]) node.values()[2];
+        assert items.length == order.items.size();
+        assert Arrays.equals(((ObjectNode) items[0]).keys(), new String[]{"price"});
+
+        Order order2 = SmartPacket.deserialize(SmartPacket.serialize(order), Order.class, "note");
+        assert order2.note.equals(order.note);
+        assert order2.id == 0 && order2.buyer == null && order2.items == null;
+    }
+
+    @Test
+    public void testPaths() {
+        Projection projection = Projection.of("a.b.c", "a.b", "d");
+        assert projection.select("a").select("b") == Projection.ALL;
+        assert projection.select("d") == Projection.ALL;
+        assert projection.select("e") == null;
+        assert Projection.ALL.select("any") == Projection.ALL;
+        for (String path : new String[]{"", "a..b", ".a", "a."}) {
+            try {
+                Projection.of(path);
+                assert false;
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Order {
+        private long       id;
+        private User       buyer;
+        private List<Item> items;
+        private String     note;
+        private byte[]     payload;
+
+        public Order(int round) {
+            id = 100 + round;
+            buyer = new User("buyer" + round, 20 + round, Arrays.asList("vip", "new"));
+            items = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                items.add(new Item("item" + i, i * 1.5 + round));
+            }
+            note = "note" + round;
+            payload = new byte[1024];
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class User {
+        private String       name;
+        private int          age;
+        private List<String> tags;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String name;
+        private double price;
+    }
+}
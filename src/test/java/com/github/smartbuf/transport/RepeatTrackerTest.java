@@ -0,0 +1,145 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.reflect.XTypeUtils;
+import lombok.Data;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * @author sulin
+ * @since 2019-12-12 16:20:15
+ */
+public class RepeatTrackerTest {
+
+    @Test
+    public void testTracker() {
+        RepeatTracker tracker = new RepeatTracker();
+        assert !tracker.repeated(100);
+        assert tracker.repeated(100);
+        assert !tracker.repeated("hello");
+        assert tracker.repeated("hello");
+        assert !tracker.repeated(new String("world".toCharArray()));
+        assert tracker.repeated("world");
+
+        tracker.clear();
+        assert !tracker.repeated(100);
+        assert !tracker.repeated("hello");
+    }
+
+    @Test
+    public void testDisable() {
+        RepeatTracker tracker = new RepeatTracker();
+        for (int i = 0; i < RepeatTracker.SAMPLE; i++) {
+            tracker.repeated(i * 7919L);
+        }
+        assert tracker.isDisabled();
+        assert !tracker.repeated(0);
+        assert !tracker.repeated(0);
+
+        // repeated values keep it enabled
+        tracker.clear();
+        for (int i = 0; i < RepeatTracker.SAMPLE * 4; i++) {
+            tracker.repeated(i % 10);
+        }
+        assert !tracker.isDisabled();
+        assert tracker.repeated(5);
+    }
+
+    @Test
+    public void testAdapt() {
+        OutputDataPool dataPool = new OutputDataPool(16);
+        assert dataPool.adaptVarint(0) == 1;
+        assert dataPool.adaptVarint(7) == 0;
+        assert dataPool.adaptVarint(7) == 2;
+        assert dataPool.adaptVarint(Long.MIN_VALUE) == 3;
+        assert dataPool.adaptFloat(0) == 1 && dataPool.adaptDouble(0) == 1 && dataPool.adaptString("") == 1;
+        assert dataPool.adaptDouble(1.5) == 0 && dataPool.adaptDouble(1.5) == 2;
+        assert dataPool.adaptString("short") == 0 && dataPool.adaptString("short") == 2;
+        assert dataPool.adaptString(RandomStringUtils.random(OutputDataPool.POOLED_STRING_LENGTH + 1)) == 3;
+
+        dataPool.reset();
+        assert dataPool.adaptVarint(7) == 0;
+    }
+
+    @Test
+    public void testInline() throws IOException {
+        List<Object> values = new ArrayList<>();
+        Collections.addAll(values, 1L, -1L, 7L, 7L, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 60, -(1L << 60));
+        Collections.addAll(values, 1.5f, 1.5f, Float.NaN, 2.5, 2.5, Double.NaN, Double.MIN_VALUE);
+        Collections.addAll(values, "a", "a", "你好", RandomStringUtils.random(100), null, true);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            map.put("k" + i, values.get(i)); // object's fields aren't grouped into slices
+        }
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            Input input = new Input(stream);
+            for (int round = 0; round < 3; round++) {
+                Map<?, ?> result = (Map<?, ?>) input.read(output.write(map), XTypeUtils.toXType(Map.class));
+                for (int i = 0; i < values.size(); i++) {
+                    assert Objects.equals(values.get(i), result.get("k" + i));
+                }
+
+                // parser and skipping
+                InputParser parser = input.parse(output.write(map));
+                assert parser.nextToken() == InputParser.Token.START_OBJECT;
+                assert parser.nextToken() == InputParser.Token.FIELD_NAME;
+                assert parser.nextToken() == InputParser.Token.VALUE_LONG && parser.readLong() == 1;
+                for (int i = 1; i < values.size() - 1; i++) {
+                    parser.nextToken();
+                    parser.skipValue();
+                }
+                assert parser.nextToken() == InputParser.Token.FIELD_NAME;
+                assert parser.nextToken() == InputParser.Token.VALUE_BOOLEAN;
+                assert parser.nextToken() == InputParser.Token.END_OBJECT;
+
+                // unread values are skipped by nextToken
+                parser = input.parse(output.write(map));
+                assert parser.nextToken() == InputParser.Token.START_OBJECT;
+                for (int i = 0; i < values.size() - 1; i++) {
+                    assert parser.nextToken() == InputParser.Token.FIELD_NAME;
+                    parser.nextToken();
+                }
+                assert parser.nextToken() == InputParser.Token.FIELD_NAME;
+                assert parser.nextToken() == InputParser.Token.VALUE_BOOLEAN && parser.readBoolean();
+                assert parser.nextToken() == InputParser.Token.END_OBJECT;
+
+                LazyObject obj = (LazyObject) input.readLazy(output.write(map));
+                assert obj.get("k" + (values.size() - 1)).equals(true);
+            }
+        }
+    }
+
+    @Test
+    public void testTyped() throws IOException {
+        Output output = new Output(false);
+        Input input = new Input(false);
+        List<Item> items = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Item item = new Item();
+            item.id = 1000000L + i;
+            item.code = i % 5;
+            item.price = random.nextDouble();
+            item.weight = random.nextFloat();
+            item.name = "item" + i;
+            item.tag = "tag" + (i % 3);
+            items.add(item);
+        }
+        Item[] result = (Item[]) input.read(output.write(items), XTypeUtils.toXType(Item[].class));
+        assert Arrays.asList(result).equals(items);
+    }
+
+    @Data
+    public static class Item {
+        private long   id;
+        private int    code;
+        private double price;
+        private float  weight;
+        private String name;
+        private String tag;
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.smartbuf.transport;
+
+import com.github.smartbuf.node.basic.ObjectNode;
+import com.github.smartbuf.reflect.XTypeUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * @author sulin
+ * @since 2019-12-12 10:26:37
+ */
+public class SparseTest {
+
+    @Test
+    public void testTyped() throws IOException {
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            output.setSparse(true);
+            Input input = new Input(stream);
+            for (int round = 0; round < 3; round++) {
+                Profile profile = new Profile(round);
+                Profile result = (Profile) input.read(output.write(profile), XTypeUtils.toXType(Profile.class));
+                assert result.equals(profile);
+
+                // primitive fields with non-default initializer should be overwritten by the absent default
+                Profile empty = new Profile();
+                empty.retries = 0;
+                empty.enabled = false;
+                empty.ratio = 0;
+                result = (Profile) input.read(output.write(empty), XTypeUtils.toXType(Profile.class));
+                assert result.equals(empty);
+
+                List<Profile> profiles = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    profiles.add(new Profile(i));
+                }
+                Profile[] results = (Profile[]) input.read(output.write(profiles), XTypeUtils.toXType(Profile[].class));
+                assert Arrays.asList(results).equals(profiles);
+            }
+        }
+    }
+
+    @Test
+    public void testSize() throws IOException {
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            profiles.add(new Profile(i));
+        }
+        Output output = new Output(false);
+        byte[] plain = output.write(profiles);
+        output.setSparse(true);
+        byte[] sparse = output.write(profiles);
+        assert sparse.length * 4 < plain.length * 3; // 2671 -> 1920, values in the data pool aren't changed
+
+        Profile profile = new Profile(1);
+        assert output.write(profile).length < new Output(false).write(profile).length;
+    }
+
+    @Test
+    public void testGeneric() throws IOException {
+        List<Object> list = new ArrayList<>();
+        list.add(new Profile(1));
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", "value");
+        map.put("none", null);
+        list.add(map);
+        list.add(new Profile(2));
+        list.add("end");
+
+        Output output = new Output(false);
+        output.setSparse(true);
+        Input input = new Input(false);
+        Object[] result = (Object[]) input.read(output.write(list));
+        assert field(result[0], "name").equals("p1");
+        assert field(result[0], "email") == null && field(result[0], "age") == null;
+        assert field(result[1], "key").equals("value") && field(result[1], "none") == null;
+        assert result[3].equals("end");
+
+        // parser reports absent fields as null
+        InputParser parser = input.parse(output.write(list));
+        assert parser.nextToken() == InputParser.Token.START_ARRAY;
+        assert parser.nextToken() == InputParser.Token.START_OBJECT;
+        Map<String, InputParser.Token> tokens = new HashMap<>();
+        while (parser.nextToken() == InputParser.Token.FIELD_NAME) {
+            String name = parser.fieldName();
+            tokens.put(name, parser.nextToken());
+            parser.skipValue();
+        }
+        assert tokens.get("email") == InputParser.Token.VALUE_NULL;
+        assert tokens.get("name") == InputParser.Token.VALUE_STRING;
+        parser.nextToken();
+        parser.skipValue();
+        assert parser.nextToken() == InputParser.Token.START_OBJECT;
+        parser.skipValue();
+        assert parser.nextToken() == InputParser.Token.VALUE_STRING && parser.readString().equals("end");
+        assert parser.nextToken() == InputParser.Token.END_ARRAY;
+    }
+
+    @Test
+    public void testLazyAndProjection() throws IOException {
+        Output output = new Output(false);
+        output.setSparse(true);
+        Input input = new Input(false);
+        Profile profile = new Profile(3);
+
+        LazyObject obj = (LazyObject) input.readLazy(output.write(profile));
+        assert obj.get("tags") == null;
+        assert obj.get("name").equals(profile.name);
+        assert obj.get("email") == null;
+        LazyObject address = (LazyObject) obj.get("address");
+        assert address.get("city").equals(profile.address.city);
+        assert address.get("zip") == null;
+
+        Projection projection = Projection.of("name", "retries", "address.city");
+        Profile result = (Profile) input.read(output.write(profile), XTypeUtils.toXType(Profile.class), projection);
+        assert result.name.equals(profile.name) && result.retries == profile.retries;
+        assert result.address.city.equals(profile.address.city) && result.address.zip == null;
+        assert result.score == 0 && result.email == null;
+    }
+
+    @Test
+    public void testFrames() throws IOException {
+        Holder holder = new Holder();
+        holder.a = 1;
+        holder.b = 2;
+        holder.s = "tail";
+        for (int i = 0; i < 2000; i++) {
+            holder.rows.add(new Profile(i));
+        }
+        for (boolean stream : new boolean[]{false, true}) {
+            Output output = new Output(stream);
+            output.setSparse(true);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            output.write(holder, bos, 1024); // rows are cut into frames inside the sparse holder
+            output.write(holder, bos, 1024);
+
+            Input input = new Input(stream);
+            InputStream is = new ByteArrayInputStream(bos.toByteArray());
+            for (int i = 0; i < 2; i++) {
+                assert holder.equals(input.read(is, XTypeUtils.toXType(Holder.class)));
+            }
+            assert is.read() == -1;
+        }
+    }
+
+    private static Object field(Object obj, String name) {
+        if (obj instanceof Map) {
+            return ((Map<?, ?>) obj).get(name);
+        }
+        ObjectNode node = (ObjectNode) obj;
+        int index = Arrays.asList(node.keys()).indexOf(name);
+        assert index >= 0;
+        return node.values()[index];
+    }
+
+    @Data
+    public static class Holder {
+        private int           a;
+        private List<Profile> rows = new ArrayList<>();
+        private int           b;
+        private String        s;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Profile {
+        private long         id;
+        private String       name;
+        private String       email;
+        private String       phone;
+        private int          age;
+        private int          retries = 3;
+        private boolean      enabled = true;
+        private boolean      admin;
+        private double       ratio   = 1.5;
+        private double       score;
+        private float        weight;
+        private Long         parent;
+        private Address      address;
+        private List<String> tags;
+        private String       remark;
+        private byte[]       avatar;
+
+        public Profile(int i) {
+            id = i;
+            name = "p" + i;
+            retries = i % 2 == 0 ? 0 : 3;
+            address = new Address("city" + (i % 3), null);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Address {
+        private String city;
+        private String zip;
+    }
+}